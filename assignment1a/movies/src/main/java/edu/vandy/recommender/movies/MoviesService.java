@@ -2,11 +2,14 @@ package edu.vandy.recommender.movies;
 
 import edu.vandy.recommender.movies.model.Movie;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * This class defines implementation methods that are called by the
@@ -29,6 +32,24 @@ public class MoviesService {
     // @Bean factory method.
     List<Movie> mMovies;
 
+    /**
+     * True if searches are answered by a {@link TitleIndex}, else
+     * false if every title is scanned.
+     */
+    @Value("${app.title-index.enabled:true}")
+    boolean mTitleIndexEnabled;
+
+    /**
+     * A trigram index over the titles of {@code mMovies}, which is
+     * built the first time a search is performed.
+     */
+    private volatile TitleIndex mTitleIndex;
+
+    /**
+     * Maps each title of {@code mMovies} to its {@link Movie}.
+     */
+    private volatile Map<String, Movie> mMoviesByTitle;
+
     /**
      * @return A {@link List} of all the movies
      */
@@ -47,6 +68,11 @@ public class MoviesService {
      *         query
      */
     public List<Movie> search(String query) {
+        // Answer the search via the trigram index once the movies
+        // are available, else fall back to scanning every movie.
+        if (mTitleIndexEnabled && mMovies != null)
+            return searchIndex(query);
+
         // Locate all movies whose 'id' matches the 'query' and return
         // them as a List of Movie objects.
 
@@ -72,4 +98,46 @@ public class MoviesService {
         // the proper code.
         return null;
    }
+
+    /**
+     * Search for movie titles containing the given query {@link
+     * String} (ignoring case) via a {@link TitleIndex}, which only
+     * verifies titles sharing all trigrams of the query instead of
+     * scanning every title.
+     *
+     * @param query The search query
+     * @return A {@link List} of {@link Movie} objects containing the
+     *         query, sorted by title (ignoring case)
+     */
+    private List<Movie> searchIndex(String query) {
+        var index = mTitleIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = mTitleIndex;
+                if (index == null) {
+                    // Build the index over the loaded movies.
+                    mMoviesByTitle = mMovies
+                        .stream()
+                        .collect(Collectors.toMap(Movie::id,
+                                                  Function.identity(),
+                                                  (x, y) -> x));
+                    mTitleIndex = index =
+                        new TitleIndex(mMoviesByTitle.keySet());
+                }
+            }
+        }
+
+        return index
+            // Find the matching titles in sorted order.
+            .search(query)
+
+            // Convert the titles to a Stream.
+            .stream()
+
+            // Map each title back to its Movie.
+            .map(mMoviesByTitle::get)
+
+            // Collect the results into a List.
+            .toList();
+    }
 }
@@ -1,6 +1,8 @@
 package edu.vandy.recommender.database.common;
 
 import edu.vandy.recommender.database.common.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
@@ -9,6 +11,7 @@ import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.lang.invoke.MethodHandles;
 import java.net.URI;
 import java.util.function.Supplier;
 
@@ -24,6 +27,12 @@ import edu.vandy.recommender.database.utils.WebUtils;
  */
 @Component
 public class RunTimer {
+    /**
+     * Logs the posts to the 'timer' microservice.
+     */
+    private static final Logger logger =
+        LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
     /**
      * The central interface to provide configuration for the
      * application.  This field is read-only while the application is
@@ -208,7 +217,7 @@ public class RunTimer {
             // Make a URL for the Timer microservice.
             String url = makeTimerUrl(POST_TIMING);
 
-            System.out.println("Posting to Timer service at URL = " + url);
+            logger.debug("Posting to Timer service at URL = {}", url);
 
             URI uri = WebUtils
                 // Sent a POST request to the 'timer' microservice.
@@ -216,8 +225,8 @@ public class RunTimer {
                                          url,
                                          stop());
 
-            System.out.println("Timer service returned URI for this microservice = "
-                               + uri);
+            logger.debug("Timer service returned URI for this microservice = {}",
+                         uri);
         }
     }
 }
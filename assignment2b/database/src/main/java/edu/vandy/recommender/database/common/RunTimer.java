@@ -1,6 +1,8 @@
 package edu.vandy.recommender.database.common;
 
 import edu.vandy.recommender.utils.WebUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.ApplicationContext;
@@ -10,6 +12,7 @@ import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.lang.invoke.MethodHandles;
 import java.net.URI;
 import java.util.function.Supplier;
 
@@ -21,6 +24,12 @@ import static edu.vandy.recommender.database.common.Constants.Service.TIMER;
  */
 @Component
 public class RunTimer {
+    /**
+     * Logs the posts to the 'timer' microservice.
+     */
+    private static final Logger logger =
+        LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
     /**
      * The central interface to provide configuration for the
      * application.  This field is read-only while the application is
@@ -206,7 +215,7 @@ public class RunTimer {
             // Make a URL for the Timer microservice.
             String url = makeTimerUrl(Constants.EndPoint.POST_TIMING);
 
-            System.out.println("Posting to Timer service at URL = " + url);
+            logger.debug("Posting to Timer service at URL = {}", url);
 
             URI uri = WebUtils
                 // Sent a POST request to the 'timer' microservice.
@@ -214,8 +223,7 @@ public class RunTimer {
                                          url,
                                          stop());
 
-            System.out.println("Timer service returned URI for this microservice = "
-                               + uri);
+            logger.debug("Timer service returned URI for this microservice = {}", uri);
         }
     }
 }
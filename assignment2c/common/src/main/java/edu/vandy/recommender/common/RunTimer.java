@@ -1,6 +1,8 @@
 package edu.vandy.recommender.common;
 
 import edu.vandy.recommender.utils.WebUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.web.client.RestTemplate;
@@ -8,6 +10,7 @@ import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.lang.invoke.MethodHandles;
 import java.util.function.Supplier;
 
 import static edu.vandy.recommender.common.Constants.*;
@@ -20,6 +23,12 @@ import static edu.vandy.recommender.common.Constants.Service.TIMER;
  * method execution times.
  */
 public class RunTimer {
+    /**
+     * Logs the posts to the 'timer' microservice.
+     */
+    private static final Logger logger =
+        LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
     /**
      * The {@link RestTemplate} used to communicate with
      * the {@code Timer} microservice.
@@ -178,8 +187,7 @@ public class RunTimer {
         // Make a URL for the Timer microservice.
         String url = makeTimerUrl(POST_TIMING);
 
-        System.out.println("Posting to Timer service at URL = " 
-                           + url);
+        logger.debug("Posting to Timer service at URL = {}", url);
 
         var uri = WebUtils
             // Sent a POST request to the 'timer' microservice.
@@ -187,7 +195,6 @@ public class RunTimer {
                                      url,
                                      stop(timer));
 
-        System.out.println("The Timer service returned this URI "
-                           + uri);
+        logger.debug("The Timer service returned this URI {}", uri);
     }
 }
@@ -0,0 +1,238 @@
+package edu.vandy.recommender.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class compiles a {@link List} of literal queries into a
+ * single Aho-Corasick automaton that determines whether any of the
+ * queries occurs in a title in one pass over the title, rather than
+ * one pass per query.
+ *
+ * Case is ignored the same way as by a {@link java.util.regex.Pattern}
+ * compiled with {@code CASE_INSENSITIVE}, i.e., only US-ASCII letters
+ * are folded, so for literal queries this class finds exactly the
+ * titles that the compiled queries would find.
+ *
+ * The automaton is a dense DFA over the (compressed) alphabet of the
+ * queries, so each character of a title costs a single array lookup.
+ * This class is immutable once it's built and thus thread-safe.
+ */
+public class AhoCorasickMatcher {
+    /**
+     * Characters that give a regular expression special meaning.
+     */
+    private static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
+
+    /**
+     * The number of distinct queries.
+     */
+    private final int mQueryCount;
+
+    /**
+     * Maps each character occurring in a query to its symbol, where
+     * symbol 0 stands for all other characters.
+     */
+    private final Map<Character, Integer> mSymbols;
+
+    /**
+     * The symbols of the ASCII characters, which avoids a {@link
+     * Map} lookup for the common case.
+     */
+    private final int[] mAsciiSymbols = new int[128];
+
+    /**
+     * The number of symbols, including symbol 0.
+     */
+    private final int mAlphabetSize;
+
+    /**
+     * The DFA transitions, indexed by {@code state * mAlphabetSize +
+     * symbol}.
+     */
+    private final int[] mTransitions;
+
+    /**
+     * True for each state where at least one query ends, including
+     * queries reached via failure links.
+     */
+    private final boolean[] mAccepting;
+
+    /**
+     * Compile the {@code queries} into an automaton.  Queries are
+     * case-folded and duplicates are ignored.
+     *
+     * @param queries The literal queries to match
+     */
+    public AhoCorasickMatcher(List<String> queries) {
+        var distinct = new LinkedHashSet<String>();
+        for (var query : queries)
+            distinct.add(fold(query));
+
+        mQueryCount = distinct.size();
+
+        // Compress the alphabet to the characters in the queries.
+        mSymbols = new HashMap<>();
+        for (var query : distinct)
+            for (int i = 0; i < query.length(); i++)
+                mSymbols.putIfAbsent(query.charAt(i), mSymbols.size() + 1);
+        mAlphabetSize = mSymbols.size() + 1;
+        mSymbols.forEach((c, symbol) -> {
+                if (c < mAsciiSymbols.length)
+                    mAsciiSymbols[c] = symbol;
+            });
+
+        // Build the trie, where 0 marks a missing edge since no edge
+        // leads back to the root.
+        var transitions = new ArrayList<int[]>();
+        var accepting = new ArrayList<Boolean>();
+        transitions.add(new int[mAlphabetSize]);
+        accepting.add(false);
+
+        for (var query : distinct) {
+            int state = 0;
+            for (int i = 0; i < query.length(); i++) {
+                int symbol = mSymbols.get(query.charAt(i));
+                if (transitions.get(state)[symbol] == 0) {
+                    transitions.get(state)[symbol] = transitions.size();
+                    transitions.add(new int[mAlphabetSize]);
+                    accepting.add(false);
+                }
+                state = transitions.get(state)[symbol];
+            }
+            accepting.set(state, true);
+        }
+
+        // Compute the failure links breadth-first and turn the trie
+        // into a DFA by resolving missing edges via those links.
+        var failures = new int[transitions.size()];
+        var queue = new ArrayDeque<Integer>();
+        for (int symbol = 0; symbol < mAlphabetSize; symbol++) {
+            int child = transitions.get(0)[symbol];
+            if (child != 0)
+                queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            if (accepting.get(failures[state]))
+                accepting.set(state, true);
+
+            for (int symbol = 0; symbol < mAlphabetSize; symbol++) {
+                int child = transitions.get(state)[symbol];
+                int fallback = transitions.get(failures[state])[symbol];
+                if (child != 0) {
+                    failures[child] = fallback;
+                    queue.add(child);
+                } else
+                    transitions.get(state)[symbol] = fallback;
+            }
+        }
+
+        mTransitions = new int[transitions.size() * mAlphabetSize];
+        mAccepting = new boolean[transitions.size()];
+        for (int state = 0; state < transitions.size(); state++) {
+            System.arraycopy(transitions.get(state), 0,
+                             mTransitions, state * mAlphabetSize,
+                             mAlphabetSize);
+            mAccepting[state] = accepting.get(state);
+        }
+    }
+
+    /**
+     * @param query A search query
+     * @return True if the {@code query} has no regular expression
+     *         meta-characters, i.e., it matches itself literally
+     */
+    public static boolean isLiteral(String query) {
+        for (int i = 0; i < query.length(); i++)
+            if (REGEX_META_CHARS.indexOf(query.charAt(i)) >= 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * @param queries A {@link List} of search queries
+     * @return True if all {@code queries} are literal
+     */
+    public static boolean areLiteral(List<String> queries) {
+        return queries.stream().allMatch(AhoCorasickMatcher::isLiteral);
+    }
+
+    /**
+     * @param title A movie title
+     * @return True if the {@code title} contains at least one of the
+     *         queries (ignoring case)
+     */
+    public boolean matchesAny(String title) {
+        if (mQueryCount == 0)
+            return false;
+
+        // The empty query matches every title.
+        if (mAccepting[0])
+            return true;
+
+        int state = 0;
+
+        for (int i = 0; i < title.length(); i++) {
+            state = step(state, fold(title.charAt(i)));
+            if (mAccepting[state])
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Follow the transition from {@code state} on {@code c}.
+     *
+     * @param state The current state
+     * @param c The next case-folded character of the title
+     * @return The next state
+     */
+    private int step(int state, char c) {
+        int symbol;
+        if (c < mAsciiSymbols.length)
+            symbol = mAsciiSymbols[c];
+        else
+            symbol = mSymbols.getOrDefault(c, 0);
+
+        return mTransitions[state * mAlphabetSize + symbol];
+    }
+
+    /**
+     * @param s A {@link String}
+     * @return {@code s} with its US-ASCII letters in lower case
+     */
+    private static String fold(String s) {
+        var chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = fold(chars[i]);
+        return new String(chars);
+    }
+
+    /**
+     * @param c A character
+     * @return {@code c} in lower case if it's a US-ASCII letter, else
+     *         {@code c} itself
+     */
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * @return A {@link String} describing the automaton
+     */
+    @Override
+    public String toString() {
+        return "AhoCorasickMatcher[queries=" + mQueryCount
+            + ", states=" + mAccepting.length
+            + ", alphabet=" + Arrays.toString(mSymbols.keySet().toArray())
+            + "]";
+    }
+}
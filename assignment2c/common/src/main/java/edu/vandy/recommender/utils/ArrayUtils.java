@@ -1,5 +1,8 @@
 package edu.vandy.recommender.utils;
 
+import edu.vandy.recommender.common.VectorCodec;
+
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -28,7 +31,11 @@ public class ArrayUtils {
     /**
      * Attempt to convert the {@link Object} param into a {@link List}
      * of {@link Class<T>}, which must be a subclass of {@link Number}
-     * (e.g., {@link Integer}, {@link Double}, etc.
+     * (e.g., {@link Integer}, {@link Double}, etc.  A vector packed
+     * by {@link VectorCodec} (e.g., a binary column read via R2DBC)
+     * is decoded straight into a primitive array, and array elements
+     * that are already of type {@code T} are used as is rather than
+     * being converted to a {@link String} and parsed back.
      *
      * @param obj The array {@link Object} to attempt to convert
      * @param clazz The type to attempt to convert into
@@ -38,9 +45,14 @@ public class ArrayUtils {
      *         the conversion fails
      * @param <T> A subclass of {@link Number}
      */
+    @SuppressWarnings("unchecked")
     public static <T extends Number> List<T> obj2List(Object obj,
                                                       Class<T> clazz) {
-        if (obj == null || !obj.getClass().isArray()) {
+        if (clazz == Double.class && obj instanceof byte[] bytes) {
+            return (List<T>) VectorCodec.asList(VectorCodec.decode(bytes));
+        } else if (clazz == Double.class && obj instanceof ByteBuffer buffer) {
+            return (List<T>) VectorCodec.asList(VectorCodec.decode(buffer));
+        } else if (obj == null || !obj.getClass().isArray()) {
             // Return an empty List on failure.
             return Collections.emptyList();
         } else {
@@ -48,19 +60,17 @@ public class ArrayUtils {
                 // Convert the 'obj' array into a Stream.
                 .stream((Object[]) obj)
 
-                // Map each Object to its String representation.
-                .map(Object::toString)
-
-                // Try to convert each string to a subclass of Number.
-                .map(string -> convertToNumber(string, clazz))
+                // Use elements of the right type as is, else convert
+                // them via their String form.
+                .map(element -> clazz.isInstance(element)
+                     ? clazz.cast(element)
+                     : element == null
+                     ? null
+                     : convertToNumber(element.toString(), clazz))
 
                 // Ignore failure.
                 .filter(Objects::nonNull)
 
-                // Cast each remaining element to the type T specified
-                // by the clazz argument
-                .map(clazz::cast)
-
                 // Convert the Stream to a List.
                 .toList();
         }
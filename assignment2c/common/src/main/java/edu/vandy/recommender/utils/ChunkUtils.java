@@ -0,0 +1,91 @@
+package edu.vandy.recommender.utils;
+
+import jdk.incubator.concurrent.StructuredTaskScope;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+/**
+ * A Java utility class that provides helper methods for processing a
+ * {@link List} in contiguous chunks via Java structured concurrency.
+ */
+public final class ChunkUtils {
+    /**
+     * A Java utility class should have a private constructor.
+     */
+    private ChunkUtils() {
+    }
+
+    /**
+     * Split {@code list} into chunks of {@code chunkSize} elements
+     * and fork one subtask per chunk that sequentially keeps the
+     * elements matching the {@code predicate}.  This amortizes the
+     * cost of forking a virtual thread over many elements, rather
+     * than forking one subtask per element.
+     *
+     * @param list The {@link List} to filter
+     * @param chunkSize The number of elements per subtask, which must
+     *                  be positive
+     * @param predicate The {@link Predicate} that elements must match
+     * @return A {@link List} of the matching elements in {@code list}
+     *         order
+     */
+    public static <T> List<T> filterInChunks(List<T> list,
+                                             int chunkSize,
+                                             Predicate<? super T> predicate) {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("chunkSize must be positive");
+
+        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+            var results = new ArrayList<Future<List<T>>>();
+
+            // Fork one subtask per chunk of the list.
+            for (int from = 0; from < list.size(); from += chunkSize) {
+                var chunk = list
+                    .subList(from, Math.min(from + chunkSize, list.size()));
+                results.add(scope.fork(() -> filter(chunk, predicate)));
+            }
+
+            // Perform a barrier synchronization that waits for all
+            // the subtasks to complete.
+            scope.join();
+
+            // Throw an Exception upon failure of any subtasks.
+            scope.throwIfFailed();
+
+            return results
+                // Convert the List to a Stream.
+                .stream()
+
+                // Concatenate the matches of each chunk in order.
+                .flatMap(result -> result.resultNow().stream())
+
+                // Convert the Stream to a List.
+                .toList();
+        }
+        catch (Exception exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    /**
+     * Sequentially keep the elements of {@code chunk} that match the
+     * {@code predicate}.
+     *
+     * @param chunk A contiguous sub-{@link List}
+     * @param predicate The {@link Predicate} that elements must match
+     * @return The matching elements in {@code chunk} order
+     */
+    private static <T> List<T> filter(List<T> chunk,
+                                      Predicate<? super T> predicate) {
+        var matches = new ArrayList<T>();
+
+        for (var element : chunk)
+            if (predicate.test(element))
+                matches.add(element);
+
+        return matches;
+    }
+}
@@ -0,0 +1,53 @@
+package edu.vandy.recommender.utils
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.util.regex.Pattern
+import kotlin.random.Random
+
+/**
+ * Checks that [AhoCorasickMatcher] finds exactly the titles that the
+ * queries compiled with [Pattern.CASE_INSENSITIVE] find.
+ */
+internal class AhoCorasickMatcherTest : AssignmentTests() {
+    private val random = Random(42)
+
+    private val words = listOf("The", "Lord", "of", "the", "Rings", "Star", "WARS", "Mock", "mocking", "Bird", "Ümlaut", "ümlaut")
+
+    private val titles = (1..1_000).map {
+        (1..random.nextInt(1, 5)).joinToString(" ") { words.random(random) }
+    }
+
+    @Test
+    fun `matches agree with case-insensitive patterns`() {
+        listOf(
+            listOf("mock"),
+            listOf("he", "she", "hers"),
+            listOf("rings", "STAR", "zzz"),
+            listOf("of the", "bird", "ümlaut"),
+            listOf("lord", "lord", "ord"),
+            listOf("")
+        ).forEach { queries ->
+            val matcher = AhoCorasickMatcher(queries)
+            val patterns = queries.map { Pattern.compile(it, Pattern.CASE_INSENSITIVE) }
+            titles.forEach { title ->
+                assertThat(matcher.matchesAny(title))
+                    .describedAs("$queries in $title")
+                    .isEqualTo(patterns.any { it.matcher(title).find() })
+            }
+        }
+    }
+
+    @Test
+    fun `no queries match nothing`() {
+        assertThat(AhoCorasickMatcher(listOf()).matchesAny("title")).isFalse
+    }
+
+    @Test
+    fun `only queries without meta-characters are literal`() {
+        assertThat(AhoCorasickMatcher.areLiteral(listOf("star wars", "lord"))).isTrue
+        assertThat(AhoCorasickMatcher.areLiteral(listOf("star", "l.rd"))).isFalse
+        assertThat(AhoCorasickMatcher.isLiteral("(a|b)")).isFalse
+    }
+}
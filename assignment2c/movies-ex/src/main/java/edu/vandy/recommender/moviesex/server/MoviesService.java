@@ -1,10 +1,13 @@
 package edu.vandy.recommender.moviesex.server;
 
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.utils.AhoCorasickMatcher;
+import edu.vandy.recommender.utils.ChunkUtils;
 import edu.vandy.recommender.utils.FutureUtils;
 import jdk.incubator.concurrent.StructuredTaskScope;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -51,6 +54,28 @@ public class MoviesService {
     @Autowired
     protected List<Movie> mMovies;
 
+    /**
+     * This auto-wired field connects the {@link MoviesService} to the
+     * {@link QueryPlanCache} that reuses compiled queries, if any.
+     */
+    @Autowired(required = false)
+    protected QueryPlanCache mQueryPlans;
+
+    /**
+     * The number of movies each subtask matches when searching in
+     * partitioned mode, where 0 forks one subtask per movie instead.
+     */
+    @Value("${app.search.chunk-size:256}")
+    protected int mChunkSize;
+
+    /**
+     * True if a multi-query search whose queries are all literals is
+     * answered by one {@link AhoCorasickMatcher} pass over each title
+     * instead of matching each query separately.
+     */
+    @Value("${app.search.literal-matcher:false}")
+    protected boolean mLiteralMatcher;
+
     /**
      * @return A {@link List} of all the movies
      */
@@ -67,6 +92,11 @@ public class MoviesService {
      * query
      */
     public List<Movie> search(String regexQuery) {
+        // Fork one subtask per chunk of movies if partitioning is
+        // enabled.
+        if (mChunkSize > 0)
+            return searchPartitioned(List.of(makePattern(regexQuery)));
+
         // Use Java structured concurrency to locate all movies whose
         // 'id' matches the 'regexQuery' and return them as a List of
         // Movie objects.
@@ -114,6 +144,16 @@ public class MoviesService {
      * queries
      */
     public List<Movie> search(List<String> regexQueries) {
+        // Scan each title once for all the queries if none of them
+        // uses regular expression syntax.
+        if (mLiteralMatcher && AhoCorasickMatcher.areLiteral(regexQueries))
+            return searchLiterals(regexQueries);
+
+        // Fork one subtask per chunk of movies if partitioning is
+        // enabled.
+        if (mChunkSize > 0)
+            return searchPartitioned(makePatterns(regexQueries));
+
         // Use Java structured concurrency to locate all movies whose
         // 'id' matches the List of 'regexQueries' and return them as
         // a List of Movie objects.
@@ -150,6 +190,53 @@ public class MoviesService {
         }
     }
 
+    /**
+     * Search for movie titles matching any of the {@link Pattern}
+     * objects in {@code patternList} by forking one subtask per chunk
+     * of {@code mChunkSize} movies rather than one per movie and
+     * pattern.  A {@link Movie} matches as soon as any pattern
+     * matches it, and matches are returned in {@code mMovies} order.
+     *
+     * @param patternList The {@link List} of search queries in
+     *                    compiled regular expression form
+     * @return A {@link List} of {@link Movie} objects that matched at
+     * least one query
+     */
+    public List<Movie> searchPartitioned(List<Pattern> patternList) {
+        return ChunkUtils
+            .filterInChunks(mMovies,
+                            mChunkSize,
+                            movie -> patternList
+                            .stream()
+                            .anyMatch(pattern -> match(pattern, movie)));
+    }
+
+    /**
+     * Search for movie titles containing any of the given literal
+     * queries (ignoring case) by compiling all the queries into one
+     * {@link AhoCorasickMatcher} and scanning each title once, rather
+     * than matching each query separately for every {@link Movie}.
+     * Matches are returned in {@code mMovies} order, just like the
+     * regular expression search.
+     *
+     * @param queries The {@link List} of literal search queries
+     * @return A {@link List} of {@link Movie} objects containing at
+     * least one query
+     */
+    public List<Movie> searchLiterals(List<String> queries) {
+        var matcher = new AhoCorasickMatcher(queries);
+
+        return mMovies
+            // Convert the List to a parallel Stream.
+            .parallelStream()
+
+            // Keep the Movies whose title contains any of the queries.
+            .filter(movie -> matcher.matchesAny(movie.id))
+
+            // Convert the Stream to a List.
+            .toList();
+    }
+
     /**
      * Convert the {@link List} of {@code regexQueries} into a {@link
      * List} of compiled regular expression {@link Pattern} objects
@@ -181,6 +268,10 @@ public class MoviesService {
      * @return A compiled {@link Pattern}
      */
     protected Pattern makePattern(String regexQuery) {
+        // Reuse the cached plan for this query if there's a cache.
+        if (mQueryPlans != null)
+            return mQueryPlans.plan(regexQuery).pattern();
+
         // Perform the following steps:
         //
         // 1. Compile the regexQuery into a Pattern and return that
@@ -370,6 +461,11 @@ public class MoviesService {
      */
     protected boolean match(@NotNull Pattern pattern,
                             Movie movie) {
+        // Let the cached plan reject the title via its literals
+        // before running the regular expression.
+        if (mQueryPlans != null)
+            return mQueryPlans.matches(pattern, movie.id);
+
         // Find a match between the 'pattern' and the 'movie' by
         // performing the following steps:
         // 
@@ -0,0 +1,361 @@
+package edu.vandy.recommender.moviesex.server;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * This class caches a compiled "query plan" for each raw regular
+ * expression query, so repeated queries aren't recompiled on every
+ * request.  The cache is bounded and evicts the least recently used
+ * plan once it's full.
+ *
+ * Each plan also holds the literal substrings that any match of its
+ * regular expression must contain, which rejects most titles via a
+ * cheap case-insensitive scan before the regular expression engine
+ * runs.  A query that is just a literal (the common case) never
+ * runs the regular expression engine at all.
+ *
+ * The plans compile queries case-insensitively, just like {@link
+ * MoviesService#makePattern}.  The cache is only created when {@code
+ * app.query-plans.enabled} is true, which application.yml sets;
+ * otherwise {@link MoviesService} compiles and matches each query
+ * itself.
+ */
+@Component
+@ConditionalOnProperty(name = "app.query-plans.enabled",
+                       havingValue = "true")
+public class QueryPlanCache {
+    /**
+     * The maximum number of plans to cache.
+     */
+    private final int mMaxSize;
+
+    /**
+     * The plans keyed by raw query in least recently used order,
+     * which is guarded by "this".
+     */
+    private final LinkedHashMap<String, QueryPlan> mPlans;
+
+    /**
+     * The cached plans keyed by their compiled {@link Pattern}, which
+     * lets {@link #matches} find a plan without reordering {@code
+     * mPlans}.  {@link Pattern} doesn't override {@code equals()}, so
+     * this is an identity lookup.
+     */
+    private final Map<Pattern, QueryPlan> mPlansByPattern =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Create a {@link QueryPlanCache}.
+     *
+     * @param maxSize The maximum number of plans to cache
+     */
+    public QueryPlanCache(@Value("${app.query-plans.max-size:256}")
+                          int maxSize) {
+        mMaxSize = maxSize;
+        mPlans = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry
+                    (Map.Entry<String, QueryPlan> eldest) {
+                    if (size() <= mMaxSize)
+                        return false;
+                    mPlansByPattern.remove(eldest.getValue().pattern());
+                    return true;
+                }
+            };
+    }
+
+    /**
+     * Get the plan for the {@code regexQuery}, compiling it if it's
+     * not already cached.
+     *
+     * @param regexQuery The raw regular expression query
+     * @return The {@link QueryPlan} for {@code regexQuery}
+     */
+    public synchronized QueryPlan plan(String regexQuery) {
+        var plan = mPlans.get(regexQuery);
+
+        if (plan == null) {
+            plan = QueryPlan.compile(regexQuery);
+            mPlans.put(regexQuery, plan);
+            mPlansByPattern.put(plan.pattern(), plan);
+        }
+
+        return plan;
+    }
+
+    /**
+     * Determine if the {@code pattern} matches the {@code title},
+     * using the cached plan when {@code pattern} came from {@link
+     * #plan}.
+     *
+     * @param pattern The compiled regular expression
+     * @param title The movie title
+     * @return True if there's a match, else false
+     */
+    public boolean matches(Pattern pattern, String title) {
+        var plan = mPlansByPattern.get(pattern);
+
+        return plan != null
+            ? plan.matches(title)
+            : pattern.matcher(title).find();
+    }
+
+    /**
+     * @return The number of cached plans
+     */
+    public synchronized int size() {
+        return mPlans.size();
+    }
+
+    /**
+     * A compiled regular expression together with the literals that
+     * every match of it must contain.
+     *
+     * @param pattern The compiled case-insensitive regular expression
+     * @param literals The literals every match must contain
+     * @param literalOnly True if the regular expression is just the
+     *                    single literal in {@code literals}
+     */
+    public record QueryPlan(Pattern pattern,
+                            char[][] literals,
+                            boolean literalOnly) {
+        /**
+         * Matches constructs that {@link #requiredLiterals} doesn't
+         * parse: quoting, escapes that denote other characters,
+         * back references, and inline flags.
+         */
+        private static final Pattern UNSUPPORTED =
+            Pattern.compile("\\\\[QxuckNpP0-9]|\\(\\?[a-zA-Z-]");
+
+        /**
+         * Compile the {@code regexQuery} into a {@link QueryPlan}.
+         *
+         * @param regexQuery The raw regular expression query
+         * @return The {@link QueryPlan} for {@code regexQuery}
+         */
+        public static QueryPlan compile(String regexQuery) {
+            var pattern = Pattern
+                .compile(regexQuery, Pattern.CASE_INSENSITIVE);
+            var literals = new ArrayList<String>();
+            boolean literalOnly = requiredLiterals(regexQuery, literals);
+
+            return new QueryPlan(pattern,
+                                 literals
+                                 .stream()
+                                 .map(QueryPlan::fold)
+                                 .toArray(char[][]::new),
+                                 literalOnly);
+        }
+
+        /**
+         * Determine if the plan's regular expression matches the
+         * {@code title}.
+         *
+         * @param title The movie title
+         * @return True if there's a match, else false
+         */
+        public boolean matches(String title) {
+            for (var literal : literals)
+                if (indexOfIgnoreCase(title, literal) < 0)
+                    return false;
+
+            return literalOnly || pattern.matcher(title).find();
+        }
+
+        /**
+         * Find the first occurrence of the {@code literal} in the
+         * {@code title} with the same ASCII-only case folding as
+         * {@link Pattern#CASE_INSENSITIVE}.
+         *
+         * @param title The movie title
+         * @param literal The folded literal
+         * @return The index of the first occurrence, or -1 if none
+         */
+        static int indexOfIgnoreCase(String title, char[] literal) {
+            int last = title.length() - literal.length;
+
+            outer:
+            for (int i = 0; i <= last; i++) {
+                for (int j = 0; j < literal.length; j++)
+                    if (fold(title.charAt(i + j)) != literal[j])
+                        continue outer;
+                return i;
+            }
+
+            return -1;
+        }
+
+        /**
+         * Add the literal runs that every match of the {@code regex}
+         * must contain to {@code literals}.  This is conservative:
+         * anything it doesn't fully understand (alternation, groups,
+         * classes, and most escapes) simply ends the current run.
+         *
+         * @param regex The regular expression
+         * @param literals The {@link List} of literals to add to
+         * @return True if the {@code regex} is a single literal
+         */
+        static boolean requiredLiterals(String regex,
+                                        List<String> literals) {
+            // Top-level alternation means no single literal is
+            // required, and quoting, numeric escapes, and inline
+            // flags are rare enough not to bother with.
+            if (hasTopLevelAlternation(regex)
+                || UNSUPPORTED.matcher(regex).find())
+                return false;
+
+            var run = new StringBuilder();
+            boolean literalOnly = true;
+
+            for (int i = 0; i < regex.length(); i++) {
+                char c = regex.charAt(i);
+
+                if (c == '\\' && i + 1 < regex.length()
+                    && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    // An escaped punctuation character is literal.
+                    run.append(regex.charAt(++i));
+                    continue;
+                }
+
+                if ("\\^$.|?*+()[]{}".indexOf(c) < 0) {
+                    run.append(c);
+                    continue;
+                }
+
+                literalOnly = false;
+
+                // A quantifier that may repeat zero times makes the
+                // previous character optional.
+                if ((c == '?' || c == '*' || c == '{')
+                    && !run.isEmpty())
+                    run.setLength(run.length() - 1);
+
+                flush(run, literals);
+                i = skip(regex, i);
+            }
+
+            flush(run, literals);
+            return literalOnly && literals.size() == 1;
+        }
+
+        /**
+         * Skip over the construct starting at {@code i}.
+         *
+         * @param regex The regular expression
+         * @param i The index of a meta-character
+         * @return The index of the last character of the construct
+         */
+        private static int skip(String regex, int i) {
+            char c = regex.charAt(i);
+
+            if (c == '\\')
+                return i + 1;
+            if (c == '{') {
+                int end = regex.indexOf('}', i);
+                return end < 0 ? i : end;
+            }
+            if (c == '[')
+                return skipClass(regex, i);
+            if (c == '(') {
+                int depth = 0;
+                for (; i < regex.length(); i++) {
+                    c = regex.charAt(i);
+                    if (c == '\\')
+                        i++;
+                    else if (c == '[')
+                        i = skipClass(regex, i);
+                    else if (c == '(')
+                        depth++;
+                    else if (c == ')' && --depth == 0)
+                        return i;
+                }
+            }
+            return i;
+        }
+
+        /**
+         * Skip over the character class starting at {@code i}.
+         *
+         * @param regex The regular expression
+         * @param i The index of the opening '['
+         * @return The index of the matching ']'
+         */
+        private static int skipClass(String regex, int i) {
+            int depth = 0;
+            for (; i < regex.length(); i++) {
+                char c = regex.charAt(i);
+                if (c == '\\')
+                    i++;
+                else if (c == '[') {
+                    depth++;
+                    // A ']' right after the '[' (or '[^') is literal.
+                    if (i + 1 < regex.length() && regex.charAt(i + 1) == '^')
+                        i++;
+                    if (i + 1 < regex.length() && regex.charAt(i + 1) == ']')
+                        i++;
+                } else if (c == ']' && --depth == 0)
+                    return i;
+            }
+            return i;
+        }
+
+        /**
+         * @param regex The regular expression
+         * @return True if the {@code regex} has a '|' outside any
+         *         group or character class
+         */
+        private static boolean hasTopLevelAlternation(String regex) {
+            for (int i = 0; i < regex.length(); i++) {
+                char c = regex.charAt(i);
+                if (c == '\\')
+                    i++;
+                else if (c == '[' || c == '(')
+                    i = skip(regex, i);
+                else if (c == '|')
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * Add a non-empty {@code run} to the {@code literals} and
+         * reset it.
+         */
+        private static void flush(StringBuilder run,
+                                  List<String> literals) {
+            if (!run.isEmpty())
+                literals.add(run.toString());
+            run.setLength(0);
+        }
+
+        /**
+         * @param s A literal
+         * @return The literal with each ASCII letter folded to lower
+         *         case
+         */
+        private static char[] fold(String s) {
+            var chars = s.toCharArray();
+            for (int i = 0; i < chars.length; i++)
+                chars[i] = fold(chars[i]);
+            return chars;
+        }
+
+        /**
+         * @param c A character
+         * @return {@code c} folded to lower case if it's an ASCII
+         *         letter, else {@code c}
+         */
+        private static char fold(char c) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package edu.vandy.recommender.moviesex.server
+
+import edu.vandy.recommender.common.model.Movie
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import kotlin.random.Random
+
+/**
+ * Checks that [MoviesService.searchLiterals] returns the same movies
+ * in the same order as the regular expression search.
+ */
+class LiteralSearchTest : AssignmentTests() {
+    private val random = Random(42)
+
+    private val words = listOf("The", "Lord", "of", "the", "Rings", "Star", "Wars", "Mock", "Bird", "Return", "Night")
+
+    private val service = MoviesService().apply {
+        mMovies = (1..4801).map { i ->
+            Movie((1..random.nextInt(1, 5)).joinToString(" ") { words.random(random) } + " $i", listOf())
+        }
+        mQueryPlans = QueryPlanCache(256)
+        mChunkSize = 256
+    }
+
+    @Test
+    fun `literal search matches the regular expression search`() {
+        listOf(
+            listOf("lord"),
+            listOf("STAR WARS", "night 1", "return of"),
+            listOf("mock", "bird", "zzz")
+        ).forEach { queries ->
+            val expected = service.searchPartitioned(
+                queries.map { service.mQueryPlans.plan(it).pattern() }
+            )
+            assertThat(expected).isNotEmpty
+
+            assertThat(service.searchLiterals(queries))
+                .describedAs("queries $queries")
+                .isEqualTo(expected)
+        }
+    }
+
+    @Test
+    fun `search uses the literal matcher when it's enabled`() {
+        service.mLiteralMatcher = true
+        val queries = listOf("star wars", "lord")
+
+        assertThat(service.search(queries))
+            .isEqualTo(service.searchPartitioned(
+                queries.map { service.mQueryPlans.plan(it).pattern() }
+            ))
+    }
+}
@@ -0,0 +1,111 @@
+package edu.vandy.recommender.moviesex.server
+
+import edu.vandy.recommender.common.model.Movie
+import jdk.incubator.concurrent.StructuredTaskScope
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.util.concurrent.ExecutionException
+import kotlin.random.Random
+import kotlin.system.measureNanoTime
+
+/**
+ * Checks that [MoviesService.searchPartitioned] returns the same
+ * movies in the same order as a sequential scan and as forking one
+ * subtask per movie, and prints how long each mode takes.
+ */
+class PartitionedSearchTest : AssignmentTests(timeoutSeconds = 120) {
+    private val random = Random(42)
+
+    private val words = listOf("The", "Lord", "of", "the", "Rings", "Star", "Wars", "Mock", "Bird", "Return", "Night")
+
+    private val service = MoviesService().apply {
+        mMovies = (1..4801).map { i ->
+            Movie((1..random.nextInt(1, 5)).joinToString(" ") { words.random(random) } + " $i", listOf())
+        }
+        mQueryPlans = QueryPlanCache(256)
+    }
+
+    private val patterns = listOf("lord", "star wars", "mock.*bird", "night 1", "return of")
+        .map { service.mQueryPlans.plan(it).pattern() }
+
+    @Test
+    fun `partitioned search matches a sequential scan`() {
+        val expected = service.mMovies.filter { movie ->
+            patterns.any { it.matcher(movie.id).find() }
+        }
+        assertThat(expected).isNotEmpty
+
+        listOf(1, 64, 256, 4801, 10_000).forEach { chunkSize ->
+            service.mChunkSize = chunkSize
+            assertThat(service.searchPartitioned(patterns))
+                .describedAs("chunk size $chunkSize")
+                .isEqualTo(expected)
+        }
+    }
+
+    @Test
+    fun `partitioned search of no movies is empty`() {
+        service.mMovies = listOf()
+        service.mChunkSize = 256
+        assertThat(service.searchPartitioned(patterns)).isEmpty()
+    }
+
+    @Test
+    fun `per-movie search matches partitioned search`() {
+        service.mChunkSize = 256
+        assertThat(searchPerMovie()).isEqualTo(service.searchPartitioned(patterns))
+    }
+
+    @Test
+    fun `benchmark partitioned search against per-movie search`() {
+        val perMovie = time { searchPerMovie() }
+        println("per-movie forking: %.2f ms".format(perMovie))
+
+        listOf(64, 256, 1024).forEach { chunkSize ->
+            service.mChunkSize = chunkSize
+            val partitioned = time { service.searchPartitioned(patterns) }
+            println("chunk size %d: %.2f ms (%.1fx)".format(chunkSize, partitioned, perMovie / partitioned))
+        }
+    }
+
+    /**
+     * @return The mean milliseconds per run of [block] after warming
+     *         it up
+     */
+    private fun time(block: () -> List<Movie>): Double {
+        repeat(5) { block() }
+        val runs = 20
+        return measureNanoTime { repeat(runs) { block() } } / runs / 1e6
+    }
+
+    /**
+     * Search the way the per-movie solution does: one subtask per
+     * movie, each of which forks one subtask per pattern in a
+     * [StructuredTaskScope.ShutdownOnSuccess].
+     */
+    private fun searchPerMovie(): List<Movie> =
+        StructuredTaskScope.ShutdownOnFailure().use { scope ->
+            val results = service.mMovies.map { movie ->
+                scope.fork<Movie?> { findMatch(movie) }
+            }
+            scope.join()
+            scope.throwIfFailed()
+            results.mapNotNull { it.resultNow() }
+        }
+
+    private fun findMatch(movie: Movie): Movie? =
+        StructuredTaskScope.ShutdownOnSuccess<Movie>().use { scope ->
+            patterns.forEach { pattern ->
+                scope.fork {
+                    if (service.match(pattern, movie)) movie else throw NoSuchElementException()
+                }
+            }
+            scope.join()
+            try {
+                scope.result()
+            } catch (e: ExecutionException) {
+                null
+            }
+        }
+}
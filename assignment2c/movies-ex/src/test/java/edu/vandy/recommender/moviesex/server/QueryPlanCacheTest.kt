@@ -0,0 +1,68 @@
+package edu.vandy.recommender.moviesex.server
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.util.regex.Pattern
+
+/**
+ * Checks that [QueryPlanCache] plans agree with a plain
+ * case-insensitive [Pattern] and that the cache stays bounded.
+ */
+class QueryPlanCacheTest : AssignmentTests() {
+    private val titles = listOf(
+        "Star Wars", "STAR TREK", "The Lord of the Rings", "Lord. Of War",
+        "Mockingbird", "a]b", "Amélie", "AMÉLIE", "1984", ""
+    )
+
+    @Test
+    fun `plans match like case-insensitive patterns`() {
+        val cache = QueryPlanCache(100)
+        listOf(
+            "star", "star wars", "lord\\. of", "l.rd", "(star|lord)", "star|lord",
+            "the lord.*rings", "^star", "wars$", "mock(ing)?bird", "[]a]b",
+            "amélie", "\\d+", "s?tar", "o+f", "\\Qlord.\\E", "(?-i)STAR"
+        ).forEach { query ->
+            val pattern = cache.plan(query).pattern()
+            titles.forEach { title ->
+                assertThat(cache.matches(pattern, title))
+                    .describedAs("$query / $title")
+                    .isEqualTo(Pattern.compile(query, Pattern.CASE_INSENSITIVE).matcher(title).find())
+            }
+        }
+    }
+
+    @Test
+    fun `plans compile like makePattern`() {
+        // MoviesServiceTest expects makePattern() to compile the raw
+        // query case-insensitively.
+        val pattern = QueryPlanCache(1).plan("l.rd").pattern()
+        assertThat(pattern.pattern()).isEqualTo("l.rd")
+        assertThat(pattern.flags()).isEqualTo(Pattern.CASE_INSENSITIVE)
+    }
+
+    @Test
+    fun `literal queries skip the regular expression`() {
+        val plan = QueryPlanCache.QueryPlan.compile("lord\\. of")
+        assertThat(plan.literalOnly()).isTrue
+        assertThat(plan.literals().map { String(it) }).containsExactly("lord. of")
+
+        val regex = QueryPlanCache.QueryPlan.compile("the lord.*rings")
+        assertThat(regex.literalOnly()).isFalse
+        assertThat(regex.literals().map { String(it) }).containsExactly("the lord", "rings")
+    }
+
+    @Test
+    fun `cache reuses plans and evicts the least recently used`() {
+        val cache = QueryPlanCache(2)
+        val star = cache.plan("star")
+        cache.plan("lord")
+        assertThat(cache.plan("star")).isSameAs(star)
+        cache.plan("wars")
+
+        assertThat(cache.size()).isEqualTo(2)
+        assertThat(cache.plan("star")).isSameAs(star)
+        assertThat(cache.plan("lord")).isNotSameAs(star)
+        assertThat(cache.matches(Pattern.compile("star"), "a star")).isTrue
+    }
+}
@@ -6,6 +6,7 @@ import retrofit2.http.Body;
 import retrofit2.http.GET;
 import retrofit2.http.POST;
 import retrofit2.http.Path;
+import retrofit2.http.Query;
 
 import java.util.List;
 import java.util.Map;
@@ -193,4 +194,74 @@ public interface DatabaseAPI {
      *         failure
      */
     // TODO -- you fill in here.
+
+    /**
+     * Get a {@link List} containing the titles of all movies, which
+     * is much smaller than the {@link Movie} objects.
+     *
+     * @param routename The microservice that performs the request,
+     *                  which is dynamically inserted into the URI via
+     *                  the {@code Path} annotation
+     * @return A {@link Call} object that yields a {@link List}
+     *         containing all the movie titles on success and an error
+     *         message on failure
+     */
+    @GET(ROUTE_NAME + "/" + GET_ALL_TITLES)
+    Call<List<String>> getTitles(@Path("routename") String routename);
+
+    /**
+     * Search for the titles of movies containing the given {@code
+     * query}.
+     *
+     * @param routename The microservice that performs the request,
+     *                  which is dynamically inserted into the URI via
+     *                  the {@code Path} annotation
+     * @param query The {@link String} to search for
+     * @return A {@link Call} object that yields a {@link List}
+     *         containing the matching movie titles on success and an
+     *         error message on failure
+     */
+    @GET(ROUTE_NAME + "/" + GET_SEARCH_TITLES + "/" + SEARCH_QUERY)
+    Call<List<String>> searchTitles(@Path("routename") String routename,
+                                    @Path("query") String query);
+
+    /**
+     * Search for the titles of movies containing any given {@link
+     * List} of {@code queries}.
+     *
+     * @param routename The microservice that performs the request,
+     *                  which is dynamically inserted into the URI via
+     *                  the {@code Path} annotation
+     * @param queries The {@link List} of {@code queries} to search
+     *                for, which is passed in the body of the {@code
+     *                POST} request
+     * @return A {@link Call} object that yields a {@link List}
+     *         containing the movie titles that match any {@code
+     *         queries} on success and an error message on failure
+     */
+    @POST(ROUTE_NAME + "/" + POST_SEARCHES_TITLES)
+    Call<List<String>> searchTitles(@Path("routename") String routename,
+                                    @Body List<String> queries);
+
+    /**
+     * Search for movies containing any (or all) given {@link List} of
+     * {@code queries} using a single SQL statement.
+     *
+     * @param routename The microservice that performs the request,
+     *                  which is dynamically inserted into the URI via
+     *                  the {@code Path} annotation
+     * @param queries The {@link List} of {@code queries} to search
+     *                for, which is passed in the body of the {@code
+     *                POST} request
+     * @param matchAll True if a title must contain all the queries,
+     *                 else false if it must contain at least one
+     * @return A {@link Call} object that yields a {@link List}
+     *         containing the matching {@link Movie} objects sorted by
+     *         title (ignoring case) on success and an error message
+     *         on failure
+     */
+    @POST(ROUTE_NAME + "/" + POST_SEARCHES_BATCHED)
+    Call<List<Movie>> searchBatched(@Path("routename") String routename,
+                                    @Body List<String> queries,
+                                    @Query("matchAll") boolean matchAll);
 }
@@ -215,6 +215,70 @@ public class DatabaseSyncProxy {
 
         return null;
     }
-}
 
+    /**
+     * Get a {@link List} containing the titles of all movies on
+     * success or throws {@link IOException} on failure.
+     *
+     * @param route The microservice that performs the request
+     * @return A {@link List} containing all the movie titles on
+     *         success
+     */
+    public List<String> getTitles(String route) {
+        return CallUtils
+            .executeCall(mDatabaseAPI.getTitles(route));
+    }
 
+    /**
+     * Search for the titles of movies in the database containing the
+     * given query {@link String} on success or throws {@link
+     * IOException} on failure.
+     *
+     * @param route The microservice that performs the request
+     * @param query The {@link String} to search for
+     * @return A {@link List} containing the matching movie titles on
+     *         success
+     */
+    public List<String> searchTitles(String route,
+                                     String query) {
+        return CallUtils
+            .executeCall(mDatabaseAPI.searchTitles(route, query));
+    }
+
+    /**
+     * Search for the titles of movies in the database containing any
+     * given {@link List} of queries on success or throws {@link
+     * IOException} on failure.
+     *
+     * @param route The microservice that performs the request
+     * @param queries The {@link List} queries to search for
+     * @return A {@link List} containing the movie titles that match
+     *         any {@code queries} on success
+     */
+    public List<String> searchTitles(String route,
+                                     List<String> queries) {
+        return CallUtils
+            .executeCall(mDatabaseAPI.searchTitles(route, queries));
+    }
+
+    /**
+     * Search for movies in the database containing any (or all)
+     * given {@link List} of queries using a single SQL statement on
+     * success or throws {@link IOException} on failure.
+     *
+     * @param route The microservice that performs the request
+     * @param queries The {@link List} queries to search for
+     * @param matchAll True if a title must contain all the queries,
+     *                 else false if it must contain at least one
+     * @return A {@link List} containing the matching {@link Movie}
+     *         objects sorted by title (ignoring case) on success
+     */
+    public List<Movie> searchBatched(String route,
+                                     List<String> queries,
+                                     boolean matchAll) {
+        return CallUtils
+            .executeCall(mDatabaseAPI.searchBatched(route,
+                                                    queries,
+                                                    matchAll));
+    }
+}
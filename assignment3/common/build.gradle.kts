@@ -1,9 +1,14 @@
+plugins {
+    `java-library`
+}
+
 tasks {
     bootJar {enabled = false}
     jar {enabled = true}
 }
 
 dependencies {
+    api(project(":tracing"))
     implementation("org.springframework.boot:spring-boot-starter-web")
     implementation("jakarta.persistence:jakarta.persistence-api:3.1.0")
     implementation("org.springframework.boot:spring-boot-starter-webflux")
@@ -27,10 +27,17 @@ public class Constants {
          */
         public static final String GET_ALL_MOVIES = "allMovies";
         public static final String GET_MOVIES_MAP = "movieMap";
+        public static final String GET_MOVIES_STREAM = "movieStream";
         public static final String GET_SEARCH = "search";
         public static final String POST_SEARCHES = "searches";
         public static final String GET_SEARCHES = "searches";
         public static final String POST_SEARCHES_EX = "searchesEx";
+        public static final String POST_SEARCHES_BATCHED = "searchesBatched";
+        public static final String GET_ALL_TITLES = "allTitles";
+        public static final String GET_SEARCH_TITLES = "searchTitles";
+        public static final String POST_SEARCHES_TITLES = "searchesTitles";
+        public static final String GET_SIMILAR = "similar";
+        public static final String POST_SIMILAR = "similar";
         public static final String SEARCH_QUERY = "{query}";
         public static final String PATH_QUERY = "query";
 
@@ -39,13 +46,20 @@ public class Constants {
          */
         public static final String GET_RECOMMENDATIONS = "getRecommendations";
         public static final String POST_RECOMMENDATIONS = "postRecommendations";
+        public static final String GET_APPROXIMATE_RECOMMENDATIONS = "getApproximateRecommendations";
+        public static final String GET_CACHE_STATS = "cacheStats";
 
         /*
         * Timer microservice endpoints.
          */
         public static final String POST_TIMING = "postTiming";
+        public static final String POST_TIMINGS = "postTimings";
         public static final String CLEAR_TIMINGS = "clearTimings";
         public static final String GET_TIMINGS = "getTimings";
+        public static final String GET_METRICS = "metrics";
+        public static final String POST_SPANS = "postSpans";
+        public static final String GET_TRACE = "trace";
+        public static final String GET_CRITICAL_PATH = "criticalPath";
     }
 
     /**
@@ -69,5 +83,9 @@ public class Constants {
         public static final String MAX_COUNT_PARAM = "maxCount";
         public static final String MOVIES_CACHE = "moviesCache";
         public static final String ROUTE_NAME = "{routename}";
+        public static final String TRACE_ID_PARAM = "traceId";
+        public static final String SERVICE_PARAM = "service";
+        public static final String DROPPED_ON_OVERFLOW_PARAM = "droppedOnOverflow";
+        public static final String DROPPED_ON_ERROR_PARAM = "droppedOnError";
     }
 }
@@ -0,0 +1,325 @@
+package edu.vandy.recommender.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * This class parses movie datasets in the {@code title;[ v1 v2 ...
+ * ]} CSV format with a hand-rolled scanner that visits each byte
+ * once, doesn't use regular expressions, and parses each cosine value
+ * directly into a primitive {@code double[]} buffer.  Large datasets
+ * can be split into newline-aligned byte ranges that are parsed in
+ * parallel.
+ *
+ * The first line of a dataset describes its format and is skipped.
+ * If a title occurs more than once the first occurrence wins, which
+ * matches the behavior of the original stream-based readers.
+ */
+public final class MovieDatasetParser {
+    /**
+     * Separator between the movie title and the cosine vector.
+     */
+    private static final byte SEPARATOR = ';';
+
+    /**
+     * The character that terminates a cosine vector.
+     */
+    private static final byte VECTOR_END = ']';
+
+    /**
+     * The largest mantissa that can be represented exactly by a
+     * {@code double}.
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * Powers of ten that can be represented exactly by a {@code
+     * double}, which enables correctly rounded fast-path conversion.
+     */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+        1e21, 1e22
+    };
+
+    /**
+     * A Java utility class should have a private constructor.
+     */
+    private MovieDatasetParser() {}
+
+    /**
+     * Parse the dataset contained in the {@code inputStream}.
+     *
+     * @param inputStream The {@link InputStream} containing the
+     *                    dataset
+     * @return A {@link Map} that associates each movie title with the
+     *         cosine vector for the movie
+     */
+    public static Map<String, List<Double>> parse(InputStream inputStream) {
+        try {
+            return parse(inputStream.readAllBytes(),
+                         Runtime.getRuntime().availableProcessors());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parse the dataset in the file at {@code path}.
+     *
+     * @param path The {@link Path} of the dataset
+     * @return A {@link Map} that associates each movie title with the
+     *         cosine vector for the movie
+     */
+    public static Map<String, List<Double>> parse(Path path) {
+        try {
+            return parse(Files.readAllBytes(path),
+                         Runtime.getRuntime().availableProcessors());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parse the UTF-8 encoded dataset in {@code data} by splitting it
+     * into up to {@code parallelism} newline-aligned byte ranges that
+     * are parsed in parallel.
+     *
+     * @param data The UTF-8 encoded dataset
+     * @param parallelism The max number of byte ranges
+     * @return A {@link Map} that associates each movie title with the
+     *         cosine vector for the movie
+     */
+    public static Map<String, List<Double>> parse(byte[] data,
+                                                  int parallelism) {
+        // Skip the first line, which gives the format of the file.
+        int start = nextLine(data, 0);
+        int[] bounds = split(data, start, Math.max(parallelism, 1));
+
+        var partitions = IntStream
+            // Visit each byte range.
+            .range(0, bounds.length - 1)
+
+            // Parse the byte ranges in parallel.
+            .parallel()
+
+            // Parse each byte range into its own Map.
+            .mapToObj(i -> parseRange(data, bounds[i], bounds[i + 1]))
+
+            // Collect the Maps in file order.
+            .toList();
+
+        var map = new HashMap<String, List<Double>>
+            (partitions.stream().mapToInt(Map::size).sum() * 4 / 3 + 1);
+
+        // Merge the Maps so the first occurrence of a title wins.
+        for (var partition : partitions)
+            partition.forEach(map::putIfAbsent);
+
+        return map;
+    }
+
+    /**
+     * Split {@code data} from {@code start} to its end into {@code
+     * parts} byte ranges whose boundaries fall just after a newline.
+     *
+     * @param data The dataset
+     * @param start The index of the first byte to split
+     * @param parts The desired number of byte ranges
+     * @return The boundaries of the byte ranges, which start with
+     *         {@code start} and end with {@code data.length}
+     */
+    private static int[] split(byte[] data, int start, int parts) {
+        var bounds = new ArrayList<Integer>(parts + 1);
+        bounds.add(start);
+
+        int chunk = Math.max((data.length - start) / parts, 1);
+        for (int i = 1; i < parts; i++) {
+            int bound = nextLine(data,
+                                 Math.max(start + i * chunk,
+                                          bounds.get(bounds.size() - 1)));
+            if (bound < data.length
+                && bound > bounds.get(bounds.size() - 1))
+                bounds.add(bound);
+        }
+
+        bounds.add(data.length);
+        return bounds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Parse all lines in the byte range [{@code start}, {@code end})
+     * of {@code data}.
+     *
+     * @param data The dataset
+     * @param start The index of the first byte of a line
+     * @param end The index just past the last byte of a line
+     * @return A {@link Map} that associates each movie title in the
+     *         range with the cosine vector for the movie
+     */
+    private static Map<String, List<Double>> parseRange(byte[] data,
+                                                        int start,
+                                                        int end) {
+        var map = new HashMap<String, List<Double>>();
+        var buffer = new double[64];
+
+        for (int line = start; line < end; ) {
+            int lineEnd = line;
+            while (lineEnd < end && data[lineEnd] != '\n')
+                lineEnd++;
+
+            // Find the separator between the title and the vector.
+            int separator = line;
+            while (separator < lineEnd && data[separator] != SEPARATOR)
+                separator++;
+
+            if (separator < lineEnd) {
+                var title = new String(data,
+                                       line,
+                                       separator - line,
+                                       StandardCharsets.UTF_8);
+
+                // Parse the vector into the reusable primitive buffer.
+                int length = 0;
+                int pos = separator + 1;
+                while (pos < lineEnd && data[pos] != VECTOR_END) {
+                    if (!isNumberChar(data[pos])) {
+                        pos++;
+                        continue;
+                    }
+
+                    int tokenEnd = pos;
+                    while (tokenEnd < lineEnd && isNumberChar(data[tokenEnd]))
+                        tokenEnd++;
+
+                    if (length == buffer.length)
+                        buffer = Arrays.copyOf(buffer, length * 2);
+                    buffer[length++] = parseDouble(data, pos, tokenEnd);
+                    pos = tokenEnd;
+                }
+
+                map.putIfAbsent(title,
+                                VectorCodec.asList(Arrays.copyOf(buffer, length)));
+            }
+
+            line = lineEnd + 1;
+        }
+
+        return map;
+    }
+
+    /**
+     * Parse the ASCII decimal number in the byte range [{@code
+     * start}, {@code end}) of {@code data}.  Numbers with at most 18
+     * significant digits and a small decimal exponent are converted
+     * directly, which is exact; all others fall back to {@link
+     * Double#parseDouble}.
+     *
+     * @param data The dataset
+     * @param start The index of the first byte of the number
+     * @param end The index just past the last byte of the number
+     * @return The parsed {@code double} value
+     */
+    static double parseDouble(byte[] data, int start, int end) {
+        int pos = start;
+        boolean negative = false;
+
+        if (pos < end && (data[pos] == '-' || data[pos] == '+'))
+            negative = data[pos++] == '-';
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean fraction = false;
+        boolean exact = true;
+
+        // Accumulate the significant digits and the decimal point.
+        for (; pos < end; pos++) {
+            byte c = data[pos];
+            if (c >= '0' && c <= '9') {
+                if (mantissa == 0 && c == '0') {
+                    // Leading zeros aren't significant.
+                    if (fraction)
+                        exponent--;
+                } else if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digits++;
+                    if (fraction)
+                        exponent--;
+                } else {
+                    exact = false;
+                    if (!fraction)
+                        exponent++;
+                }
+            } else if (c == '.' && !fraction)
+                fraction = true;
+            else
+                break;
+        }
+
+        // Parse an optional exponent.
+        if (pos < end && (data[pos] == 'e' || data[pos] == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && (data[pos] == '-' || data[pos] == '+'))
+                negativeExponent = data[pos++] == '-';
+
+            int value = 0;
+            for (; pos < end && data[pos] >= '0' && data[pos] <= '9'; pos++)
+                value = Math.min(value * 10 + (data[pos] - '0'), 10_000);
+
+            exponent += negativeExponent ? -value : value;
+        }
+
+        if (pos != end
+            || !exact
+            || mantissa >= MAX_EXACT_MANTISSA
+            || exponent < -22
+            || exponent > 22)
+            return Double.parseDouble(new String(data,
+                                                 start,
+                                                 end - start,
+                                                 StandardCharsets.ISO_8859_1));
+
+        double value = exponent >= 0
+            ? mantissa * POWERS_OF_TEN[exponent]
+            : mantissa / POWERS_OF_TEN[-exponent];
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * @param c A byte of the dataset
+     * @return True if {@code c} can be part of a decimal number
+     */
+    private static boolean isNumberChar(byte c) {
+        return (c >= '0' && c <= '9')
+            || c == '.'
+            || c == '-'
+            || c == '+'
+            || c == 'e'
+            || c == 'E';
+    }
+
+    /**
+     * @param data The dataset
+     * @param pos An index into {@code data}
+     * @return The index just past the first newline at or after
+     *         {@code pos}, or {@code data.length} if there is none
+     */
+    private static int nextLine(byte[] data, int pos) {
+        while (pos < data.length && data[pos++] != '\n')
+            ;
+        return pos;
+    }
+}
@@ -0,0 +1,455 @@
+package edu.vandy.recommender.common;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.TreeMap;
+
+/**
+ * This class reads and writes a compact binary movie vector file,
+ * which replaces parsing {@code dataset.csv} on every startup.  The
+ * file is memory-mapped via {@link FileChannel#map}, so the vectors
+ * are read straight from the OS page cache without any parsing.
+ *
+ * All values are little-endian and the file layout is:
+ * <pre>
+ *   header  : magic "MVEC" (int), version (int),
+ *             bytes per component 4 or 8 (int),
+ *             movie count (int), dimension (int),
+ *             matrix offset (long)
+ *   titles  : for each movie, UTF-8 length (int) + UTF-8 bytes
+ *   padding : zero bytes up to the 8-byte aligned matrix offset
+ *   matrix  : count * dimension float32 or float64 values, row-major
+ * </pre>
+ *
+ * Movies are stored sorted by title.  Running this class's {@link
+ * #main} method converts an existing CSV dataset into this format.
+ */
+public class MovieVectorFile {
+    /**
+     * The magic number at the start of every file ("MVEC").
+     */
+    private static final int MAGIC = 0x4345564D;
+
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The size of the fixed header in bytes.
+     */
+    private static final int HEADER_SIZE = 28;
+
+    /**
+     * The movie titles, indexed by row.
+     */
+    private final String[] mTitles;
+
+    /**
+     * The number of components in each vector.
+     */
+    private final int mDimension;
+
+    /**
+     * The number of bytes per component (4 or 8).
+     */
+    private final int mComponentSize;
+
+    /**
+     * The memory-mapped vector matrix.
+     */
+    private final ByteBuffer mMatrix;
+
+    /**
+     * Construct a {@link MovieVectorFile} from its parsed parts.
+     *
+     * @param titles The movie titles, indexed by row
+     * @param dimension The number of components in each vector
+     * @param componentSize The number of bytes per component
+     * @param matrix The memory-mapped vector matrix
+     */
+    private MovieVectorFile(String[] titles,
+                            int dimension,
+                            int componentSize,
+                            ByteBuffer matrix) {
+        mTitles = titles;
+        mDimension = dimension;
+        mComponentSize = componentSize;
+        mMatrix = matrix;
+    }
+
+    /**
+     * Memory-map the binary movie vector file at {@code path}.  Only
+     * the title table is decoded eagerly; the vectors are accessed
+     * directly from the mapping.  The header is validated against the
+     * size of the file, so a truncated or corrupt file is rejected
+     * here rather than failing later on first access.
+     *
+     * @param path The {@link Path} of the binary file
+     * @return A {@link MovieVectorFile} backed by the mapping
+     * @throws IllegalArgumentException If the file isn't a valid
+     *         movie vector file
+     */
+    public static MovieVectorFile open(Path path) {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE)
+                throw invalid(path, "it's shorter than the header");
+
+            // A single mapping is indexed by int, so every offset
+            // below fits in an int once the file size does.
+            if (fileSize > Integer.MAX_VALUE)
+                throw invalid(path,
+                              "its " + fileSize + " bytes exceed the 2GB"
+                              + " limit of a single mapping");
+
+            MappedByteBuffer mapping = channel
+                .map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            mapping.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (mapping.getInt() != MAGIC || mapping.getInt() != VERSION)
+                throw invalid(path,
+                              "it's not a version " + VERSION + " file");
+
+            int componentSize = mapping.getInt();
+            int count = mapping.getInt();
+            int dimension = mapping.getInt();
+            long matrixOffset = mapping.getLong();
+
+            if (componentSize != Float.BYTES
+                && componentSize != Double.BYTES)
+                throw invalid(path,
+                              "of unsupported component size "
+                              + componentSize);
+
+            if (count < 0 || dimension < 0)
+                throw invalid(path,
+                              "of negative count " + count
+                              + " or dimension " + dimension);
+
+            // Compute the size of the matrix in long arithmetic so a
+            // corrupt header can't overflow it.
+            long matrixSize = (long) count * dimension * componentSize;
+
+            if (matrixOffset < HEADER_SIZE
+                || (matrixOffset & 7) != 0
+                || matrixOffset > fileSize
+                || matrixSize > fileSize - matrixOffset)
+                throw invalid(path,
+                              "its matrix of " + matrixSize
+                              + " bytes at offset " + matrixOffset
+                              + " doesn't fit in " + fileSize
+                              + " bytes");
+
+            // Decode the title table, which must end before the
+            // matrix starts.
+            mapping.limit((int) matrixOffset);
+            var titles = new String[count];
+            for (int row = 0; row < count; row++) {
+                int length = mapping.getInt();
+                if (length < 0 || length > mapping.remaining())
+                    throw invalid(path,
+                                  "title " + row + " has invalid length "
+                                  + length);
+
+                var bytes = new byte[length];
+                mapping.get(bytes);
+                titles[row] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            mapping.limit((int) fileSize);
+
+            // Slice out the vector matrix without copying it.
+            var matrix = mapping
+                .slice((int) matrixOffset, (int) matrixSize)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+            return new MovieVectorFile(titles,
+                                       dimension,
+                                       componentSize,
+                                       matrix);
+        } catch (BufferUnderflowException e) {
+            throw invalid(path, "its title table is truncated");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param path The {@link Path} of the file
+     * @param reason Why the file is invalid
+     * @return An {@link IllegalArgumentException} describing why the
+     *         file isn't a valid movie vector file
+     */
+    private static IllegalArgumentException invalid(Path path,
+                                                     String reason) {
+        return new IllegalArgumentException
+            (path + " is not a valid movie vector file because " + reason);
+    }
+
+    /**
+     * Write the contents of the {@code movieMap} to a binary movie
+     * vector file at {@code path}.
+     *
+     * @param movieMap A {@link Map} that associates each movie title
+     *                 with its cosine vector
+     * @param path The {@link Path} of the binary file to write
+     * @param singlePrecision True to store float32 components, else
+     *                        false to store float64 components
+     */
+    public static void write(Map<String, List<Double>> movieMap,
+                             Path path,
+                             boolean singlePrecision) {
+        // Sort the movies by title.
+        var sorted = new TreeMap<>(movieMap);
+        int componentSize = singlePrecision ? Float.BYTES : Double.BYTES;
+        int dimension = sorted.isEmpty()
+            ? 0
+            : sorted.firstEntry().getValue().size();
+
+        // Encode the titles and compute the aligned matrix offset.
+        var titleBytes = new ArrayList<byte[]>(sorted.size());
+        long titlesSize = 0;
+        for (var title : sorted.keySet()) {
+            var bytes = title.getBytes(StandardCharsets.UTF_8);
+            titleBytes.add(bytes);
+            titlesSize += Integer.BYTES + bytes.length;
+        }
+        long matrixOffset = (HEADER_SIZE + titlesSize + 7) & ~7L;
+        long fileSize = matrixOffset
+            + (long) sorted.size() * dimension * componentSize;
+
+        try (var channel = FileChannel.open(path,
+                                            StandardOpenOption.CREATE,
+                                            StandardOpenOption.READ,
+                                            StandardOpenOption.WRITE,
+                                            StandardOpenOption.TRUNCATE_EXISTING)) {
+            var buffer = channel
+                .map(FileChannel.MapMode.READ_WRITE, 0, fileSize)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+            // Write the header.
+            buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(componentSize)
+                .putInt(sorted.size())
+                .putInt(dimension)
+                .putLong(matrixOffset);
+
+            // Write the title table.
+            for (var bytes : titleBytes)
+                buffer.putInt(bytes.length).put(bytes);
+
+            // Write the vector matrix.
+            buffer.position((int) matrixOffset);
+            for (var entry : sorted.entrySet()) {
+                var vector = entry.getValue();
+                if (vector.size() != dimension)
+                    throw new IllegalArgumentException
+                        ("Movie \"" + entry.getKey()
+                         + "\" has dimension " + vector.size()
+                         + " instead of " + dimension);
+
+                for (var value : vector)
+                    if (singlePrecision)
+                        buffer.putFloat(value.floatValue());
+                    else
+                        buffer.putDouble(value);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The number of movies in the file
+     */
+    public int size() {
+        return mTitles.length;
+    }
+
+    /**
+     * @return The number of components in each vector
+     */
+    public int dimension() {
+        return mDimension;
+    }
+
+    /**
+     * @return True if components are stored as float32, else false
+     */
+    public boolean isSinglePrecision() {
+        return mComponentSize == Float.BYTES;
+    }
+
+    /**
+     * @param row The row of a movie
+     * @return The title of the movie at {@code row}
+     */
+    public String title(int row) {
+        return mTitles[row];
+    }
+
+    /**
+     * @return An unmodifiable {@link List} of all movie titles in
+     *         row order, i.e., sorted by title
+     */
+    public List<String> titles() {
+        return Collections.unmodifiableList(Arrays.asList(mTitles));
+    }
+
+    /**
+     * @return A copy of the movie titles in row order
+     */
+    public String[] titleArray() {
+        return mTitles.clone();
+    }
+
+    /**
+     * Read the {@code i}'th component of the vector at {@code row}
+     * directly from the mapping.
+     *
+     * @param row The row of a movie
+     * @param i The component index
+     * @return The component value
+     */
+    public double get(int row, int i) {
+        Objects.checkIndex(row, mTitles.length);
+        Objects.checkIndex(i, mDimension);
+
+        // The matrix fits in a single mapping, so the byte offset
+        // fits in an int once it's computed without overflowing.
+        int offset = (int) (((long) row * mDimension + i) * mComponentSize);
+        return isSinglePrecision()
+            ? mMatrix.getFloat(offset)
+            : mMatrix.getDouble(offset);
+    }
+
+    /**
+     * @param row The row of a movie
+     * @return An unmodifiable {@link List} view of the vector at
+     *         {@code row} whose components are read directly from
+     *         the mapping on each access
+     */
+    public List<Double> vector(int row) {
+        Objects.checkIndex(row, mTitles.length);
+
+        return new VectorView(row);
+    }
+
+    /**
+     * Bulk copy the entire row-major vector matrix from the mapping
+     * into a new {@code double[]}.
+     *
+     * @return A new array containing {@code size() * dimension()}
+     *         values in row-major order
+     */
+    public double[] readVectors() {
+        var vectors = new double[mTitles.length * mDimension];
+
+        if (isSinglePrecision()) {
+            var floats = mMatrix.duplicate()
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer();
+            for (int i = 0; i < vectors.length; i++)
+                vectors[i] = floats.get(i);
+        } else
+            mMatrix.duplicate()
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asDoubleBuffer()
+                .get(vectors);
+
+        return vectors;
+    }
+
+    /**
+     * Convert the contents of the file into the {@link Map}
+     * representation used by existing callers.  The vectors aren't
+     * copied; each one is a {@link #vector} view of the mapping.
+     *
+     * @return A {@link TreeMap} that associates each movie title with
+     *         its cosine vector
+     */
+    public TreeMap<String, List<Double>> toMap() {
+        var map = new TreeMap<String, List<Double>>();
+
+        for (int row = 0; row < mTitles.length; row++)
+            map.put(mTitles[row], vector(row));
+
+        return map;
+    }
+
+    /**
+     * A read-only {@link List} view of one vector of the mapping.
+     */
+    private class VectorView
+            extends AbstractList<Double>
+            implements RandomAccess {
+        /**
+         * The row of the vector.
+         */
+        private final int mRow;
+
+        /**
+         * @param row The row of the vector
+         */
+        VectorView(int row) {
+            mRow = row;
+        }
+
+        @Override
+        public Double get(int i) {
+            return MovieVectorFile.this.get(mRow, i);
+        }
+
+        @Override
+        public int size() {
+            return mDimension;
+        }
+    }
+
+    /**
+     * Convert a CSV movie dataset into a binary movie vector file.
+     *
+     * Usage: {@code MovieVectorFile <dataset.csv> <output.bin>
+     * [float|double]}
+     *
+     * @param args Command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: MovieVectorFile <dataset.csv>"
+                               + " <output.bin> [float|double]");
+            return;
+        }
+
+        boolean singlePrecision = args.length > 2
+            && args[2].equalsIgnoreCase("float");
+
+        var movieMap = MovieDatasetParser.parse(Path.of(args[0]));
+
+        write(movieMap, Path.of(args[1]), singlePrecision);
+
+        System.out.println("Converted "
+                           + movieMap.size()
+                           + " movies from "
+                           + args[0]
+                           + " to "
+                           + args[1]);
+    }
+}
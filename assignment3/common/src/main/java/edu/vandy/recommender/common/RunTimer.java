@@ -1,23 +1,83 @@
 package edu.vandy.recommender.common;
 
+import edu.vandy.recommender.utils.RingBuffer;
 import edu.vandy.recommender.utils.WebUtils;
+import jakarta.annotation.PreDestroy;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
 import static edu.vandy.recommender.common.Constants.EndPoint.GET_TIMINGS;
-import static edu.vandy.recommender.common.Constants.EndPoint.POST_TIMING;
+import static edu.vandy.recommender.common.Constants.EndPoint.POST_SPANS;
+import static edu.vandy.recommender.common.Constants.EndPoint.POST_TIMINGS;
 import static edu.vandy.recommender.common.Constants.*;
+import static edu.vandy.recommender.common.Constants.Params.DROPPED_ON_ERROR_PARAM;
+import static edu.vandy.recommender.common.Constants.Params.DROPPED_ON_OVERFLOW_PARAM;
+import static edu.vandy.recommender.common.Constants.Params.SERVICE_PARAM;
 import static edu.vandy.recommender.common.Constants.Service.TIMER;
 
 /**
  * This class provides asynchronous and synchronous computation of
  * method execution times.
+ *
+ * Stopped {@link Timer} objects aren't posted to the 'timer'
+ * microservice on the caller's thread.  Instead, they're added to a
+ * bounded lock-free {@link RingBuffer} and a background virtual
+ * thread posts them to the 'timer' microservice in batches, so
+ * timing a request doesn't add a network round trip to it.  If the
+ * buffer is full the {@link Timer} is dropped and counted rather
+ * than slowing down the request being timed.
+ *
+ * When the calling thread is handling a traced request (see {@link
+ * TraceContext}), each timed call is also recorded as a {@link Span}
+ * of the request's trace, and the spans are exported to the 'timer'
+ * microservice the same way as the timings.
+ *
+ * Each batch of timings also carries the number of timings and spans
+ * dropped so far, which the 'timer' microservice reports in its
+ * metrics.
+ *
+ * Flushes are serialized, so a caller that flushes (e.g., via {@link
+ * #getTimings}) never posts batches concurrently with the exporter.
+ * When the application shuts down, {@link #close} stops the exporter
+ * and posts whatever is still buffered.
  */
 public class RunTimer {
+    /**
+     * The default max number of buffered {@link Timer} objects.
+     */
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * The default max number of {@link Timer} objects per batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * The default max time a {@link Timer} waits to be exported.
+     */
+    public static final Duration DEFAULT_FLUSH_INTERVAL =
+        Duration.ofSeconds(1);
+
+    /**
+     * The default name of the microservice recorded in each {@link
+     * Span}.
+     */
+    public static final String DEFAULT_SERVICE = "unknown";
+
     /**
      * The {@link RestTemplate} used to communicate with
      * the {@code Timer} microservice.
@@ -25,10 +85,135 @@ public class RunTimer {
     private final RestTemplate mRestTemplate;
 
     /**
-     * The constructor initializes the {@link RestTemplate}.
+     * The stopped {@link Timer} objects waiting to be exported.
+     */
+    private final RingBuffer<Timer> mBuffer;
+
+    /**
+     * The ended {@link Span} objects waiting to be exported.
+     */
+    private final RingBuffer<Span> mSpans;
+
+    /**
+     * The name of the microservice recorded in each {@link Span}.
+     */
+    private final String mService;
+
+    /**
+     * The max number of {@link Timer} objects per batch.
+     */
+    private final int mBatchSize;
+
+    /**
+     * The max time a {@link Timer} waits to be exported.
+     */
+    private final Duration mFlushInterval;
+
+    /**
+     * True once the exporter thread has been started.
+     */
+    private final AtomicBoolean mExporterStarted = new AtomicBoolean();
+
+    /**
+     * The virtual thread that exports batches, or null until the
+     * first {@link Timer} is recorded.
+     */
+    private volatile Thread mExporter;
+
+    /**
+     * True once {@link #close} has been called, which ends the
+     * exporter's loop.
+     */
+    private volatile boolean mClosed;
+
+    /**
+     * Serializes flushes, so batches are posted one at a time and in
+     * the order they were buffered.  A {@link ReentrantLock} rather
+     * than {@code synchronized} keeps a virtual thread that blocks on
+     * a post from pinning its carrier thread.
+     */
+    private final Lock mFlushLock = new ReentrantLock();
+
+    /**
+     * The number of {@link Timer} and {@link Span} objects dropped
+     * because their buffer was full.
+     */
+    private final LongAdder mDroppedOnOverflow = new LongAdder();
+
+    /**
+     * The number of {@link Timer} and {@link Span} objects dropped
+     * because their batch couldn't be posted.
+     */
+    private final LongAdder mDroppedOnError = new LongAdder();
+
+    /**
+     * The number of {@link Timer} and {@link Span} objects posted
+     * successfully.
+     */
+    private final LongAdder mExported = new LongAdder();
+
+    /**
+     * The constructor initializes the {@link RestTemplate} and uses
+     * the default buffer settings.
      */
     public RunTimer(RestTemplate restTemplate) {
+        this(restTemplate,
+             DEFAULT_CAPACITY,
+             DEFAULT_BATCH_SIZE,
+             DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * The constructor initializes the {@link RestTemplate} and the
+     * buffer settings.
+     *
+     * @param restTemplate The {@link RestTemplate} used to
+     *                     communicate with the 'timer' microservice
+     * @param capacity The max number of buffered {@link Timer}
+     *                 objects
+     * @param batchSize The max number of {@link Timer} objects per
+     *                  batch
+     * @param flushInterval The max time a {@link Timer} waits to be
+     *                      exported
+     */
+    public RunTimer(RestTemplate restTemplate,
+                    int capacity,
+                    int batchSize,
+                    Duration flushInterval) {
+        this(restTemplate,
+             DEFAULT_SERVICE,
+             capacity,
+             batchSize,
+             flushInterval);
+    }
+
+    /**
+     * The constructor initializes the {@link RestTemplate}, the name
+     * of the microservice, and the buffer settings.
+     *
+     * @param restTemplate The {@link RestTemplate} used to
+     *                     communicate with the 'timer' microservice
+     * @param service The name of the microservice recorded in each
+     *                {@link Span}
+     * @param capacity The max number of buffered {@link Timer}
+     *                 objects, and separately of buffered {@link
+     *                 Span} objects
+     * @param batchSize The max number of {@link Timer} or {@link
+     *                  Span} objects per batch
+     * @param flushInterval The max time a {@link Timer} or {@link
+     *                      Span} waits to be exported
+     */
+    public RunTimer(RestTemplate restTemplate,
+                    String service,
+                    int capacity,
+                    int batchSize,
+                    Duration flushInterval) {
         this.mRestTemplate = restTemplate;
+        this.mService = service;
+        this.mBuffer = new RingBuffer<>(capacity);
+        this.mSpans = new RingBuffer<>(capacity);
+        this.mBatchSize = batchSize;
+        this.mFlushInterval = flushInterval;
     }
 
     /**
@@ -65,25 +250,83 @@ public class RunTimer {
             .toUriString();
     }
 
+    /**
+     * Builds a {@link String} url to post a batch of timings to the
+     * 'timer' microservice, which also reports the name of this
+     * microservice and how many timings and spans it has dropped.
+     *
+     * @return A url {@link String}
+     */
+    private String makeTimingsUrl() {
+        return UriComponentsBuilder
+            // Start from the url of the POST_TIMINGS endpoint.
+            .fromUriString(makeTimerUrl(POST_TIMINGS))
+
+            // Identify this microservice.
+            .queryParam(SERVICE_PARAM, mService)
+
+            // Report the drop counts.
+            .queryParam(DROPPED_ON_OVERFLOW_PARAM, getDroppedOnOverflow())
+            .queryParam(DROPPED_ON_ERROR_PARAM, getDroppedOnError())
+
+            // Build the URI as a URI String.
+            .build()
+            .toUriString();
+    }
+
     /**
      * Call {@code supplier.get()} and time how long it takes to
-     * run. This method supports synchronous timings.
+     * run. This method supports synchronous timings.  If the result
+     * is a {@link Flux} or {@link Mono}, which does no work until
+     * it's subscribed to, the returned stream is timed from
+     * subscription to termination instead (see {@link
+     * #runAndRecordTime(String, Flux)}).
+     *
+     * If the calling thread is handling a traced request, the call
+     * is also recorded as a {@link Span} named {@code identifier},
+     * which is the current span while {@code supplier} runs.  For a
+     * reactive result, that span is renamed {@code identifier +
+     * ":assembly"} since it only covers building the stream.
      *
      * @param identifier A {@link String} identifying what is being
      *                   timed
      * @param supplier The {@link Supplier} containing the code to run
      * @return The result returned by {@code supplier.get()}
      */
+    @SuppressWarnings("unchecked")
     public <U> U runAndRecordTime(String identifier,
                                   Supplier<U> supplier) {
         // Create a Timer instance and set its start time.
         Timer timer = start(new Timer(identifier));
 
-        // Run the code that's being timed.
-        U result = supplier.get();
+        // Start a span if this call is part of a traced request.
+        var parent = TraceContext.current();
+        var span = parent == null ? null : startSpan(identifier, parent);
+
+        U result;
+        try (var scope = span == null ? null : span.context().makeCurrent()) {
+            // Run the code that's being timed.
+            result = supplier.get();
+        } catch (RuntimeException | Error e) {
+            endSpan(span, e);
+            throw e;
+        }
+
+        if (result instanceof Flux<?> || result instanceof Mono<?>) {
+            if (span != null)
+                span.name = identifier + ":assembly";
+            endSpan(span, null);
+
+            // Time a reactive result when it runs, not when it's
+            // built.
+            return result instanceof Flux<?> flux
+                ? (U) runAndRecordTime(identifier, flux)
+                : (U) runAndRecordTime(identifier, (Mono<?>) result);
+        }
 
         // Stop the timer and post the result to the timer service.
         stopAndPost(timer);
+        endSpan(span, null);
 
         // Return the result from the code that was being timed.
         return result;
@@ -100,38 +343,95 @@ public class RunTimer {
      */
     public void runAndRecordTime(String identifier,
                                  Runnable runnable) {
-        // Create a TimerInfo instance and set its start time.
-        Timer timer = start(new Timer(identifier));
-
-        // Run the code that's being timed.
-        runnable.run();
-
-        // Stop the timer and post the result to the timer service.
-        stopAndPost(timer);
+        // Time the runnable like a supplier that returns nothing.
+        runAndRecordTime(identifier,
+                         (Supplier<Void>) () -> {
+                             runnable.run();
+                             return null;
+                         });
     }
 
     /**
-     * Adds a run timer to the passed {@code Flux} and post the
-     * elapsed execution time to the timer service when the Flux
-     * completes.
+     * Time each subscription to the passed {@code Flux} and post the
+     * results to the timer service when it terminates.  Two timings
+     * are recorded:
+     * <ul>
+     *   <li>{@code identifier}: the time from subscription to the
+     *       terminal signal, along with the number of elements
+     *       emitted and the terminal signal ("onComplete",
+     *       "onError", or "cancel"), from which the timer service
+     *       derives throughput</li>
+     *   <li>{@code identifier + ":firstElement"}: the time from
+     *       subscription to the first element, which is only
+     *       recorded if an element was emitted</li>
+     * </ul>
+     *
+     * If this method is called while handling a traced request, each
+     * subscription is also recorded as a {@link Span} named {@code
+     * identifier} whose parent is the span that was current when
+     * this method was called.
      *
      * @param identifier A {@link String} identifying what is being
      *                   timed
      * @param flux       The {@link Flux} to run and record
+     * @return A {@link Flux} that emits the same signals as {@code
+     *         flux}
      */
     public <T> Flux<T> runAndRecordTime(String identifier,
                                         Flux<T> flux) {
+        // Capture the caller's span, since the Flux may be subscribed
+        // to on another thread.
+        var parent = TraceContext.current();
+
+        return Flux
+            // Start the timings when the Flux is subscribed to.
+            .defer(() -> {
+                    var timing = new StreamTiming(identifier, parent);
+
+                    return flux
+                        // Count the elements and note the first one.
+                        .doOnNext(element -> timing.onNext())
+
+                        // Note the error that ends the Flux, if any.
+                        .doOnError(timing::onError)
+
+                        // Post the timings however the Flux ends.
+                        .doFinally(timing::onFinally);
+                });
+    }
+
+    /**
+     * Time each subscription to the passed {@code Mono} and post the
+     * results to the timer service when it terminates, as described
+     * in {@link #runAndRecordTime(String, Flux)}.
+     *
+     * @param identifier A {@link String} identifying what is being
+     *                   timed
+     * @param mono       The {@link Mono} to run and record
+     * @return A {@link Mono} that emits the same signals as {@code
+     *         mono}
+     */
+    public <T> Mono<T> runAndRecordTime(String identifier,
+                                        Mono<T> mono) {
+        // Capture the caller's span, since the Mono may be subscribed
+        // to on another thread.
+        var parent = TraceContext.current();
+
         return Mono
-            // Start with a supplier that will create a Timer
-            // instance.
-            .fromSupplier(// Generate a new started Timer instance.
-                          () -> start(new Timer(identifier)))
+            // Start the timings when the Mono is subscribed to.
+            .defer(() -> {
+                    var timing = new StreamTiming(identifier, parent);
+
+                    return mono
+                        // Note the element, if any.
+                        .doOnNext(element -> timing.onNext())
 
-            // Map the Timer instance to the output of the pass flux.
-            .flatMapMany(timer ->
-                         // Lastly, stop the timer and post the timing
-                         // result to the timer service.
-                         flux.doFinally(result -> stopAndPost(timer)));
+                        // Note the error that ends the Mono, if any.
+                        .doOnError(timing::onError)
+
+                        // Post the timings however the Mono ends.
+                        .doFinally(timing::onFinally);
+                });
     }
 
     /**
@@ -139,6 +439,9 @@ public class RunTimer {
      * timings ordered from fastest to slowest
      */
     public String getTimings() {
+        // Export the buffered Timer objects so they're included.
+        flush();
+
         return WebUtils
             // Make an HTTP GET call to the server passing in the URL
             // containing the GET_TIMINGS request and returning a
@@ -169,23 +472,320 @@ public class RunTimer {
     }
 
     /**
-     * Stops this {@link Timer} instance and also posts the result to
-     * the 'timer' service.
+     * Stops this {@link Timer} instance and queues it to be posted to
+     * the 'timer' service in the background.
      */
     public void stopAndPost(Timer timer) {
-        // Make a URL for the Timer microservice.
-        String url = makeTimerUrl(POST_TIMING);
+        record(stop(timer));
+    }
+
+    /**
+     * Queue a stopped {@link Timer} instance to be posted to the
+     * 'timer' service in the background, or drop it if the buffer is
+     * full.
+     *
+     * @param timer A stopped {@link Timer} instance
+     * @return True if the {@code timer} was queued, else false if it
+     *         was dropped
+     */
+    public boolean record(Timer timer) {
+        if (!mBuffer.offer(timer)) {
+            mDroppedOnOverflow.increment();
+            return false;
+        }
+
+        startExporter();
+
+        // Wake the exporter as soon as a full batch is waiting.
+        if (mBuffer.size() >= mBatchSize)
+            LockSupport.unpark(mExporter);
+
+        return true;
+    }
+
+    /**
+     * Start a {@link Span} of a traced request.
+     *
+     * @param name What the span times
+     * @param parent The {@link TraceContext} of the parent span, or
+     *               null to start a new trace
+     * @return A started {@link Span} instance
+     */
+    public Span startSpan(String name, TraceContext parent) {
+        return parent == null
+            ? new Span(TraceContext.newTrace(), null, mService, name)
+            : new Span(parent.newChild(), parent.spanId(), mService, name);
+    }
+
+    /**
+     * End a {@link Span} and queue it to be posted to the 'timer'
+     * service in the background, or drop it if the buffer is full.
+     *
+     * @param span A started {@link Span} instance, or null if nothing
+     *             is being traced, in which case this method does
+     *             nothing
+     * @param error The {@link Throwable} that ended the {@code span},
+     *              or null if it succeeded
+     */
+    public void endSpan(Span span, Throwable error) {
+        if (span == null)
+            return;
+
+        span.endMicros = Span.nowMicros();
+        if (error != null)
+            span.error = error.toString();
+
+        if (!mSpans.offer(span)) {
+            mDroppedOnOverflow.increment();
+            return;
+        }
+
+        startExporter();
+
+        // Wake the exporter as soon as a full batch is waiting.
+        if (mSpans.size() >= mBatchSize)
+            LockSupport.unpark(mExporter);
+    }
+
+    /**
+     * Post all the buffered {@link Timer} and {@link Span} objects to
+     * the 'timer' service on the calling thread, after waiting for
+     * any flush that's already in progress.
+     *
+     * @return The number of {@link Timer} and {@link Span} objects
+     *         posted
+     */
+    public int flush() {
+        mFlushLock.lock();
+        try {
+            return exportAll(mBuffer, POST_TIMINGS)
+                + exportAll(mSpans, POST_SPANS);
+        } finally {
+            mFlushLock.unlock();
+        }
+    }
+
+    /**
+     * Stop the exporter thread and post everything that's still
+     * buffered.  Spring calls this method when the application shuts
+     * down.  {@link Timer} and {@link Span} objects recorded after
+     * this call are buffered but no longer exported in the
+     * background.
+     */
+    @PreDestroy
+    public void close() {
+        mClosed = true;
+
+        var exporter = mExporter;
+        if (exporter != null) {
+            // Wake the exporter so it sees mClosed and finishes its
+            // current flush.
+            LockSupport.unpark(exporter);
+            try {
+                exporter.join();
+            } catch (InterruptedException e) {
+                // Still post what's buffered, but keep the interrupt.
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Post whatever was recorded while the exporter stopped.
+        flush();
+    }
+
+    /**
+     * @return The number of {@link Timer} and {@link Span} objects
+     *         dropped because their buffer was full
+     */
+    public long getDroppedOnOverflow() {
+        return mDroppedOnOverflow.sum();
+    }
+
+    /**
+     * @return The number of {@link Timer} and {@link Span} objects
+     *         dropped because their batch couldn't be posted
+     */
+    public long getDroppedOnError() {
+        return mDroppedOnError.sum();
+    }
+
+    /**
+     * @return The number of {@link Timer} and {@link Span} objects
+     *         posted successfully
+     */
+    public long getExported() {
+        return mExported.sum();
+    }
+
+    /**
+     * Start the exporter virtual thread the first time it's needed.
+     */
+    private void startExporter() {
+        if (mExporter == null
+            && !mClosed
+            && mExporterStarted.compareAndSet(false, true))
+            mExporter = Thread
+                .ofVirtual()
+                .name("run-timer-exporter")
+                .start(this::exportLoop);
+    }
+
+    /**
+     * Post a batch whenever a full batch is waiting or the flush
+     * interval has elapsed, until {@link #close} is called.
+     */
+    private void exportLoop() {
+        while (!mClosed) {
+            LockSupport.parkNanos(this, mFlushInterval.toNanos());
+
+            flush();
+        }
+    }
+
+    /**
+     * Post the objects in a buffer to the 'timer' service in batches.
+     * Only the objects buffered when this method is called are
+     * posted, so callers that keep refilling the buffer can't keep
+     * the calling thread here forever.
+     *
+     * @param buffer The {@link RingBuffer} to remove the objects from
+     * @param request The 'timer' service endpoint that records each
+     *                batch
+     * @return The number of objects removed
+     */
+    private <T> int exportAll(RingBuffer<T> buffer,
+                              String request) {
+        int exported = 0;
+
+        for (int remaining = buffer.size(); remaining > 0; ) {
+            int removed = exportBatch(buffer,
+                                      request,
+                                      Math.min(remaining, mBatchSize));
+            if (removed == 0)
+                break;
+
+            exported += removed;
+            remaining -= removed;
+        }
+
+        return exported;
+    }
+
+    /**
+     * Remove up to {@code maxSize} objects from a buffer and post
+     * them to the 'timer' service.
+     *
+     * @param buffer The {@link RingBuffer} to remove the batch from
+     * @param request The 'timer' service endpoint that records the
+     *                batch
+     * @param maxSize The max number of objects to remove
+     * @return The number of objects removed
+     */
+    private <T> int exportBatch(RingBuffer<T> buffer,
+                                String request,
+                                int maxSize) {
+        List<T> batch = new ArrayList<>(maxSize);
+
+        if (buffer.drainTo(batch, maxSize) == 0)
+            return 0;
+
+        try {
+            mRestTemplate
+                // Send a POST request to the 'timer' microservice.
+                .postForObject(request.equals(POST_TIMINGS)
+                               ? makeTimingsUrl()
+                               : makeTimerUrl(request),
+                               batch,
+                               Integer.class);
+            mExported.add(batch.size());
+        } catch (Exception e) {
+            // Timings are best effort, so drop the batch.
+            mDroppedOnError.add(batch.size());
+        }
+
+        return batch.size();
+    }
+
+    /**
+     * The timings of one subscription to a timed reactive stream.
+     */
+    private final class StreamTiming {
+        /**
+         * Times the whole subscription.
+         */
+        private final Timer mTotal;
+
+        /**
+         * Times the subscription until the first element.
+         */
+        private final Timer mFirstElement;
+
+        /**
+         * The number of elements emitted, which is only updated by
+         * the serialized onNext signals but read by the terminal
+         * signal, which may run on another thread.
+         */
+        private final AtomicLong mElements = new AtomicLong();
+
+        /**
+         * The span of the subscription, or null if it isn't part of
+         * a traced request.
+         */
+        private final Span mSpan;
+
+        /**
+         * The error that ended the stream, or null if it didn't fail.
+         */
+        private volatile Throwable mError;
+
+        /**
+         * Start the timings.
+         *
+         * @param identifier A {@link String} identifying what is
+         *                   being timed
+         * @param parent The {@link TraceContext} of the caller's
+         *               span, or null if it isn't part of a traced
+         *               request
+         */
+        StreamTiming(String identifier, TraceContext parent) {
+            mTotal = start(new Timer(identifier));
+            mFirstElement = new Timer(identifier + ":firstElement");
+            mFirstElement.startTime = mTotal.startTime;
+            mSpan = parent == null ? null : startSpan(identifier, parent);
+        }
+
+        /**
+         * Count an element and stop the first element timer.
+         */
+        void onNext() {
+            if (mElements.getAndIncrement() == 0)
+                stop(mFirstElement);
+        }
+
+        /**
+         * Note the error that ends the stream.
+         *
+         * @param error The {@link Throwable} that ended the stream
+         */
+        void onError(Throwable error) {
+            mError = error;
+        }
 
-        System.out.println("Posting to Timer service at URL = " 
-                           + url);
+        /**
+         * Stop the total timer and post the timings.
+         *
+         * @param signal The terminal {@link SignalType}
+         */
+        void onFinally(SignalType signal) {
+            stop(mTotal);
+            mTotal.elements = mElements.get();
+            mTotal.signal = signal.toString();
+            record(mTotal);
 
-        var uri = WebUtils
-            // Sent a POST request to the 'timer' microservice.
-            .makePostRequestLocation(mRestTemplate,
-                                     url,
-                                     stop(timer));
+            if (mTotal.elements > 0)
+                record(mFirstElement);
 
-        System.out.println("The Timer service returned this URI "
-                           + uri);
+            endSpan(mSpan, mError);
+        }
     }
 }
@@ -23,6 +23,19 @@ public class Timer {
      */
     public long stopTime;
 
+    /**
+     * The number of elements emitted by a timed reactive stream, or 0
+     * if what's timed isn't a stream.
+     */
+    public long elements;
+
+    /**
+     * The signal that terminated a timed reactive stream (e.g.,
+     * "onComplete", "onError", or "cancel"), or null if what's timed
+     * isn't a stream.
+     */
+    public String signal;
+
     /**
      * Constructs a {@link Timer} object and automatically sets
      * its globally unique invocation id. Both start and stop
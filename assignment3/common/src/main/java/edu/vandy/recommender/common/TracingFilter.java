@@ -0,0 +1,110 @@
+package edu.vandy.recommender.common;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * This servlet filter records a server {@link Span} for each request
+ * handled by a microservice.  The span joins the trace of the
+ * caller's W3C {@code traceparent} header, or starts a new trace if
+ * there isn't one, and is the current {@link TraceContext} while the
+ * request is handled, so timed calls and outgoing {@link
+ * edu.vandy.recommender.utils.WebUtils} requests become its children.
+ * The span's context is returned in the {@code traceresponse} header
+ * so a client can look up the trace of its request.
+ *
+ * A request that returns a reactive type is handled asynchronously,
+ * so its span is ended when the async request completes rather than
+ * when this filter returns.
+ */
+public class TracingFilter
+       extends OncePerRequestFilter {
+    /**
+     * Records and exports the spans.
+     */
+    private final RunTimer mRunTimer;
+
+    /**
+     * The constructor initializes the field.
+     *
+     * @param runTimer The {@link RunTimer} that records and exports
+     *                 the spans
+     */
+    public TracingFilter(RunTimer runTimer) {
+        mRunTimer = runTimer;
+    }
+
+    /**
+     * Record a server {@link Span} for the {@code request}.
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain)
+        throws ServletException, IOException {
+        var span = mRunTimer
+            .startSpan(request.getMethod() + " " + request.getRequestURI(),
+                       TraceContext
+                       .parse(request.getHeader(TraceContext.TRACEPARENT)));
+
+        response.setHeader(TraceContext.TRACERESPONSE,
+                           span.context().traceparent());
+
+        try (var scope = span.context().makeCurrent()) {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            mRunTimer.endSpan(span, e);
+            throw e;
+        }
+
+        if (request.isAsyncStarted())
+            // End the span when the async request completes.
+            request
+                .getAsyncContext()
+                .addListener(new AsyncListener() {
+                        @Override
+                        public void onComplete(AsyncEvent event) {
+                            end(span, response, event.getThrowable());
+                        }
+
+                        @Override
+                        public void onTimeout(AsyncEvent event) {
+                        }
+
+                        @Override
+                        public void onError(AsyncEvent event) {
+                        }
+
+                        @Override
+                        public void onStartAsync(AsyncEvent event) {
+                        }
+                    });
+        else
+            end(span, response, null);
+    }
+
+    /**
+     * End the {@code span}, treating a server error status as an
+     * error.
+     *
+     * @param span The {@link Span} of the request
+     * @param response The {@link HttpServletResponse} of the request
+     * @param error The {@link Throwable} that ended the request, or
+     *              null if there wasn't one
+     */
+    private void end(Span span,
+                     HttpServletResponse response,
+                     Throwable error) {
+        if (error == null && response.getStatus() >= 500)
+            span.error = "HTTP " + response.getStatus();
+
+        mRunTimer.endSpan(span, error);
+    }
+}
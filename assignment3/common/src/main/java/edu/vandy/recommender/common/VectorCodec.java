@@ -0,0 +1,175 @@
+package edu.vandy.recommender.common;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * This class packs a movie's cosine vector into a compact binary
+ * form for storage in a database column, and unpacks it again
+ * straight into a primitive {@code double[]}.  This avoids both the
+ * SQL array type, which boxes every element, and converting each
+ * element to a {@link String} and parsing it back.
+ *
+ * All values are little-endian and the packed layout is:
+ * <pre>
+ *   bytes per component 4 or 8 (byte)
+ *   components          : float32 or float64 values
+ * </pre>
+ *
+ * The leading byte makes each packed vector self-describing, so
+ * vectors of either precision can always be unpacked.
+ *
+ * The movie datasets insert each vector as a SQL array literal, so
+ * {@code schema.sql} registers {@link #pack} as the {@code
+ * PACK_VECTOR} function and a script that runs after {@code
+ * data.sql} packs the loaded vectors into the binary column.
+ */
+public final class VectorCodec {
+    /**
+     * A Java utility class should have a private constructor.
+     */
+    private VectorCodec() {}
+
+    /**
+     * Pack the {@code vector} into its binary form.
+     *
+     * @param vector The cosine vector to pack
+     * @param singlePrecision True to store float32 components, else
+     *                        false to store float64 components
+     * @return The packed vector
+     */
+    public static byte[] encode(List<Double> vector,
+                                boolean singlePrecision) {
+        var values = new double[vector.size()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = vector.get(i);
+
+        return encode(values, singlePrecision);
+    }
+
+    /**
+     * Pack the {@code vector} into its binary form.
+     *
+     * @param vector The cosine vector to pack
+     * @param singlePrecision True to store float32 components, else
+     *                        false to store float64 components
+     * @return The packed vector
+     */
+    public static byte[] encode(double[] vector,
+                                boolean singlePrecision) {
+        int bytesPerComponent = singlePrecision
+            ? Float.BYTES
+            : Double.BYTES;
+        var buffer = ByteBuffer
+            .allocate(1 + vector.length * bytesPerComponent)
+            .order(ByteOrder.LITTLE_ENDIAN)
+            .put((byte) bytesPerComponent);
+
+        if (singlePrecision)
+            for (double value : vector)
+                buffer.putFloat((float) value);
+        else
+            buffer.asDoubleBuffer().put(vector);
+
+        return buffer.array();
+    }
+
+    /**
+     * Pack a vector loaded into a SQL array column.  This method
+     * backs the {@code PACK_VECTOR} SQL function, which H2 calls with
+     * the {@code double precision array} column of a movie.
+     *
+     * @param vector The cosine vector to pack
+     * @param singlePrecision True to store float32 components, else
+     *                        false to store float64 components
+     * @return The packed vector, or null if {@code vector} is null
+     */
+    public static byte[] pack(Double[] vector,
+                              boolean singlePrecision) {
+        return vector == null
+            ? null
+            : encode(Arrays.asList(vector), singlePrecision);
+    }
+
+    /**
+     * Unpack a vector packed by {@link #encode}.
+     *
+     * @param bytes The packed vector
+     * @return The cosine vector
+     */
+    public static double[] decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Unpack a vector packed by {@link #encode} from the remaining
+     * bytes of {@code buffer}, without changing its position.
+     *
+     * @param buffer The packed vector
+     * @return The cosine vector
+     */
+    public static double[] decode(ByteBuffer buffer) {
+        var packed = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int bytesPerComponent = packed.get();
+
+        if (bytesPerComponent != Float.BYTES
+            && bytesPerComponent != Double.BYTES)
+            throw new IllegalArgumentException
+                ("Unsupported bytes per component: "
+                 + bytesPerComponent);
+
+        var values = new double[packed.remaining() / bytesPerComponent];
+
+        if (bytesPerComponent == Float.BYTES) {
+            var floats = packed.asFloatBuffer();
+            for (int i = 0; i < values.length; i++)
+                values[i] = floats.get(i);
+        } else
+            packed.asDoubleBuffer().get(values);
+
+        return values;
+    }
+
+    /**
+     * @param values The backing values
+     * @return An immutable {@link List} view of the {@code values},
+     *         which boxes each value only when it's read
+     */
+    public static List<Double> asList(double[] values) {
+        return new DoubleList(values);
+    }
+
+    /**
+     * An immutable {@link List} of {@link Double} objects backed by a
+     * primitive {@code double[]}.
+     */
+    private static final class DoubleList
+        extends AbstractList<Double>
+        implements RandomAccess {
+        /**
+         * The backing values.
+         */
+        private final double[] mValues;
+
+        /**
+         * @param values The backing values
+         */
+        DoubleList(double[] values) {
+            mValues = values;
+        }
+
+        @Override
+        public Double get(int index) {
+            return mValues[index];
+        }
+
+        @Override
+        public int size() {
+            return mValues.length;
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package edu.vandy.recommender.common.autoconfigure;
 
 import edu.vandy.recommender.common.RunTimer;
+import edu.vandy.recommender.common.TracingFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.AutoConfigureOrder;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.context.annotation.Bean;
@@ -12,6 +16,7 @@ import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.util.concurrent.Executors;
 
 import static org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME;
@@ -41,12 +46,42 @@ public class CommonAutoConfiguration {
      * Constructor for {@link RunTimer}.
      *
      * @param restTemplateBuilder A {@link RestTemplateBuilder}
+     * @param service The name of the microservice recorded in each
+     *                span
+     * @param capacity The max number of buffered timings
+     * @param batchSize The max number of timings posted at once
+     * @param flushInterval The max time a timing waits to be posted
      * @return An initialized {@link RestTemplate}
      */
     @Bean
     @ConditionalOnMissingBean
-    RunTimer runTimer(RestTemplateBuilder restTemplateBuilder) {
-        return new RunTimer(restTemplateBuilder.build());
+    RunTimer runTimer(RestTemplateBuilder restTemplateBuilder,
+                      @Value("${spring.application.name:" + RunTimer.DEFAULT_SERVICE + "}")
+                      String service,
+                      @Value("${app.run-timer.capacity:8192}") int capacity,
+                      @Value("${app.run-timer.batch-size:256}") int batchSize,
+                      @Value("${app.run-timer.flush-interval:1s}")
+                      Duration flushInterval) {
+        return new RunTimer(restTemplateBuilder.build(),
+                            service,
+                            capacity,
+                            batchSize,
+                            flushInterval);
+    }
+
+    /**
+     * Record a span of each request handled by a servlet-based
+     * microservice, unless {@code app.tracing.enabled} is false.
+     *
+     * @param runTimer The {@link RunTimer} that exports the spans
+     * @return A {@link TracingFilter}
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(name = "app.tracing.enabled", matchIfMissing = true)
+    TracingFilter tracingFilter(RunTimer runTimer) {
+        return new TracingFilter(runTimer);
     }
 
     /**
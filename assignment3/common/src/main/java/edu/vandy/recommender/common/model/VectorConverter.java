@@ -0,0 +1,58 @@
+package edu.vandy.recommender.common.model;
+
+import edu.vandy.recommender.common.VectorCodec;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.List;
+
+/**
+ * This JPA {@link AttributeConverter} stores a {@link Movie} vector
+ * in a packed binary column via {@link VectorCodec}, so loading a row
+ * decodes the vector straight into a primitive {@code double[]}
+ * rather than materializing a SQL array of boxed values.
+ *
+ * Hibernate creates converters via Spring, so the precision used for
+ * writes can be set to {@code float32} or {@code float64} with the
+ * {@code app.vector.precision} property, which also selects the
+ * script that packs the vectors loaded by {@code data.sql}.  Reads
+ * accept either precision.
+ */
+@Converter
+public class VectorConverter
+       implements AttributeConverter<List<Double>, byte[]> {
+    /**
+     * Either "float32" or "float64", the precision of the stored
+     * components.
+     */
+    @Value("${app.vector.precision:float64}")
+    private String mPrecision = "float64";
+
+    /**
+     * Pack the {@code vector} for storage.
+     *
+     * @param vector The {@link Movie} vector
+     * @return The packed vector
+     */
+    @Override
+    public byte[] convertToDatabaseColumn(List<Double> vector) {
+        return vector == null
+            ? null
+            : VectorCodec.encode(vector,
+                                 mPrecision.equals("float32"));
+    }
+
+    /**
+     * Unpack a stored vector.
+     *
+     * @param bytes The packed vector
+     * @return The {@link Movie} vector
+     */
+    @Override
+    public List<Double> convertToEntityAttribute(byte[] bytes) {
+        return bytes == null
+            ? null
+            : VectorCodec.asList(VectorCodec.decode(bytes));
+    }
+}
@@ -0,0 +1,164 @@
+package edu.vandy.recommender.utils;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class is a bounded lock-free multi-producer, multi-consumer
+ * queue backed by a ring of slots (Dmitry Vyukov's bounded MPMC
+ * queue).  Each slot has a sequence number that tells producers and
+ * consumers whether it's free or full for their position, so {@link
+ * #offer} and {@link #poll} each claim a position with a single
+ * compare-and-set and never block.  When the ring is full {@link
+ * #offer} fails immediately rather than waiting for a consumer, which
+ * lets callers drop elements instead of slowing down.
+ *
+ * @param <E> The type of the elements
+ */
+public class RingBuffer<E> {
+    /**
+     * The slots of the ring.
+     */
+    private final AtomicReferenceArray<E> mElements;
+
+    /**
+     * The sequence number of each slot.  A slot at position {@code p}
+     * is free for the producer of {@code p} when its sequence is
+     * {@code p}, and full for the consumer of {@code p} when it's
+     * {@code p + 1}.
+     */
+    private final AtomicLongArray mSequences;
+
+    /**
+     * The capacity minus one, which maps a position to its slot.
+     */
+    private final int mMask;
+
+    /**
+     * The next position to add an element at.
+     */
+    private final AtomicLong mTail = new AtomicLong();
+
+    /**
+     * The next position to remove an element from.
+     */
+    private final AtomicLong mHead = new AtomicLong();
+
+    /**
+     * Create a {@link RingBuffer}.
+     *
+     * @param capacity The min number of elements the ring holds,
+     *                 which is rounded up to a power of two
+     */
+    public RingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30)
+            throw new IllegalArgumentException
+                ("Invalid capacity: " + capacity);
+
+        int size = Integer.highestOneBit(capacity) == capacity
+            ? capacity
+            : Integer.highestOneBit(capacity) << 1;
+
+        mElements = new AtomicReferenceArray<>(size);
+        mSequences = new AtomicLongArray(size);
+        mMask = size - 1;
+
+        for (int i = 0; i < size; i++)
+            mSequences.set(i, i);
+    }
+
+    /**
+     * Add the {@code element} if the ring isn't full.
+     *
+     * @param element The element to add
+     * @return True if the {@code element} was added, else false if
+     *         the ring is full
+     */
+    public boolean offer(E element) {
+        long position = mTail.get();
+
+        for (;;) {
+            int slot = (int) position & mMask;
+            long difference = mSequences.get(slot) - position;
+
+            if (difference == 0) {
+                // The slot is free, so try to claim the position.
+                if (mTail.compareAndSet(position, position + 1)) {
+                    mElements.set(slot, element);
+                    // Publish the element to consumers.
+                    mSequences.set(slot, position + 1);
+                    return true;
+                }
+            } else if (difference < 0)
+                // The slot still holds an element from a lap ago.
+                return false;
+
+            position = mTail.get();
+        }
+    }
+
+    /**
+     * Remove the oldest element if the ring isn't empty.
+     *
+     * @return The oldest element, or null if the ring is empty
+     */
+    public E poll() {
+        long position = mHead.get();
+
+        for (;;) {
+            int slot = (int) position & mMask;
+            long difference = mSequences.get(slot) - (position + 1);
+
+            if (difference == 0) {
+                // The slot is full, so try to claim the position.
+                if (mHead.compareAndSet(position, position + 1)) {
+                    var element = mElements.getAndSet(slot, null);
+                    // Free the slot for the producer a lap later.
+                    mSequences.set(slot, position + mMask + 1);
+                    return element;
+                }
+            } else if (difference < 0)
+                // The slot hasn't been filled yet.
+                return null;
+
+            position = mHead.get();
+        }
+    }
+
+    /**
+     * Remove up to {@code maxElements} of the oldest elements and add
+     * them to the {@code collection} in order.
+     *
+     * @param collection The {@link Collection} to add to
+     * @param maxElements The max number of elements to remove
+     * @return The number of elements removed
+     */
+    public int drainTo(Collection<? super E> collection,
+                       int maxElements) {
+        int count = 0;
+
+        for (E element;
+             count < maxElements && (element = poll()) != null;
+             count++)
+            collection.add(element);
+
+        return count;
+    }
+
+    /**
+     * @return The approximate number of elements in the ring
+     */
+    public int size() {
+        long size = mTail.get() - mHead.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    /**
+     * @return The max number of elements the ring holds
+     */
+    public int capacity() {
+        return mMask + 1;
+    }
+}
@@ -1,6 +1,9 @@
 package edu.vandy.recommender.utils;
 
+import edu.vandy.recommender.common.TraceContext;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestTemplate;
@@ -21,6 +24,10 @@ import static edu.vandy.recommender.common.Constants.HTTP_PROTOCOL;
 /**
  * A Java utility class that provides helper methods for dealing with
  * Spring web programming.
+ *
+ * Every request made by these helper methods carries the W3C {@code
+ * traceparent} header of the calling thread's {@link TraceContext},
+ * if any, so the callee's spans join the caller's trace.
  */
 public final class WebUtils {
     /**
@@ -41,7 +48,11 @@ public final class WebUtils {
                                        Class<T> clazz) {
         return restTemplate
             // Retrieve a representation by doing a GET on the URL.
-            .getForEntity(url, clazz)
+            .exchange(url,
+                      HttpMethod.GET,
+                      // Propagate the trace, if any.
+                      traced(null),
+                      clazz)
 
             // Returns the body of this entity.
             .getBody();
@@ -63,7 +74,9 @@ public final class WebUtils {
             // the response as ResponseEntity containing an Integer.
             .exchange(url,
                       // Send via an HTTP GET request.
-                      HttpMethod.GET, null,
+                      HttpMethod.GET,
+                      // Propagate the trace, if any.
+                      traced(null),
                       // The return type is an array of T objects.
                       clazz);
 
@@ -91,8 +104,9 @@ public final class WebUtils {
             // the response as ResponseEntity containing an Integer.
             .exchange(url,
                       // Send via an HTTP GET request.
-                      HttpMethod.GET, 
-                      null,
+                      HttpMethod.GET,
+                      // Propagate the trace, if any.
+                      traced(null),
                       // The return type is an array of T objects.
                       new ParameterizedTypeReference<Map<K, V>>() {});
         return response.getBody();
@@ -115,7 +129,8 @@ public final class WebUtils {
             // Send an HTTP GET request to the given URL and return
             // the response as ResponseEntity containing a T[].
             .postForEntity(url,
-                           body,
+                           // Propagate the trace, if any.
+                           traced(body),
                            // The return type is an array of T objects.
                            clazz);
 
@@ -145,6 +160,9 @@ public final class WebUtils {
             // Add the 'uri' to the GET request.
             .uri(url)
 
+            // Propagate the trace, if any.
+            .headers(WebUtils::propagateTrace)
+
             // Send the HTTP GET request to the given URL.
             .retrieve()
 
@@ -173,6 +191,9 @@ public final class WebUtils {
             // Add the 'uri' to the POST request.
             .uri(url)
 
+            // Propagate the trace, if any.
+            .headers(WebUtils::propagateTrace)
+
             // Add the 'body' to the POST request.
             .bodyValue(body)
 
@@ -200,7 +221,33 @@ public final class WebUtils {
         return restTemplate
             // Send an HTTP POST request to the given URL and return
             // the response as a URI.
-            .postForLocation(url, body);
+            .postForLocation(url, traced(body));
+    }
+
+    /**
+     * Add the {@code traceparent} header of the calling thread's
+     * {@link TraceContext} to the {@code headers}, so the callee's
+     * spans join the caller's trace.  Nothing is added if the calling
+     * thread isn't handling a traced request.
+     *
+     * @param headers The {@link HttpHeaders} of an outgoing request
+     */
+    public static void propagateTrace(HttpHeaders headers) {
+        var context = TraceContext.current();
+
+        if (context != null)
+            headers.set(TraceContext.TRACEPARENT, context.traceparent());
+    }
+
+    /**
+     * @param body The body of an outgoing request, which may be null
+     * @return An {@link HttpEntity} containing the {@code body} and
+     *         the calling thread's {@code traceparent} header, if any
+     */
+    private static <B> HttpEntity<B> traced(B body) {
+        var headers = new HttpHeaders();
+        propagateTrace(headers);
+        return new HttpEntity<>(body, headers);
     }
 
     /**
@@ -0,0 +1,59 @@
+package edu.vandy.recommender.common
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import kotlin.random.Random
+
+/**
+ * Checks that [MovieDatasetParser] produces exactly the same map as
+ * the original regex-based dataset reader.
+ */
+internal class MovieDatasetParserTest : AssignmentTests() {
+    private val lines = (1..500).map { i ->
+        "movie $i ü" to (1..25).map {
+            val value = Random.nextDouble(-0.9, 0.9) * Math.pow(10.0, Random.nextInt(-8, 3).toDouble())
+            if (Random.nextBoolean()) value.toString() else "%.8e".format(java.util.Locale.ROOT, value)
+        }
+    }
+
+    private val dataset = buildString {
+        append("title;vector\n")
+        lines.forEach { (title, values) ->
+            append("$title;[  ${values.joinToString(" ")} ]\n")
+        }
+        // A duplicate title keeps its first vector.
+        append("movie 1 ü;[  1.0 2.0 ]\n")
+    }
+
+    private val expected = lines.associate { (title, values) ->
+        title to values.map { it.toDouble() }
+    }
+
+    @Test
+    fun `parser matches the regex reader for any parallelism`() {
+        val bytes = dataset.toByteArray()
+
+        listOf(1, 2, 3, 16, 10_000).forEach {
+            assertThat(MovieDatasetParser.parse(bytes, it)).isEqualTo(expected)
+        }
+    }
+
+    @Test
+    fun `parser handles carriage returns and empty datasets`() {
+        val bytes = dataset.replace("\n", "\r\n").toByteArray()
+
+        assertThat(MovieDatasetParser.parse(bytes, 4)).isEqualTo(expected)
+        assertThat(MovieDatasetParser.parse("title;vector\n".toByteArray(), 4)).isEmpty()
+        assertThat(MovieDatasetParser.parse(ByteArray(0), 4)).isEmpty()
+    }
+
+    @Test
+    fun `number parser is exact on fast and slow paths`() {
+        listOf("0", "-0.0", "1.5e-3", "+42", "0.000123456789012345678", "1e300", "-4.9E-324", "9007199254740993")
+            .forEach {
+                val bytes = it.toByteArray()
+                assertThat(MovieDatasetParser.parseDouble(bytes, 0, bytes.size)).isEqualTo(it.toDouble())
+            }
+    }
+}
@@ -0,0 +1,106 @@
+package edu.vandy.recommender.common
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import org.assertj.core.api.Assertions.within
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import test.admin.AssignmentTests
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.file.Files
+import java.nio.file.Path
+import kotlin.random.Random
+
+/**
+ * Checks that [MovieVectorFile] round-trips a movie map through its
+ * binary format.
+ */
+internal class MovieVectorFileTest : AssignmentTests() {
+    @TempDir
+    lateinit var dir: Path
+
+    private val movieMap = (1..50).associate {
+        "movie $it ü" to (1..17).map { Random.nextDouble(-0.9, 0.9) }
+    }
+
+    @Test
+    fun `double precision file round-trips exactly`() {
+        val path = dir.resolve("movies.bin")
+        MovieVectorFile.write(movieMap, path, false)
+
+        val file = MovieVectorFile.open(path)
+
+        assertThat(file.size()).isEqualTo(movieMap.size)
+        assertThat(file.dimension()).isEqualTo(17)
+        assertThat(file.isSinglePrecision).isFalse
+        assertThat(file.titles()).isEqualTo(movieMap.keys.sorted())
+        assertThat(file.toMap()).isEqualTo(movieMap.toSortedMap())
+    }
+
+    @Test
+    fun `single precision file round-trips within float precision`() {
+        val path = dir.resolve("movies.bin")
+        MovieVectorFile.write(movieMap, path, true)
+
+        val file = MovieVectorFile.open(path)
+        val vectors = file.readVectors()
+
+        assertThat(file.isSinglePrecision).isTrue
+        file.titles().forEachIndexed { row, title ->
+            movieMap.getValue(title).forEachIndexed { i, value ->
+                assertThat(vectors[row * 17 + i]).isCloseTo(value, within(1e-6))
+                assertThat(file.get(row, i)).isEqualTo(vectors[row * 17 + i])
+            }
+        }
+    }
+
+    @Test
+    fun `empty map round-trips`() {
+        val path = dir.resolve("empty.bin")
+        MovieVectorFile.write(emptyMap(), path, false)
+
+        assertThat(MovieVectorFile.open(path).toMap()).isEmpty()
+    }
+
+    @Test
+    fun `vector views read from the mapping`() {
+        val path = dir.resolve("movies.bin")
+        MovieVectorFile.write(movieMap, path, false)
+
+        val file = MovieVectorFile.open(path)
+
+        file.titles().forEachIndexed { row, title ->
+            assertThat(file.vector(row)).isEqualTo(movieMap.getValue(title))
+        }
+    }
+
+    @Test
+    fun `truncated file is rejected`() {
+        val path = dir.resolve("movies.bin")
+        MovieVectorFile.write(movieMap, path, false)
+        val bytes = Files.readAllBytes(path)
+        Files.write(path, bytes.copyOf(bytes.size - 8))
+
+        assertThatThrownBy { MovieVectorFile.open(path) }
+            .isInstanceOf(IllegalArgumentException::class.java)
+    }
+
+    @Test
+    fun `header that overflows an int is rejected`() {
+        val path = dir.resolve("movies.bin")
+        MovieVectorFile.write(movieMap, path, false)
+        val bytes = Files.readAllBytes(path)
+
+        // Claim 2^16 movies of dimension 2^16, whose matrix overflows
+        // an int.
+        ByteBuffer.wrap(bytes)
+            .order(ByteOrder.LITTLE_ENDIAN)
+            .putInt(12, 1 shl 16)
+            .putInt(16, 1 shl 16)
+        Files.write(path, bytes)
+
+        assertThatThrownBy { MovieVectorFile.open(path) }
+            .isInstanceOf(IllegalArgumentException::class.java)
+    }
+}
@@ -0,0 +1,66 @@
+package edu.vandy.recommender.common
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.springframework.web.client.RestTemplate
+import reactor.core.publisher.Flux
+import reactor.core.publisher.Mono
+import reactor.test.StepVerifier
+import test.admin.AssignmentTests
+import java.time.Duration
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * Checks that [RunTimer] times reactive results from subscription to
+ * their terminal signal rather than when they're assembled.
+ */
+class ReactiveTimingTest : AssignmentTests() {
+    private val recorded = CopyOnWriteArrayList<Timer>()
+
+    private val runTimer = object : RunTimer(RestTemplate()) {
+        override fun record(timer: Timer) = recorded.add(timer)
+    }
+
+    @Test
+    fun `flux is timed from subscription to completion`() {
+        val flux = runTimer.runAndRecordTime("strategy:recommend") {
+            Flux.range(1, 5).delayElements(Duration.ofMillis(20))
+        }
+        assertThat(recorded).isEmpty()
+
+        StepVerifier.create(flux).expectNextCount(5).verifyComplete()
+
+        val total = recorded.single { it.id == "strategy:recommend" }
+        val first = recorded.single { it.id == "strategy:recommend:firstElement" }
+        assertThat(total.elements).isEqualTo(5L)
+        assertThat(total.signal).isEqualTo("onComplete")
+        assertThat(total.stopTime - total.startTime).isGreaterThanOrEqualTo(Duration.ofMillis(100).toNanos())
+        assertThat(first.stopTime - first.startTime).isLessThan(total.stopTime - total.startTime)
+    }
+
+    @Test
+    fun `errors and cancellations are recorded as terminal signals`() {
+        StepVerifier
+            .create(runTimer.runAndRecordTime("error", Flux.error<Int>(IllegalStateException())))
+            .verifyError(IllegalStateException::class.java)
+        StepVerifier
+            .create(runTimer.runAndRecordTime("cancel", Flux.range(1, 100)), 1)
+            .expectNext(1)
+            .thenCancel()
+            .verify()
+
+        assertThat(recorded.single { it.id == "error" }.signal).isEqualTo("onError")
+        assertThat(recorded.none { it.id == "error:firstElement" }).isTrue()
+        assertThat(recorded.single { it.id == "cancel" }.signal).isEqualTo("cancel")
+        assertThat(recorded.single { it.id == "cancel" }.elements).isEqualTo(1L)
+    }
+
+    @Test
+    fun `each subscription to a mono is timed`() {
+        val mono = runTimer.runAndRecordTime("mono") { Mono.just(42) }
+
+        repeat(2) { StepVerifier.create(mono).expectNext(42).verifyComplete() }
+
+        assertThat(recorded.filter { it.id == "mono" }).hasSize(2).allMatch { it.elements == 1L }
+    }
+}
@@ -0,0 +1,102 @@
+package edu.vandy.recommender.common
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.springframework.web.client.RestTemplate
+import test.admin.AssignmentTests
+import java.time.Duration
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Checks that [RunTimer.flush] only exports what was buffered when
+ * it was called, that flushes never overlap, that [RunTimer.close]
+ * posts what's left, and that each batch of timings reports the drop
+ * counts.
+ */
+class RunTimerExportTest : AssignmentTests() {
+    private val urls = CopyOnWriteArrayList<String>()
+
+    private var refill: () -> Unit = {}
+
+    private val inFlight = AtomicInteger()
+
+    private val maxInFlight = AtomicInteger()
+
+    private val restTemplate = object : RestTemplate() {
+        override fun <T> postForObject(url: String, request: Any?, responseType: Class<T>, vararg uriVariables: Any): T? {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet()) { a, b -> maxOf(a, b) }
+            urls.add(url)
+            refill()
+            Thread.sleep(1)
+            inFlight.decrementAndGet()
+            return null
+        }
+    }
+
+    /**
+     * A batch size larger than the capacity keeps the exporter thread
+     * parked, so only the test calls [RunTimer.flush].
+     */
+    private fun runTimer(capacity: Int) =
+        RunTimer(restTemplate, "movies", capacity, 1_000, Duration.ofHours(1))
+
+    @Test
+    fun `flush stops at what was buffered when it started`() {
+        val runTimer = runTimer(64)
+        refill = { repeat(4) { runTimer.record(Timer("refill")) } }
+        repeat(10) { runTimer.record(Timer("timed")) }
+
+        assertThat(runTimer.flush()).isEqualTo(10)
+        assertThat(urls).hasSize(1)
+        assertThat(runTimer.flush()).isEqualTo(4)
+        assertThat(runTimer.getExported()).isEqualTo(14L)
+    }
+
+    @Test
+    fun `timings report the drop counts`() {
+        val runTimer = runTimer(2)
+        repeat(5) { runTimer.record(Timer("timed")) }
+
+        assertThat(runTimer.getDroppedOnOverflow()).isEqualTo(3L)
+        assertThat(runTimer.flush()).isEqualTo(2)
+        assertThat(urls.single())
+            .contains("service=movies")
+            .contains("droppedOnOverflow=3")
+            .contains("droppedOnError=0")
+    }
+
+    @Test
+    fun `concurrent flushes post one batch at a time`() {
+        val runTimer = runTimer(4_096)
+        Executors.newVirtualThreadPerTaskExecutor().use { executor ->
+            repeat(8) {
+                executor.submit {
+                    repeat(50) {
+                        runTimer.record(Timer("timed"))
+                        runTimer.flush()
+                    }
+                }
+            }
+        }
+        runTimer.flush()
+
+        assertThat(maxInFlight.get()).isEqualTo(1)
+        assertThat(runTimer.getExported()).isEqualTo(400L)
+    }
+
+    @Test
+    fun `close posts what is buffered and stops exporting`() {
+        val runTimer = runTimer(64)
+        repeat(3) { runTimer.record(Timer("timed")) }
+
+        runTimer.close()
+        assertThat(runTimer.getExported()).isEqualTo(3L)
+
+        runTimer.record(Timer("late"))
+        Thread.sleep(50)
+        assertThat(runTimer.getExported()).isEqualTo(3L)
+        assertThat(runTimer.flush()).isEqualTo(1)
+    }
+}
@@ -0,0 +1,65 @@
+package edu.vandy.recommender.common
+
+import edu.vandy.recommender.common.model.VectorConverter
+import edu.vandy.recommender.utils.ArrayUtils
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import org.assertj.core.api.Assertions.within
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.nio.ByteBuffer
+import kotlin.random.Random
+
+/**
+ * Checks that [VectorCodec] round-trips vectors in both precisions
+ * and that the load, JPA and R2DBC paths handle packed vectors.
+ */
+internal class VectorCodecTest : AssignmentTests() {
+    private val random = Random(42)
+
+    private val vector = (1..100).map { random.nextDouble(-1.0, 1.0) }
+
+    @Test
+    fun `double precision round-trips exactly`() {
+        val bytes = VectorCodec.encode(vector, false)
+
+        assertThat(bytes).hasSize(1 + vector.size * 8)
+        assertThat(VectorCodec.decode(bytes).toList()).isEqualTo(vector)
+    }
+
+    @Test
+    fun `single precision round-trips to float accuracy`() {
+        val bytes = VectorCodec.encode(vector, true)
+
+        assertThat(bytes).hasSize(1 + vector.size * 4)
+        VectorCodec.decode(bytes).forEachIndexed { i, value ->
+            assertThat(value).isCloseTo(vector[i], within(1e-6))
+        }
+    }
+
+    @Test
+    fun `packed vectors decode via the converter and obj2List`() {
+        val bytes = VectorCodec.encode(vector, false)
+
+        assertThat(VectorConverter().convertToEntityAttribute(bytes)).isEqualTo(vector)
+        assertThat(VectorConverter().convertToDatabaseColumn(vector)).isEqualTo(bytes)
+        assertThat(ArrayUtils.obj2List(ByteBuffer.wrap(bytes), Double::class.javaObjectType)).isEqualTo(vector)
+        assertThat(ArrayUtils.obj2List(arrayOf<Any>(1.5, "2.5"), Double::class.javaObjectType))
+            .containsExactly(1.5, 2.5)
+    }
+
+    @Test
+    fun `pack encodes the arrays loaded by data sql`() {
+        val array = vector.toTypedArray()
+
+        assertThat(VectorCodec.pack(array, false)).isEqualTo(VectorCodec.encode(vector, false))
+        assertThat(VectorCodec.pack(array, true)).isEqualTo(VectorCodec.encode(vector, true))
+        assertThat(VectorCodec.pack(null, false)).isNull()
+    }
+
+    @Test
+    fun `unknown component sizes are rejected`() {
+        assertThatThrownBy { VectorCodec.decode(byteArrayOf(3, 0, 0, 0)) }
+            .isInstanceOf(IllegalArgumentException::class.java)
+    }
+}
@@ -0,0 +1,74 @@
+package edu.vandy.recommender.utils
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * Checks that [RingBuffer] keeps elements in order, refuses elements
+ * when it's full, and neither loses nor duplicates elements when
+ * used concurrently.
+ */
+class RingBufferTest : AssignmentTests() {
+    @Test
+    fun `capacity is rounded up to a power of two`() {
+        assertThat(RingBuffer<Int>(1).capacity()).isEqualTo(1)
+        assertThat(RingBuffer<Int>(1000).capacity()).isEqualTo(1024)
+        assertThat(RingBuffer<Int>(1024).capacity()).isEqualTo(1024)
+    }
+
+    @Test
+    fun `elements are removed in order and a full ring refuses elements`() {
+        val ring = RingBuffer<Int>(8)
+
+        repeat(3) { lap ->
+            (0 until 8).forEach { assertThat(ring.offer(lap * 8 + it)).isTrue() }
+            assertThat(ring.offer(-1)).isFalse()
+            assertThat(ring.size()).isEqualTo(8)
+
+            val drained = mutableListOf<Int>()
+            assertThat(ring.drainTo(drained, 5)).isEqualTo(5)
+            assertThat(ring.drainTo(drained, 100)).isEqualTo(3)
+            assertThat(drained).isEqualTo((0 until 8).map { lap * 8 + it })
+            assertThat(ring.poll()).isNull()
+        }
+    }
+
+    @Test
+    fun `concurrent producers and consumers neither lose nor duplicate elements`() {
+        val ring = RingBuffer<Long>(64)
+        val producers = 4
+        val perProducer = 100_000
+        val dropped = LongAdder()
+        val consumed = LongAdder()
+        val seen = java.util.concurrent.ConcurrentHashMap.newKeySet<Long>()
+        val done = AtomicBoolean()
+        val executor = Executors.newFixedThreadPool(producers + 2)
+
+        val consumers = (1..2).map {
+            executor.submit {
+                while (true) {
+                    val element = ring.poll()
+                    if (element != null) {
+                        assertThat(seen.add(element)).isTrue()
+                        consumed.increment()
+                    } else if (done.get() && ring.size() == 0) break
+                }
+            }
+        }
+
+        (0 until producers).map { p ->
+            executor.submit {
+                repeat(perProducer) { if (!ring.offer(p * 1_000_000L + it)) dropped.increment() }
+            }
+        }.forEach { it.get() }
+        done.set(true)
+        consumers.forEach { it.get() }
+        executor.shutdown()
+
+        assertThat(consumed.sum() + dropped.sum()).isEqualTo(producers * perProducer.toLong())
+    }
+}
@@ -1,6 +1,7 @@
 package edu.vandy.recommender.database.repository;
 
 import edu.vandy.recommender.common.model.Movie;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -37,4 +38,18 @@ public interface DatabaseRepository
      *         order
      */
     // TODO -- you fill in here.
+
+    /**
+     * Find the next page of {@link Movie} rows whose Id (movie title)
+     * follows {@code id} in ascending order.  Seeking past the last
+     * Id of the previous page uses the primary key index, so reading
+     * all movies page by page never scans or skips rows.
+     *
+     * @param id The Id of the last {@link Movie} of the previous page
+     * @param pageable The size of the page
+     * @return A {@link List} of at most {@code pageable.getPageSize()}
+     *         {@link Movie} objects sorted in ascending order by Id
+     */
+    List<Movie> findByIdGreaterThanOrderByIdAsc(String id,
+                                                Pageable pageable);
 }
@@ -1,6 +1,7 @@
 package edu.vandy.recommender.database.repository;
 
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.Ranking;
 
 import java.util.List;
 
@@ -21,4 +22,64 @@ public interface MultiQueryRepository {
      *         (ignoring case) sorted in ascending order
      */
     List<Movie> findAllByIdContainingInOrderByAsc(List<String> queries);
+
+    /**
+     * Find a {@link List} of {@link Movie} objects in the database
+     * containing at least one of the {@code queries} (ignoring case)
+     * sorted in ascending order (ignoring case) using a single SQL
+     * statement.
+     *
+     * @param queries List of queries
+     * @return A {@link List} of {@link Movie} objects in the database
+     *         containing at least one of the {@code queries}
+     *         (ignoring case) sorted in ascending order (ignoring case)
+     */
+    List<Movie> findAllByIdContainingAnyInOrderByAsc(List<String> queries);
+
+    /**
+     * Find a {@link List} of {@link Movie} objects in the database
+     * containing all the {@code queries} (ignoring case) sorted in
+     * ascending order (ignoring case) using a single SQL statement.
+     *
+     * @param queries List of queries
+     * @return A {@link List} of {@link Movie} objects in the database
+     *         containing all the {@code queries} (ignoring case)
+     *         sorted in ascending order (ignoring case)
+     */
+    List<Movie> findAllByIdContainingAllInOrderByAsc(List<String> queries);
+
+    /**
+     * Find the titles of all {@link Movie} objects in the database
+     * sorted in ascending order (ignoring case) without loading their
+     * vectors.
+     *
+     * @return A {@link List} of all movie titles sorted in ascending
+     *         order (ignoring case)
+     */
+    List<String> findAllTitlesInOrderByAsc();
+
+    /**
+     * Find the titles of {@link Movie} objects in the database
+     * containing at least one of the {@code queries} (ignoring case)
+     * sorted in ascending order without loading their vectors.
+     *
+     * @param queries List of queries
+     * @return A {@link List} of matching movie titles sorted in
+     *         ascending order (ignoring case)
+     */
+    List<String> findTitlesByIdContainingAnyInOrderByAsc(List<String> queries);
+
+    /**
+     * Find the {@code maxCount} movies in the database most similar
+     * to the {@code watchedMovies}, ranked by the sum of their cosine
+     * similarities to each watched movie, which are computed inside
+     * the database.
+     *
+     * @param watchedMovies The titles of the watched movies
+     * @param maxCount The upper limit for the number of rankings
+     * @return A {@link List} of at most {@code maxCount} {@link
+     *         Ranking} objects sorted in descending order of
+     *         similarity, excluding the {@code watchedMovies}
+     */
+    List<Ranking> findMostSimilar(List<String> watchedMovies, int maxCount);
 }
@@ -1,11 +1,16 @@
 package edu.vandy.recommender.database.repository;
 
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.Ranking;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
 import jakarta.persistence.criteria.*;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * This implementation defines a method that returns a {@link List} of
@@ -14,6 +19,33 @@ import java.util.List;
  */
 public class MultiQueryRepositoryImpl
        implements MultiQueryRepository {
+    /**
+     * The batched search statement, where the first '%s' is replaced
+     * by the selected columns and the second by one {@code LIKE}
+     * predicate per query over the lower-cased title, joined by "or"
+     * or "and".  The patterns start with a '%' wildcard, so H2 scans
+     * the table rather than seeking an index, but it does so once for
+     * all the queries.  Results are sorted by the lower-cased title
+     * and then by title (id), so titles that differ only in case keep
+     * a stable order.
+     */
+    private static final String BATCHED_SEARCH_SQL =
+        "select %s from MOVIE where %s order by lower(id), id";
+
+    /**
+     * The similarity statement, which joins every candidate movie
+     * with each watched movie and sums their {@code
+     * COSINE_SIMILARITY}, so only the top titles and scores leave the
+     * database.
+     */
+    private static final String MOST_SIMILAR_SQL = """
+        select m.id, sum(COSINE_SIMILARITY(m.vector, w.vector)) as similarity
+        from MOVIE m join MOVIE w on w.id in (:watched)
+        where m.id not in (:watched)
+        group by m.id
+        order by similarity desc, m.id
+        limit :maxCount""";
+
     /**
      * This field represents a session with the database, providing
      * the main API for performing CRUD (Create, Read, Update, Delete)
@@ -122,4 +154,192 @@ public class MultiQueryRepositoryImpl
         // proper solution.
         return null;
     }
+
+    /**
+     * Find the {@code maxCount} movies in the database most similar
+     * to the {@code watchedMovies}, ranked by the sum of their cosine
+     * similarities to each watched movie, which are computed inside
+     * the database.
+     *
+     * @param watchedMovies The titles of the watched movies
+     * @param maxCount The upper limit for the number of rankings
+     * @return A {@link List} of at most {@code maxCount} {@link
+     *         Ranking} objects sorted in descending order of
+     *         similarity, excluding the {@code watchedMovies}
+     */
+    @Override
+    public List<Ranking> findMostSimilar(List<String> watchedMovies,
+                                         int maxCount) {
+        if (watchedMovies.isEmpty() || maxCount <= 0)
+            return List.of();
+
+        // Each title is bound as its own "in" parameter, so drop
+        // repeated titles before they reach the statement.
+        var watched = watchedMovies
+            // Convert the List to a Stream.
+            .stream()
+
+            // Remove duplicate titles.
+            .distinct()
+
+            // Convert the Stream to a List.
+            .toList();
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = mEntityManager
+            .createNativeQuery(MOST_SIMILAR_SQL)
+            .setParameter("watched", watched)
+            .setParameter("maxCount", maxCount)
+            .getResultList();
+
+        return rows
+            // Convert the List to a Stream.
+            .stream()
+
+            // Convert each (title, similarity) row into a Ranking.
+            .map(row -> new Ranking((String) row[0],
+                                    ((Number) row[1]).doubleValue()))
+
+            // Convert the Stream to a List.
+            .toList();
+    }
+
+    /**
+     * Find a {@link List} of {@link Movie} objects in the database
+     * containing at least one of the {@code queries} (ignoring case)
+     * sorted in ascending order (ignoring case) using a single SQL
+     * statement.
+     *
+     * @param queries List of queries
+     * @return A {@link List} of {@link Movie} objects in the database
+     *         containing at least one of the {@code queries}
+     *         (ignoring case) sorted in ascending order (ignoring case)
+     */
+    @Override
+    public List<Movie> findAllByIdContainingAnyInOrderByAsc
+        (List<String> queries) {
+        return findAllByTitleLike(queries, " or ");
+    }
+
+    /**
+     * Find a {@link List} of {@link Movie} objects in the database
+     * containing all the {@code queries} (ignoring case) sorted in
+     * ascending order (ignoring case) using a single SQL statement.
+     *
+     * @param queries List of queries
+     * @return A {@link List} of {@link Movie} objects in the database
+     *         containing all the {@code queries} (ignoring case)
+     *         sorted in ascending order (ignoring case)
+     */
+    @Override
+    public List<Movie> findAllByIdContainingAllInOrderByAsc
+        (List<String> queries) {
+        return findAllByTitleLike(queries, " and ");
+    }
+
+    /**
+     * Find the titles of all {@link Movie} objects in the database
+     * sorted in ascending order (ignoring case) without loading their
+     * vectors.
+     *
+     * @return A {@link List} of all movie titles sorted in ascending
+     *         order (ignoring case)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> findAllTitlesInOrderByAsc() {
+        return (List<String>) createBatchedQuery("id", List.of(), " and ")
+            .getResultList();
+    }
+
+    /**
+     * Find the titles of {@link Movie} objects in the database
+     * containing at least one of the {@code queries} (ignoring case)
+     * sorted in ascending order without loading their vectors.
+     *
+     * @param queries List of queries
+     * @return A {@link List} of matching movie titles sorted in
+     *         ascending order (ignoring case)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> findTitlesByIdContainingAnyInOrderByAsc
+        (List<String> queries) {
+        return (List<String>) createBatchedQuery("id", queries, " or ")
+            .getResultList();
+    }
+
+    /**
+     * Perform one SQL statement that combines a {@code LIKE}
+     * predicate per query with the {@code operator} and returns the
+     * matching {@link Movie} objects.
+     *
+     * @param queries List of queries
+     * @param operator Either " or " or " and "
+     * @return A {@link List} of matching {@link Movie} objects sorted
+     *         in ascending order (ignoring case)
+     */
+    @SuppressWarnings("unchecked")
+    protected List<Movie> findAllByTitleLike(List<String> queries,
+                                             String operator) {
+        return (List<Movie>) createBatchedQuery("id, vector",
+                                                queries,
+                                                operator)
+            .getResultList();
+    }
+
+    /**
+     * Create one SQL statement that combines a {@code LIKE} predicate
+     * per query with the {@code operator}.  The queries are bound as
+     * parameters, so the statement text only depends on the selected
+     * columns and the number of queries, and the database reuses its
+     * plan across requests.  Rows are unique by primary key, so the
+     * results need no further deduplication.
+     *
+     * @param columns Either "id" for titles only, or "id, vector" for
+     *                {@link Movie} objects
+     * @param queries List of queries
+     * @param operator Either " or " or " and "
+     * @return The {@link Query} to execute
+     */
+    private Query createBatchedQuery(String columns,
+                                     List<String> queries,
+                                     String operator) {
+        String where;
+        if (queries.isEmpty())
+            // An empty "or" matches nothing and an empty "and"
+            // matches everything.
+            where = operator.equals(" and ") ? "true" : "false";
+        else
+            where = IntStream
+                // Bind each query to its own positional parameter.
+                .rangeClosed(1, queries.size())
+                .mapToObj(i -> "lower(id) like ?" + i + " escape '\\'")
+                .collect(Collectors.joining(operator));
+
+        var sql = BATCHED_SEARCH_SQL.formatted(columns, where);
+        var query = columns.equals("id")
+            ? mEntityManager.createNativeQuery(sql, String.class)
+            : mEntityManager.createNativeQuery(sql, Movie.class);
+
+        for (int i = 0; i < queries.size(); i++)
+            query.setParameter(i + 1, toLikePattern(queries.get(i)));
+
+        return query;
+    }
+
+    /**
+     * @param query A search query
+     * @return A {@code LIKE} pattern that matches lower-cased titles
+     *         containing the {@code query} literally
+     */
+    private static String toLikePattern(String query) {
+        return "%"
+            + query
+            .toLowerCase(Locale.ROOT)
+            .replace("\\", "\\\\")
+            .replace("%", "\\%")
+            .replace("_", "\\_")
+            + "%";
+    }
 }
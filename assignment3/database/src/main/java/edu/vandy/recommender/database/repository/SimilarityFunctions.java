@@ -0,0 +1,96 @@
+package edu.vandy.recommender.database.repository;
+
+import edu.vandy.recommender.common.VectorCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * This class defines the Java static methods behind the H2
+ * user-defined functions created by {@code schema.sql}, which lets
+ * queries rank movies by the similarity of their stored vectors
+ * without shipping the vectors out of the database.
+ *
+ * The methods work directly on the packed vectors written by {@link
+ * VectorCodec}, reading each component in place rather than
+ * unpacking a vector into a new array for every row a query visits.
+ */
+public final class SimilarityFunctions {
+    /**
+     * A Java utility class should have a private constructor.
+     */
+    private SimilarityFunctions() {}
+
+    /**
+     * Compute the cosine similarity of two packed vectors.  This
+     * method backs the {@code COSINE_SIMILARITY} SQL function.
+     *
+     * @param a A vector packed by {@link VectorCodec}
+     * @param b Another vector packed by {@link VectorCodec}
+     * @return The cosine similarity of {@code a} and {@code b}, 0 if
+     *         either is a zero vector, or null if either is null
+     */
+    public static Double cosineSimilarity(byte[] a, byte[] b) {
+        if (a == null || b == null)
+            return null;
+
+        var x = ByteBuffer.wrap(a).order(ByteOrder.LITTLE_ENDIAN);
+        var y = ByteBuffer.wrap(b).order(ByteOrder.LITTLE_ENDIAN);
+        int xWidth = componentWidth(x);
+        int yWidth = componentWidth(y);
+        int dimension = (a.length - 1) / xWidth;
+
+        if ((b.length - 1) / yWidth != dimension)
+            throw new IllegalArgumentException
+                ("Vector dimensions "
+                 + dimension
+                 + " and "
+                 + (b.length - 1) / yWidth
+                 + " differ");
+
+        double dotProduct = 0.0;
+        double normA = 0.0;
+        double normB = 0.0;
+
+        for (int i = 0; i < dimension; i++) {
+            double xi = component(x, xWidth, i);
+            double yi = component(y, yWidth, i);
+
+            dotProduct += xi * yi;
+            normA += xi * xi;
+            normB += yi * yi;
+        }
+
+        return normA == 0.0 || normB == 0.0
+            ? 0.0
+            : dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    /**
+     * @param packed A vector packed by {@link VectorCodec}
+     * @return The number of bytes per component of {@code packed}
+     */
+    private static int componentWidth(ByteBuffer packed) {
+        int width = packed.get(0);
+
+        if (width != Float.BYTES && width != Double.BYTES)
+            throw new IllegalArgumentException
+                ("Unsupported bytes per component: " + width);
+
+        return width;
+    }
+
+    /**
+     * @param packed A vector packed by {@link VectorCodec}
+     * @param width The number of bytes per component of {@code packed}
+     * @param i The component index
+     * @return The {@code i}'th component of {@code packed}
+     */
+    private static double component(ByteBuffer packed, int width, int i) {
+        int index = 1 + i * width;
+
+        return width == Float.BYTES
+            ? packed.getFloat(index)
+            : packed.getDouble(index);
+    }
+}
@@ -1,11 +1,16 @@
 package edu.vandy.recommender.database.server;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.Ranking;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -42,6 +47,20 @@ public class DatabaseController {
     @Autowired
     private DatabaseService mService;
 
+    /**
+     * Spring injected {@link ObjectMapper} used to write each line of
+     * the {@code GET_MOVIES_STREAM} response.
+     */
+    @Autowired
+    private ObjectMapper mObjectMapper;
+
+    /**
+     * The number of movies read from the database and written to the
+     * {@code GET_MOVIES_STREAM} response at a time.
+     */
+    @Value("${app.stream.chunk-size:500}")
+    private int mStreamChunkSize;
+
     /**
      * @return The application id
      */
@@ -77,6 +96,47 @@ public class DatabaseController {
             .getMoviesMap();
     }
 
+    /**
+     * Streams the movie titles and cosine vectors as newline-delimited
+     * JSON, where each line is a single-entry object that associates
+     * one movie title with its cosine vector, i.e., one entry of the
+     * {@code GET_MOVIES_MAP} response.  Movies are read from the
+     * database and written one chunk at a time, so neither side ever
+     * holds the whole document.  Writing blocks while the client
+     * isn't reading, so the next chunk isn't read from the database
+     * until the client has caught up.
+     *
+     * @return A {@link StreamingResponseBody} that writes all movies
+     *         sorted in ascending order by title
+     */
+    @GetMapping(value = GET_MOVIES_STREAM,
+                produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody getMoviesStream() {
+        return outputStream -> {
+            var lastId = "";
+            List<Movie> chunk;
+
+            do {
+                chunk = mService
+                    // Forward to the service.
+                    .getMoviesAfter(lastId, mStreamChunkSize);
+
+                for (var movie : chunk) {
+                    outputStream.write(mObjectMapper
+                                       .writeValueAsBytes(Map.of(movie.id,
+                                                                 movie.vector)));
+                    outputStream.write('\n');
+                }
+
+                // Send this chunk before reading the next one.
+                outputStream.flush();
+
+                if (!chunk.isEmpty())
+                    lastId = chunk.get(chunk.size() - 1).id;
+            } while (chunk.size() == mStreamChunkSize);
+        };
+    }
+
     /**
      * Returns all movies in the database.
      *
@@ -119,6 +179,27 @@ public class DatabaseController {
             .search(queries);
     }
 
+    /**
+     * Search for movie titles in the database containing any (or
+     * all) of the given {@link String} queries using a single SQL
+     * statement.
+     *
+     * @param queries The search queries
+     * @param matchAll True if a title must contain all the queries,
+     *                 else false if it must contain at least one
+     * @return A {@link List} of movie titles containing the queries
+     *         represented as {@link Movie} objects sorted in
+     *         ascending order by title (ignoring case)
+     */
+    @PostMapping(POST_SEARCHES_BATCHED)
+    public List<Movie> searchBatched(@RequestBody List<String> queries,
+                                     @RequestParam(defaultValue = "false")
+                                     boolean matchAll) {
+        return mService
+            // Forward to the service's batched search.
+            .searchBatched(queries, matchAll);
+    }
+
     /**
      * Search for movie titles in the database containing the given
      * {@link String} queries using a custom SQL query.
@@ -133,4 +214,85 @@ public class DatabaseController {
             // Forward to the service.
             .searchEx(queries);
     }
+
+    /**
+     * Returns the titles of all movies in the database, which is much
+     * smaller than returning the movies with their vectors.
+     *
+     * @return The {@link List} of all movie titles in the database
+     */
+    @GetMapping(GET_ALL_TITLES)
+    public List<String> getTitles() {
+        return mService
+            // Forward to the service.
+            .getTitles();
+    }
+
+    /**
+     * Search for the titles of movies in the database containing the
+     * given query {@link String}.
+     *
+     * @param query The search query
+     * @return A {@link List} of movie titles containing the query
+     */
+    @GetMapping(GET_SEARCH_TITLES + "/" + SEARCH_QUERY)
+    public List<String> searchTitles(@PathVariable String query) {
+        return mService
+            // Forward to the service.
+            .searchTitles(query);
+    }
+
+    /**
+     * Search for the titles of movies in the database containing any
+     * of the given {@link String} queries.
+     *
+     * @param queries The search queries
+     * @return A {@link List} of movie titles containing the queries
+     */
+    @PostMapping(POST_SEARCHES_TITLES)
+    public List<String> searchTitles(@RequestBody List<String> queries) {
+        return mService
+            // Forward to the service.
+            .searchTitles(queries);
+    }
+
+    /**
+     * Recommend the {@code maxCount} movies in the database most
+     * similar to the {@code watchedMovie}, computed inside the
+     * database so no vectors are sent to the client.
+     *
+     * @param watchedMovie The title of the movie that has been
+     *                     watched
+     * @param maxCount The upper limit for the number of
+     *                 recommendations returned
+     * @return A {@link List} of {@link Ranking} objects most similar
+     *         to the {@code watchedMovie}
+     */
+    @GetMapping(GET_SIMILAR)
+    public List<Ranking> similar(@RequestParam String watchedMovie,
+                                 @RequestParam int maxCount) {
+        return mService
+            // Forward to the service.
+            .getSimilar(List.of(watchedMovie), maxCount);
+    }
+
+    /**
+     * Recommend the {@code maxCount} movies in the database most
+     * similar to the {@code watchedMovies}, computed inside the
+     * database so no vectors are sent to the client.
+     *
+     * @param watchedMovies The titles of the movies that have been
+     *                      watched
+     * @param maxCount The upper limit for the number of
+     *                 recommendations returned
+     * @return A {@link List} of {@link Ranking} objects most similar
+     *         to the {@code watchedMovies}
+     */
+    @PostMapping(POST_SIMILAR)
+    public List<Ranking> similar(@RequestBody List<String> watchedMovies,
+                                 @RequestParam int maxCount) {
+        return mService
+            // Forward to the service.
+            .getSimilar(watchedMovies, maxCount);
+    }
 }
@@ -2,6 +2,7 @@ package edu.vandy.recommender.database.server;
 
 import edu.vandy.recommender.common.RunTimer;
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.Ranking;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.web.bind.annotation.*;
@@ -139,4 +140,140 @@ public class DatabaseControllerTimed {
                               + POST_SEARCHES_EX,
                               () -> mController.searchEx(queries));
     }
+
+    /**
+     * Search for movie titles in the database containing any (or
+     * all) given {@link String} queries using a single SQL statement.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param queries The search queries
+     * @param matchAll True if a title must contain all the queries,
+     *                 else false if it must contain at least one
+     * @return A {@link List} of movie titles containing the queries
+     *         represented as {@link Movie} objects
+     */
+    @PostMapping(POST_SEARCHES_BATCHED)
+    public List<Movie> searchTimedBatched(@RequestBody List<String> queries,
+                                          @RequestParam(defaultValue = "false")
+                                          boolean matchAll) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + POST_SEARCHES_BATCHED,
+                              () -> mController.searchBatched(queries,
+                                                              matchAll));
+    }
+
+    /**
+     * Returns the titles of all movies in the database.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @return The {@link List} of all movie titles in the database
+     */
+    @GetMapping(GET_ALL_TITLES)
+    public List<String> getTitlesTimed() {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + GET_ALL_TITLES,
+                              () -> mController.getTitles());
+    }
+
+    /**
+     * Search for the titles of movies in the database containing the
+     * given query {@link String}.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param query The search query
+     * @return A {@link List} of movie titles containing the query
+     */
+    @GetMapping(GET_SEARCH_TITLES + "/" + SEARCH_QUERY)
+    public List<String> searchTitlesTimed(@PathVariable String query) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + GET_SEARCH_TITLES,
+                              () -> mController.searchTitles(query));
+    }
+
+    /**
+     * Search for the titles of movies in the database containing any
+     * given {@link String} queries.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param queries The search queries
+     * @return A {@link List} of movie titles containing any queries
+     */
+    @PostMapping(POST_SEARCHES_TITLES)
+    public List<String> searchTitlesTimed(@RequestBody List<String> queries) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + POST_SEARCHES_TITLES,
+                              () -> mController.searchTitles(queries));
+    }
+
+    /**
+     * Recommend the {@code maxCount} movies in the database most
+     * similar to the {@code watchedMovie}.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param watchedMovie The title of the movie that has been
+     *                     watched
+     * @param maxCount The upper limit for the number of
+     *                 recommendations returned
+     * @return A {@link List} of {@link Ranking} objects most similar
+     *         to the {@code watchedMovie}
+     */
+    @GetMapping(GET_SIMILAR)
+    public List<Ranking> similarTimed(@RequestParam String watchedMovie,
+                                      @RequestParam int maxCount) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + GET_SIMILAR,
+                              () -> mController.similar(watchedMovie,
+                                                        maxCount));
+    }
+
+    /**
+     * Recommend the {@code maxCount} movies in the database most
+     * similar to the {@code watchedMovies}.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param watchedMovies The titles of the movies that have been
+     *                      watched
+     * @param maxCount The upper limit for the number of
+     *                 recommendations returned
+     * @return A {@link List} of {@link Ranking} objects most similar
+     *         to the {@code watchedMovies}
+     */
+    @PostMapping(POST_SIMILAR)
+    public List<Ranking> similarTimed(@RequestBody List<String> watchedMovies,
+                                      @RequestParam int maxCount) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + POST_SIMILAR,
+                              () -> mController.similar(watchedMovies,
+                                                        maxCount));
+    }
 }
@@ -1,9 +1,11 @@
 package edu.vandy.recommender.database.server;
 
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.Ranking;
 import edu.vandy.recommender.database.repository.DatabaseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -74,6 +76,25 @@ public class DatabaseService {
         // SOLUTION-END return null;
     }
 
+    /**
+     * Get the next chunk of {@link Movie} database entries after the
+     * given title, which lets callers read all movies one bounded
+     * chunk at a time instead of materializing them all at once.
+     *
+     * @param id The title (id) of the last {@link Movie} of the
+     *           previous chunk, or an empty {@link String} to get the
+     *           first chunk
+     * @param chunkSize The max number of {@link Movie} objects to get
+     * @return A {@link List} of at most {@code chunkSize} {@link
+     *         Movie} objects sorted in ascending order by the {@link
+     *         Movie} title (id)
+     */
+    public List<Movie> getMoviesAfter(String id, int chunkSize) {
+        return mRepository
+            .findByIdGreaterThanOrderByIdAsc(id,
+                                             PageRequest.of(0, chunkSize));
+    }
+
     /**
      * @return A {@link List} of all {@link Movie} database entries
      * sorted in ascending order by the {@link Movie} title (id)
@@ -145,6 +166,82 @@ public class DatabaseService {
         // SOLUTION-END return null;
     }
 
+    /**
+     * Search for movie titles in the database containing any (or
+     * all) of the given {@link String} queries (ignoring case) using
+     * one SQL statement for all the queries, rather than one
+     * repository call per query.  Unlike {@link #search(List)}, the
+     * database sorts the results by the lower-cased title, so titles
+     * that differ only in case are ordered by title (id).
+     *
+     * @param queries The {@link List} of search queries
+     * @param matchAll True if a title must contain all the queries,
+     *                 else false if it must contain at least one
+     * @return A {@link List} of {@link Movie} objects containing the
+     *         queries sorted in ascending order by the {@link Movie}
+     *         title (ignoring case)
+     */
+    public List<Movie> searchBatched(List<String> queries,
+                                     boolean matchAll) {
+        return matchAll
+            ? mRepository.findAllByIdContainingAllInOrderByAsc(queries)
+            : mRepository.findAllByIdContainingAnyInOrderByAsc(queries);
+    }
+
+    /**
+     * @return A {@link List} of all movie titles in the database
+     *         sorted in ascending order (ignoring case), which avoids
+     *         loading and serializing every vector
+     */
+    public List<String> getTitles() {
+        return mRepository.findAllTitlesInOrderByAsc();
+    }
+
+    /**
+     * Search for the titles of movies in the database containing the
+     * given {@code query} (ignoring case) without loading their
+     * vectors.
+     *
+     * @param query The search query
+     * @return A {@link List} of matching movie titles sorted in
+     *         ascending order (ignoring case)
+     */
+    public List<String> searchTitles(String query) {
+        return mRepository
+            .findTitlesByIdContainingAnyInOrderByAsc(List.of(query));
+    }
+
+    /**
+     * Search for the titles of movies in the database containing any
+     * of the given {@code queries} (ignoring case) without loading
+     * their vectors.
+     *
+     * @param queries The {@link List} of search queries
+     * @return A {@link List} of matching movie titles sorted in
+     *         ascending order (ignoring case)
+     */
+    public List<String> searchTitles(List<String> queries) {
+        return mRepository
+            .findTitlesByIdContainingAnyInOrderByAsc(queries);
+    }
+
+    /**
+     * Recommend the {@code maxCount} movies most similar to the
+     * {@code watchedMovies}, which is computed inside the database so
+     * no vectors are loaded into this service.
+     *
+     * @param watchedMovies The titles of the watched movies
+     * @param maxCount The upper limit for the number of
+     *                 recommendations returned
+     * @return A {@link List} of at most {@code maxCount} {@link
+     *         Ranking} objects sorted in descending order of
+     *         similarity
+     */
+    public List<Ranking> getSimilar(List<String> watchedMovies,
+                                    int maxCount) {
+        return mRepository.findMostSimilar(watchedMovies, maxCount);
+    }
+
     /**
      * Search for movie titles in the database containing the given
      * {@link String} queries using a custom SQL query.
@@ -0,0 +1,6 @@
+-- Run after data.sql to replace the vector arrays it inserts by
+-- vectors packed with float32 components (see VectorCodec).
+alter table MOVIE add column packed varbinary;
+update MOVIE set packed = PACK_VECTOR(vector, true);
+alter table MOVIE drop column vector;
+alter table MOVIE alter column packed rename to vector;
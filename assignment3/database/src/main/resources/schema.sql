@@ -1,6 +1,17 @@
 drop table if exists MOVIE;
 create table MOVIE (
     id varchar(255) not null,
+    -- data.sql inserts each vector as an array literal, which a
+    -- pack-vectors script then replaces by a packed binary column.
     vector double precision array,
     primary key (id)
 );
+
+-- Rank movies by similarity inside the database (see
+-- SimilarityFunctions).
+create alias if not exists COSINE_SIMILARITY deterministic
+    for 'edu.vandy.recommender.database.repository.SimilarityFunctions.cosineSimilarity';
+
+-- Pack a loaded vector array into the binary form of VectorCodec.
+create alias if not exists PACK_VECTOR deterministic
+    for 'edu.vandy.recommender.common.VectorCodec.pack';
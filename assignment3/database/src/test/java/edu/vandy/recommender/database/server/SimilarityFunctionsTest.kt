@@ -0,0 +1,54 @@
+package edu.vandy.recommender.database.server
+
+import edu.vandy.recommender.common.VectorCodec
+import edu.vandy.recommender.database.repository.SimilarityFunctions
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import org.assertj.core.api.Assertions.within
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import kotlin.math.sqrt
+import kotlin.random.Random
+
+/**
+ * Checks that [SimilarityFunctions.cosineSimilarity] computes the
+ * cosine similarity of packed vectors of either precision.
+ */
+class SimilarityFunctionsTest : AssignmentTests() {
+    private val random = Random(42)
+
+    private fun cosine(a: DoubleArray, b: DoubleArray) =
+        a.indices.sumOf { a[it] * b[it] } /
+            (sqrt(a.sumOf { it * it }) * sqrt(b.sumOf { it * it }))
+
+    @Test
+    fun `matches cosine similarity of unpacked vectors`() {
+        repeat(100) {
+            val a = DoubleArray(32) { random.nextDouble(-1.0, 1.0) }
+            val b = DoubleArray(32) { random.nextDouble(-1.0, 1.0) }
+
+            assertThat(SimilarityFunctions.cosineSimilarity(VectorCodec.encode(a, false), VectorCodec.encode(b, false)))
+                .isCloseTo(cosine(a, b), within(1e-12))
+            assertThat(SimilarityFunctions.cosineSimilarity(VectorCodec.encode(a, true), VectorCodec.encode(b, false)))
+                .isCloseTo(cosine(a, b), within(1e-5))
+        }
+    }
+
+    @Test
+    fun `handles null and zero vectors`() {
+        val a = VectorCodec.encode(doubleArrayOf(1.0, 2.0), false)
+
+        assertThat(SimilarityFunctions.cosineSimilarity(a, null)).isNull()
+        assertThat(SimilarityFunctions.cosineSimilarity(a, VectorCodec.encode(DoubleArray(2), true))).isZero()
+    }
+
+    @Test
+    fun `rejects mismatched dimensions`() {
+        assertThatThrownBy {
+            SimilarityFunctions.cosineSimilarity(
+                VectorCodec.encode(DoubleArray(2), false),
+                VectorCodec.encode(DoubleArray(3), false)
+            )
+        }.isInstanceOf(IllegalArgumentException::class.java)
+    }
+}
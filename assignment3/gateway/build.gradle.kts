@@ -1,4 +1,5 @@
 dependencies {
+    implementation(project(":tracing"))
     implementation("org.springframework.cloud:spring-cloud-starter-gateway")
     implementation("org.springframework.cloud:spring-cloud-starter-netflix-eureka-client")
 }
\ No newline at end of file
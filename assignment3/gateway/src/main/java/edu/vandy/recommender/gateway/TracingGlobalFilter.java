@@ -0,0 +1,216 @@
+package edu.vandy.recommender.gateway;
+
+import edu.vandy.recommender.common.Span;
+import edu.vandy.recommender.common.TraceContext;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This gateway filter records a span for each request routed to a
+ * microservice and propagates the W3C {@code traceparent} header to
+ * it, starting a new trace if the client didn't send one.  The span's
+ * context is returned in the {@code traceresponse} header so a client
+ * can look up the critical path of its request in the 'timer'
+ * microservice.
+ *
+ * The spans are buffered in a bounded queue and posted to the 'timer'
+ * microservice in batches, which is located via the discovery
+ * service.  Requests to the 'timer' microservice itself aren't
+ * traced, since that's where the timings and spans are exported to.
+ * The gateway doesn't depend on the {@code common} project, whose
+ * servlet-based web stack doesn't belong in a reactive gateway, but
+ * shares {@link TraceContext} and {@link Span} with it via the
+ * dependency-free {@code tracing} project.
+ */
+@Component
+public class TracingGlobalFilter
+       implements GlobalFilter, Ordered {
+    /**
+     * The name of this microservice recorded in each {@link Span}.
+     */
+    private static final String GATEWAY = "gateway";
+
+    /**
+     * The path prefix of requests that aren't traced.
+     */
+    private final String mExcludedPrefix;
+
+    /**
+     * The spans waiting to be exported.
+     */
+    private final BlockingQueue<Span> mSpans;
+
+    /**
+     * The max number of spans per batch.
+     */
+    private final int mBatchSize;
+
+    /**
+     * Posts the batches to the 'timer' microservice.
+     */
+    private final WebClient mWebClient;
+
+    /**
+     * The periodic export of the buffered spans.
+     */
+    private final Disposable mExporter;
+
+    /**
+     * The constructor initializes the fields and starts exporting.
+     *
+     * @param webClientBuilder A {@link WebClient.Builder}
+     * @param loadBalancer Resolves the host of the {@code
+     *                     collectorUrl} as a service registered with
+     *                     the discovery service
+     * @param collectorUrl The URL that accepts batches of spans, whose
+     *                     host is a service name (e.g., {@code
+     *                     http://timer/postSpans})
+     * @param excludedPrefix The path prefix of requests that aren't
+     *                       traced
+     * @param capacity The max number of buffered spans
+     * @param batchSize The max number of spans per batch
+     * @param flushInterval How often the buffered spans are exported
+     */
+    public TracingGlobalFilter
+        (WebClient.Builder webClientBuilder,
+         ReactorLoadBalancerExchangeFilterFunction loadBalancer,
+         @Value("${app.tracing.collector-url}") String collectorUrl,
+         @Value("${app.tracing.excluded-prefix:/timer/}")
+         String excludedPrefix,
+         @Value("${app.tracing.capacity:8192}") int capacity,
+         @Value("${app.tracing.batch-size:256}") int batchSize,
+         @Value("${app.tracing.flush-interval:1s}") Duration flushInterval) {
+        mExcludedPrefix = excludedPrefix;
+        mSpans = new ArrayBlockingQueue<>(capacity);
+        mBatchSize = batchSize;
+        mWebClient = webClientBuilder
+            // Look up the 'timer' microservice via discovery.
+            .filter(loadBalancer)
+            .baseUrl(collectorUrl)
+            .build();
+        mExporter = Flux
+            // Wake up once per flush interval.
+            .interval(flushInterval)
+
+            // Post the buffered spans one batch at a time.
+            .concatMap(tick -> exportAll())
+
+            // Keep exporting for the life of the gateway.
+            .subscribe();
+    }
+
+    /**
+     * Trace the request and forward it to the next filter.
+     */
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange,
+                             GatewayFilterChain chain) {
+        var request = exchange.getRequest();
+        String path = request.getPath().value();
+
+        if (path.startsWith(mExcludedPrefix))
+            return chain.filter(exchange);
+
+        var parent = TraceContext
+            .parse(request.getHeaders().getFirst(TraceContext.TRACEPARENT));
+
+        // Join the client's trace, or start a new one.
+        var span = parent == null
+            ? new Span(TraceContext.newTrace(),
+                       null,
+                       GATEWAY,
+                       request.getMethod() + " " + path)
+            : new Span(parent.newChild(),
+                       parent.spanId(),
+                       GATEWAY,
+                       request.getMethod() + " " + path);
+        String traceparent = span.context().traceparent();
+
+        // Make the gateway's span the parent of the microservice's.
+        var traced = exchange
+            .mutate()
+            .request(builder -> builder
+                     .headers(headers -> headers
+                              .set(TraceContext.TRACEPARENT, traceparent)))
+            .build();
+        traced
+            .getResponse()
+            .getHeaders()
+            .set(TraceContext.TRACERESPONSE, traceparent);
+
+        return chain
+            .filter(traced)
+            .doFinally(signal -> {
+                    var status = traced.getResponse().getStatusCode();
+                    span.endMicros = Span.nowMicros();
+                    span.error = signal == SignalType.ON_ERROR
+                        ? "onError"
+                        : status != null && status.is5xxServerError()
+                        ? "HTTP " + status.value()
+                        : null;
+
+                    // Drop the span if the buffer is full.
+                    mSpans.offer(span);
+                });
+    }
+
+    /**
+     * Run before the routing filters, so the span covers the whole
+     * hop through the gateway.
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    /**
+     * Stop exporting spans.
+     */
+    @PreDestroy
+    public void stop() {
+        mExporter.dispose();
+    }
+
+    /**
+     * @return A {@link Flux} that posts each batch of buffered spans
+     *         in turn, dropping a batch that can't be posted
+     */
+    private Flux<Integer> exportAll() {
+        return Flux
+            // Drain a batch each time the previous one is posted.
+            .<List<Span>>generate(sink -> {
+                    var batch = new ArrayList<Span>(mBatchSize);
+                    if (mSpans.drainTo(batch, mBatchSize) == 0)
+                        sink.complete();
+                    else
+                        sink.next(batch);
+                })
+
+            .concatMap(batch -> mWebClient
+                       // Post the batch to the 'timer' microservice.
+                       .post()
+                       .bodyValue(batch)
+                       .retrieve()
+                       .bodyToMono(Integer.class)
+
+                       // Spans are best effort, so drop the batch.
+                       .onErrorResume(e -> Mono.empty()));
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 import static edu.vandy.recommender.common.Constants.EndPoint.*;
 
@@ -109,7 +110,7 @@ public abstract class BaseController<T> {
         System.out.println("recommendations()");
         return getService()
             // Delegate request to service.
-            .getRecommendations(watchedMovie, maxCount);
+            .getCachedRecommendations(watchedMovie, maxCount);
     }
 
     /**
@@ -130,6 +131,70 @@ public abstract class BaseController<T> {
         System.out.println("recommendationsMany()");
         return getService()
             // Delegate request to service.
-            .getRecommendations(watchedMovies, maxCount);
+            .getCachedRecommendations(watchedMovies, maxCount);
+    }
+
+    /**
+     * Recommend approximately the {@code maxCount} movies from our
+     * movie database that are most similar to a {@code watchedMovie}
+     * the user has watched, using an approximate nearest-neighbor
+     * index instead of scanning every movie.
+     *
+     * @param watchedMovie A {@link String} indicating the title of the movie
+     *                     that has been watched
+     * @param maxCount     The upper limit for the number of
+     *                     recommendations returned
+     * @return A {@link T} of movie titles approximately most similar
+     * to the {@code watchedMovie}
+     */
+    @GetMapping(GET_APPROXIMATE_RECOMMENDATIONS)
+    public T approximateRecommendations(@RequestParam String watchedMovie,
+                                        @RequestParam int maxCount) {
+        System.out.println("approximateRecommendations()");
+        return getService()
+            // Delegate request to service.
+            .getApproximateRecommendations(watchedMovie, maxCount);
+    }
+
+    /**
+     * Returns all movie titles as plain {@link String} objects
+     * without their cosine vectors.
+     *
+     * @return A {@link List} of all movie titles in ascending order
+     *         (ignoring case)
+     */
+    @GetMapping(GET_ALL_TITLES)
+    public List<String> allTitles() {
+        return getService()
+            // Delegate request to the service.
+            .getAllTitles();
+    }
+
+    /**
+     * Search for the movie titles containing the given query {@link
+     * String} and return them as plain {@link String} objects.
+     *
+     * @param query The search query
+     * @return A {@link List} of movie titles containing the query in
+     *         ascending order (ignoring case)
+     */
+    @GetMapping(GET_SEARCH_TITLES + "/" + SEARCH_QUERY)
+    public List<String> searchTitles(@PathVariable String query) {
+        return getService()
+            // Delegate request to the service.
+            .searchTitles(query);
+    }
+
+    /**
+     * Returns the hit, miss, and eviction counters of the
+     * recommendation result cache.
+     *
+     * @return A {@link Map} of cache counters, which is empty if the
+     *         cache is disabled
+     */
+    @GetMapping(GET_CACHE_STATS)
+    public Map<String, Long> cacheStats() {
+        var cache = getService().mRecommendationCache;
+        return cache == null ? Map.of() : cache.stats();
     }
 }
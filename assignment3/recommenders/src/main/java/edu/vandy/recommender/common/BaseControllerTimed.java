@@ -124,4 +124,32 @@ public abstract class BaseControllerTimed<T> {
                 () -> mController.recommendations(watchedMovies,
                     maxCount));
     }
+
+    /**
+     * Recommend approximately the {@code maxCount} movies from our
+     * movie database that are most similar to a {@code watchedMovie}
+     * the user has watched.
+     * <p>
+     * This endpoint also records the execution run time of this call
+     * via the {@code Timer} microservice.
+     *
+     * @param watchedMovie A {@link String} indicating the title of the movie
+     *                     that has been watched
+     * @param maxCount     The upper limit for the number of
+     *                     recommendations returned
+     * @return A {@link T} of movie titles approximately most similar
+     * to the {@code watchedMovie}
+     */
+    @GetMapping(GET_APPROXIMATE_RECOMMENDATIONS)
+    public T approximateRecommendationsTimed(@RequestParam String watchedMovie,
+                                             @RequestParam int maxCount) {
+        System.out.println("approximateRecommendationsTimed()");
+        return mRunTimer
+            // Delegate request to service.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + GET_APPROXIMATE_RECOMMENDATIONS,
+                () -> mController.approximateRecommendations(watchedMovie,
+                    maxCount));
+    }
 }
@@ -1,11 +1,17 @@
 package edu.vandy.recommender.common;
 
+import edu.vandy.recommender.common.model.Ranking;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 /**
  * This abstract class defines the methods that are called by the
@@ -35,6 +41,56 @@ public abstract class BaseService<T> {
     @Qualifier("movieMap")
     protected Map<String, List<Double>> mMovieMap;
 
+    /**
+     * This auto-wired {@link MovieVectorStore} contains the same
+     * movie titles and cosine vectors as {@code mMovieMap} stored in
+     * contiguous primitive arrays, which is much more efficient for
+     * full scans of all movies.
+     */
+    @Lazy
+    @Autowired
+    @Qualifier("movieVectorStore")
+    protected MovieVectorStore mMovieVectorStore;
+
+    /**
+     * This auto-wired {@link ObjectProvider} supplies the {@link
+     * TitleIndex} that answers case-insensitive title searches
+     * without scanning every title.  The index is built on first use,
+     * and none is available unless the {@code app.title-index.enabled}
+     * property is true.
+     */
+    @Autowired
+    @Qualifier("titleIndex")
+    protected ObjectProvider<TitleIndex> mTitleIndex;
+
+    /**
+     * This auto-wired {@link ObjectProvider} supplies the {@link
+     * HnswIndex} that supports approximate recommendations in
+     * sub-linear time.  The index is built on first use, and none is
+     * available unless the {@code app.hnsw.enabled} property is true.
+     */
+    @Autowired
+    @Qualifier("movieIndex")
+    protected ObjectProvider<HnswIndex> mMovieIndex;
+
+    /**
+     * This auto-wired {@link NeighborTableJob} answers single-movie
+     * recommendations from a precomputed neighbor table.  It's null
+     * unless the {@code app.neighbors.enabled} property is true.
+     */
+    @Autowired(required = false)
+    @Qualifier("neighborTableJob")
+    protected NeighborTableJob mNeighborTableJob;
+
+    /**
+     * This auto-wired {@link RecommendationCache} caches the results
+     * of identical recommendation requests.  It's null unless the
+     * {@code app.cache.enabled} property is true.
+     */
+    @Autowired(required = false)
+    @Qualifier("recommendationCache")
+    protected RecommendationCache mRecommendationCache;
+
     /**
      * Get a {@link Collection} of all movies represented as {@link
      * String} objects.
@@ -54,6 +110,52 @@ public abstract class BaseService<T> {
      */
     public abstract T search(String query);
 
+    /**
+     * @return A {@link List} of all movie titles in ascending order
+     *         (ignoring case)
+     */
+    public List<String> getAllTitles() {
+        return mMovieMap
+            // Convert the titles to a Stream.
+            .keySet()
+            .stream()
+
+            // Sort the titles ignoring case.
+            .sorted(TitleIndex.TITLE_ORDER)
+
+            // Convert the Stream to a List.
+            .toList();
+    }
+
+    /**
+     * Search for the movie titles containing the given query {@link
+     * String} (ignoring case).
+     *
+     * @param query The search query
+     * @return A {@link List} of matching movie titles in ascending
+     *         order (ignoring case)
+     */
+    public List<String> searchTitles(String query) {
+        var index = mTitleIndex == null ? null : mTitleIndex.getIfAvailable();
+        if (index != null)
+            return index.search(query);
+
+        var folded = query.toLowerCase();
+        return mMovieMap
+            // Convert the titles to a Stream.
+            .keySet()
+            .stream()
+
+            // Keep the titles containing the query (ignoring case).
+            .filter(title -> title.toLowerCase().contains(folded))
+
+            // Sort the titles the same way as the index.
+            .sorted(TitleIndex.TITLE_ORDER)
+
+            // Convert the Stream to a List.
+            .toList();
+    }
+
     /**
      * Recommend maxCount movies from our movie database as a function
      * of a single watched movie, indicated by a request parameter
@@ -83,4 +185,235 @@ public abstract class BaseService<T> {
      */
     public abstract T getRecommendations(List<String> watchedMovies,
                                          int maxCount);
+
+    /**
+     * Recommend {@code maxCount} movies as a function of a single
+     * watched movie, returning a cached result if an identical
+     * request was made recently.  On a cache miss the request is
+     * answered by a lookup in the precomputed neighbor table if it's
+     * ready, else by a scan of the {@link MovieVectorStore}, and
+     * {@link #getRecommendations(String, int)} is only called for
+     * movies the store doesn't contain.
+     *
+     * @param watchedMovie A {@link String} indicating the title of the movie
+     *                     that has been watched
+     * @param maxCount     The upper limit for the number of recommendations
+     *                     returned
+     * @return A {@link T} of movie titles most similar to the
+     *         {@code watchedMovie}
+     */
+    public T getCachedRecommendations(String watchedMovie,
+                                      int maxCount) {
+        return cached(RecommendationCache.Key.of(watchedMovie, maxCount),
+                      () -> {
+                          var neighbors =
+                              lookupNeighbors(watchedMovie, maxCount);
+
+                          if (neighbors == null)
+                              neighbors = scanStore(watchedMovie, maxCount);
+
+                          return neighbors != null
+                              ? fromRankings(neighbors)
+                              : getRecommendations(watchedMovie, maxCount);
+                      });
+    }
+
+    /**
+     * Recommend {@code maxCount} movies as a function of the {@code
+     * watchedMovies}, returning a cached result if a request for the
+     * same movies (in any order) was made recently.  On a cache miss
+     * every movie is scored against one aggregated profile vector of
+     * the watched movies, and {@link #getRecommendations(List, int)}
+     * is only called if the {@link MovieVectorStore} doesn't contain
+     * all of them.
+     *
+     * @param watchedMovies A {@link List} of titles of movies the
+     *                      user has watched
+     * @param maxCount The upper limit for the number of
+     *                 recommendations returned
+     * @return A {@link T} of movie titles most similar to those in
+     *         {@code watchedMovies}
+     */
+    public T getCachedRecommendations(List<String> watchedMovies,
+                                      int maxCount) {
+        return cached(RecommendationCache.Key.of(watchedMovies, maxCount),
+                      () -> {
+                          var rankings =
+                              scanProfile(watchedMovies, maxCount);
+
+                          return rankings != null
+                              ? fromRankings(rankings)
+                              : getRecommendations(watchedMovies, maxCount);
+                      });
+    }
+
+    /**
+     * Recommend approximately the {@code maxCount} movies from our
+     * movie database that are most similar to a single watched
+     * movie, indicated by a request parameter giving the title of the
+     * movie that has been watched.  This method trades a small loss
+     * of recall for sub-linear running time.
+     *
+     * @param watchedMovie A {@link String} indicating the title of the movie
+     *                     that has been watched
+     * @param maxCount     The upper limit for the number of recommendations
+     *                     returned
+     * @return A {@link List} of movie titles approximately most
+     *         similar to the {@code watchedMovie}
+     */
+    public abstract T getApproximateRecommendations(String watchedMovie,
+                                                    int maxCount);
+
+    /**
+     * Look up the {@code maxCount} movies most similar to the {@code
+     * watchedMovie} in the precomputed neighbor table.
+     *
+     * @param watchedMovie A {@link String} indicating the title of
+     *                     the movie that has been watched
+     * @param maxCount The upper limit for the number of
+     *                 recommendations returned
+     * @return A {@link List} of {@link Ranking} objects ordered from
+     *         most to least similar, or null if the table isn't
+     *         enabled, isn't ready, or doesn't cover {@code maxCount}
+     */
+    protected List<Ranking> lookupNeighbors(String watchedMovie,
+                                            int maxCount) {
+        return mNeighborTableJob == null
+            ? null
+            : mNeighborTableJob.lookup(watchedMovie, maxCount);
+    }
+
+    /**
+     * Score every row of the {@link MovieVectorStore} against the row
+     * of the {@code watchedMovie} in parallel and keep the {@code
+     * maxCount} most similar rows in a primitive selector, so no
+     * boxed vectors are read and only the winners become {@link
+     * Ranking} objects.
+     *
+     * @param watchedMovie A {@link String} indicating the title of
+     *                     the movie that has been watched
+     * @param maxCount The upper limit for the number of
+     *                 recommendations returned
+     * @return A {@link List} of {@link Ranking} objects ordered from
+     *         most to least similar, or null if the store doesn't
+     *         contain the {@code watchedMovie}
+     */
+    protected List<Ranking> scanStore(String watchedMovie,
+                                      int maxCount) {
+        var store = mMovieVectorStore;
+        int watchedRow = store.row(watchedMovie);
+
+        // Let the caller handle movies that aren't in the store.
+        if (watchedRow < 0)
+            return null;
+
+        return GetTopRecommendationsStream
+            .getTopRecommendationsHeap(IntStream
+                                       // Emit every row of the store.
+                                       .range(0, store.size())
+
+                                       // Score the rows in parallel.
+                                       .parallel()
+
+                                       // Don't recommend the watched movie.
+                                       .filter(row -> row != watchedRow),
+                                       store,
+                                       row -> VectorSimilarityUtils
+                                       .cosineSimilarity(store,
+                                                         watchedRow,
+                                                         row),
+                                       maxCount);
+    }
+
+    /**
+     * Score every row of the {@link MovieVectorStore} that isn't one
+     * of the {@code watchedMovies} against the aggregated profile
+     * vector of the {@code watchedMovies} in parallel.  The score of
+     * each row equals the sum of its cosine similarities with all
+     * the watched movies, but costs one dot product no matter how
+     * long the watch history is.
+     *
+     * @param watchedMovies A {@link List} of titles of movies the
+     *                      user has watched
+     * @param maxCount The upper limit for the number of
+     *                 recommendations returned
+     * @return A {@link List} of {@link Ranking} objects ordered from
+     *         most to least similar, or null if the store doesn't
+     *         contain all the {@code watchedMovies}
+     */
+    protected List<Ranking> scanProfile(List<String> watchedMovies,
+                                        int maxCount) {
+        var store = mMovieVectorStore;
+
+        // Let the caller handle movies that aren't in the store.
+        if (watchedMovies.isEmpty()
+            || !watchedMovies.stream().allMatch(store::contains))
+            return null;
+
+        // The distinct watched rows in ascending order.
+        var watchedRows = store.rows(watchedMovies);
+        var profile = VectorSimilarityUtils
+            .profileVector(store, watchedRows);
+
+        return GetTopRecommendationsStream
+            .getTopRecommendationsHeap(IntStream
+                                       // Emit every row of the store.
+                                       .range(0, store.size())
+
+                                       // Score the rows in parallel.
+                                       .parallel()
+
+                                       // Don't recommend watched movies.
+                                       .filter(row -> Arrays
+                                               .binarySearch(watchedRows,
+                                                             row) < 0),
+                                       store,
+                                       row -> VectorSimilarityUtils
+                                       .profileSimilarity(store,
+                                                          row,
+                                                          profile),
+                                       maxCount);
+    }
+
+    /**
+     * Convert a {@link List} of {@link Ranking} objects that's
+     * already ordered into a result of type {@link T}.
+     *
+     * @param rankings The ordered {@link Ranking} objects
+     * @return A {@link T} containing the {@code rankings}
+     */
+    protected abstract T fromRankings(List<Ranking> rankings);
+
+    /**
+     * Convert a result into a form that can be cached and returned to
+     * many callers.  By default results are cached as is, but
+     * subclasses whose results are lazy (e.g., reactive types) should
+     * override this method so the result is only computed once.
+     *
+     * @param result The result to cache
+     * @param onError Invalidates the cache entry if computing a lazy
+     *                result fails
+     * @return The cacheable result
+     */
+    protected T memoize(T result, Runnable onError) {
+        return result;
+    }
+
+    /**
+     * Return the cached result for the {@code key}, computing it via
+     * {@code compute} on a miss or if caching is disabled.
+     *
+     * @param key The canonical {@link RecommendationCache.Key}
+     * @param compute Computes the result
+     * @return The cached or newly computed result
+     */
+    private T cached(RecommendationCache.Key key, Supplier<T> compute) {
+        if (mRecommendationCache == null)
+            return compute.get();
+
+        return mRecommendationCache
+            .get(key,
+                 () -> memoize(compute.get(),
+                               () -> mRecommendationCache.invalidate(key)));
+    }
 }
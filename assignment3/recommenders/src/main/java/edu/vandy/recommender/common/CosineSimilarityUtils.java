@@ -8,7 +8,9 @@ import java.util.stream.StreamSupport;
 /**
  * This class computes the cosine similarity value for two {@link
  * List}s of {@link Double} objects using Java sequential or parallel
- * streams.
+ * streams, as well as for vectors stored in primitive arrays using
+ * simple loops.  {@link VectorSimilarityUtils} builds on these loops
+ * to compare rows of a {@link MovieVectorStore}.
  */
 public class CosineSimilarityUtils {
     /**
@@ -90,4 +92,91 @@ public class CosineSimilarityUtils {
             // Sum all the cosine similarities together.
             .reduce(0.0, Double::sum);
     }
+
+    /**
+     * Compute the dot product of two vectors of the given {@code
+     * length} that start at the given offsets of two (possibly
+     * identical) primitive arrays.
+     *
+     * @param a The array containing the first vector
+     * @param offsetA The index of the first component of vector a
+     * @param b The array containing the second vector
+     * @param offsetB The index of the first component of vector b
+     * @param length The number of components in each vector
+     * @return The computed dot product
+     */
+    public static double dotProduct(double[] a,
+                                    int offsetA,
+                                    double[] b,
+                                    int offsetB,
+                                    int length) {
+        double dotProduct = 0.0;
+
+        for (int i = 0; i < length; i++)
+            dotProduct += a[offsetA + i] * b[offsetB + i];
+
+        return dotProduct;
+    }
+
+    /**
+     * Scale the {@code vector} to unit length.
+     *
+     * @param vector A {@link List} of {@link Double} objects
+     * @return A new {@link List} containing the components of {@code
+     *         vector} divided by its L2 norm, or {@code vector}
+     *         itself if its norm is zero
+     */
+    public static List<Double> normalize(List<Double> vector) {
+        // Compute the L2 norm of the vector.
+        double norm = Math.sqrt(vector
+                                .stream()
+                                .mapToDouble(x -> x * x)
+                                .sum());
+
+        return norm == 0.0
+            ? vector
+            : vector
+            // Convert the List to a Stream.
+            .stream()
+
+            // Divide each component by the norm.
+            .map(x -> x / norm)
+
+            // Collect the Stream<Double> into a List<Double>.
+            .toList();
+    }
+
+    /**
+     * Compute the cosine similarity value for two vectors of the
+     * given {@code length} that start at the given offsets of two
+     * (possibly identical) primitive arrays.
+     *
+     * @param a The array containing the first vector
+     * @param offsetA The index of the first component of vector a
+     * @param b The array containing the second vector
+     * @param offsetB The index of the first component of vector b
+     * @param length The number of components in each vector
+     * @return The computed cosine similarity index
+     */
+    public static double cosineSimilarity(double[] a,
+                                          int offsetA,
+                                          double[] b,
+                                          int offsetB,
+                                          int length) {
+        double normA = 0.0;
+        double normB = 0.0;
+        double dotProduct = 0.0;
+
+        // Compute both norms and the dot product in a single pass.
+        for (int i = 0; i < length; i++) {
+            double x = a[offsetA + i];
+            double y = b[offsetB + i];
+            normA += x * x;
+            normB += y * y;
+            dotProduct += x * y;
+        }
+
+        // Return the cosine similarity value.
+        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
 }
@@ -2,11 +2,14 @@ package edu.vandy.recommender.common;
 
 import edu.vandy.recommender.common.model.Ranking;
 import edu.vandy.recommender.utils.GetTopK;
+import edu.vandy.recommender.utils.TopKSelector;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
 import java.util.TreeSet;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
 
 /**
  * This utility class provides static methods that use classic Java
@@ -76,4 +79,39 @@ public class GetTopRecommendations {
         // Return a Collection of movie titles judged most similar.
         return results;
     }
+
+    /**
+     * Recommend {@code maxCount} movies from the rows of the {@link
+     * MovieVectorStore} using a primitive {@link TopKSelector}, which
+     * scores and selects without allocating any objects per movie and
+     * only creates {@link Ranking} objects for the final winners.
+     *
+     * @param store The {@link MovieVectorStore} containing all movies
+     * @param filter Returns true for each row that may be recommended
+     * @param scorer Computes the similarity score of each row
+     * @param maxCount The upper limit for the number of recommendations
+     *                 returned
+     * @return A {@link Collection} of movie titles judged most similar
+     */
+    public static Collection<Ranking> getTopRecommendationsHeap
+        (MovieVectorStore store,
+         IntPredicate filter,
+         IntToDoubleFunction scorer,
+         int maxCount) {
+        var selector = new TopKSelector(Math.min(maxCount, store.size()));
+
+        // Score every eligible row.
+        for (int row = 0; row < store.size(); row++)
+            if (filter.test(row))
+                selector.offer(row, scorer.applyAsDouble(row));
+
+        var results = new ArrayList<Ranking>(selector.size());
+
+        // Add just the movie titles of the winners.
+        for (int row : selector.rows())
+            results.add(new Ranking(store.title(row), 0.0));
+
+        // Return the Collection of movie titles judged most similar.
+        return results;
+    }
 }
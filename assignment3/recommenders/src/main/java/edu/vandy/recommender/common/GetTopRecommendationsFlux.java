@@ -2,10 +2,13 @@ package edu.vandy.recommender.common;
 
 import edu.vandy.recommender.common.model.Ranking;
 import edu.vandy.recommender.utils.GetTopK;
+import edu.vandy.recommender.utils.TopKSelector;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.ParallelFlux;
 
 import java.util.Comparator;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
 
 /**
  * This Java utility class provides static methods that use the
@@ -38,6 +41,27 @@ public class GetTopRecommendationsFlux {
             .transform(GetTopK.getTopK(maxCount));
     }
 
+    /**
+     * Recommend {@code maxCount} movies from the {@link ParallelFlux}
+     * of distinct {@link Ranking} objects using a Heap per rail,
+     * which avoids converting the {@link ParallelFlux} back to a
+     * {@link Flux} before selection.
+     *
+     * @param rankingFlux A {@link ParallelFlux} of {@link Ranking}
+     *                    objects
+     * @param maxCount    The upper limit for the number of recommendations
+     *                    returned
+     * @return A {@link Flux} of movie titles ranked in descending similarity
+     * order
+     */
+    public static Flux<Ranking> getTopRecommendationsPerRail
+        (ParallelFlux<Ranking> rankingFlux,
+         int maxCount) {
+        return rankingFlux
+            // Collect the top maxCount entries of all rails into a Flux.
+            .as(GetTopK.getTopKParallel(maxCount));
+    }
+
     /**
      * Recommend {@code maxCount} movies from the {@link ParallelFlux}
      * of distinct {@link Ranking} objects by sorting the results.
@@ -65,4 +89,40 @@ public class GetTopRecommendationsFlux {
             // Limit the results to just maxCount.
             .take(maxCount);
     }
+
+    /**
+     * Recommend {@code maxCount} movies from the rows of the {@link
+     * MovieVectorStore} using a primitive {@link TopKSelector}, which
+     * scores and selects without allocating any objects per movie.
+     * The scan runs lazily when the returned {@link Flux} is
+     * subscribed to.
+     *
+     * @param store The {@link MovieVectorStore} containing all movies
+     * @param filter Returns true for each row that may be recommended
+     * @param scorer Computes the similarity score of each row
+     * @param maxCount The upper limit for the number of
+     *                 recommendations returned
+     * @return A {@link Flux} of movie titles ranked in descending
+     *         similarity order
+     */
+    public static Flux<Ranking> getTopRecommendationsHeap
+        (MovieVectorStore store,
+         IntPredicate filter,
+         IntToDoubleFunction scorer,
+         int maxCount) {
+        return Flux
+            // Defer the scan until the Flux is subscribed to.
+            .defer(() -> {
+                    var selector = new TopKSelector(Math.min(maxCount, store.size()));
+
+                    // Score every eligible row.
+                    for (int row = 0; row < store.size(); row++)
+                        if (filter.test(row))
+                            selector.offer(row, scorer.applyAsDouble(row));
+
+                    // Only create Ranking objects for the winners.
+                    return Flux
+                        .fromIterable(selector.toRankings(store::title));
+                });
+    }
 }
@@ -5,6 +5,8 @@ import edu.vandy.recommender.utils.GetTopK;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -72,4 +74,31 @@ public class GetTopRecommendationsStream {
             // Collect and return ordered movie title list.
             .toList();
     }
+
+    /**
+     * Recommend {@code maxCount} movies from an {@link IntStream} of
+     * distinct {@link MovieVectorStore} rows using a primitive
+     * selector, which scores and selects without allocating any
+     * objects per movie.  The {@code rows} may be a parallel stream.
+     *
+     * @param rows An {@link IntStream} of distinct rows
+     * @param store The {@link MovieVectorStore} containing the rows
+     * @param scorer Computes the similarity score of each row
+     * @param maxCount The upper limit for the number of recommendations
+     *                 returned
+     * @return A {@link List} of {@link Ranking} objects whose
+     *         titles are judged most similar
+     */
+    public static List<Ranking> getTopRecommendationsHeap
+        (IntStream rows,
+         MovieVectorStore store,
+         IntToDoubleFunction scorer,
+         int maxCount) {
+        return GetTopK
+            // Get the top maxCount rows.
+            .getTopK(rows, scorer, maxCount)
+
+            // Only create Ranking objects for the winners.
+            .toRankings(store::title);
+    }
 }
@@ -0,0 +1,612 @@
+package edu.vandy.recommender.common;
+
+import edu.vandy.recommender.common.model.Ranking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * This class implements a hierarchical navigable small world (HNSW)
+ * graph index over the rows of a {@link MovieVectorStore}, which
+ * finds the approximate top {@code k} most similar movies to a
+ * watched movie in sub-linear time instead of scanning every row
+ * (<a href="https://arxiv.org/abs/1603.09320">here</a>).
+ *
+ * The graph is built once by the constructor and is read-only
+ * afterwards, so {@link #search} can be called concurrently from any
+ * number of threads.  Similarity between two rows is their cosine
+ * similarity as computed by {@link VectorSimilarityUtils}.
+ */
+public class HnswIndex {
+    /**
+     * The seed used to assign levels to nodes, which makes the
+     * structure of the graph reproducible.
+     */
+    private static final long SEED = 42L;
+
+    /**
+     * The {@link MovieVectorStore} whose rows are indexed.
+     */
+    private final MovieVectorStore mStore;
+
+    /**
+     * The max number of links per node on levels above 0.  Level 0
+     * allows twice as many links.
+     */
+    private final int mM;
+
+    /**
+     * The size of the dynamic candidate list used while building
+     * the graph.
+     */
+    private final int mEfConstruction;
+
+    /**
+     * The default size of the dynamic candidate list used while
+     * searching the graph.
+     */
+    private final int mEfSearch;
+
+    /**
+     * The links of each node, indexed by node and then by level.
+     */
+    private final int[][][] mLinks;
+
+    /**
+     * The number of links in use, indexed by node and then by level.
+     */
+    private final int[][] mLinkCounts;
+
+    /**
+     * The node at which every search starts.
+     */
+    private int mEntryPoint = -1;
+
+    /**
+     * The highest level of any node in the graph.
+     */
+    private int mMaxLevel = -1;
+
+    /**
+     * Per-thread visited markers, which avoids allocating and
+     * clearing a set of size {@code N} on every search.
+     */
+    private final ThreadLocal<VisitedSet> mVisited;
+
+    /**
+     * Build an HNSW index over all rows of the {@code store}.
+     *
+     * @param store The {@link MovieVectorStore} to index
+     * @param m The max number of links per node on levels above 0
+     * @param efConstruction The size of the dynamic candidate list
+     *                       used while building the graph
+     * @param efSearch The default size of the dynamic candidate list
+     *                 used while searching the graph
+     */
+    public HnswIndex(MovieVectorStore store,
+                     int m,
+                     int efConstruction,
+                     int efSearch) {
+        if (m < 2 || efConstruction < 1 || efSearch < 1)
+            throw new IllegalArgumentException
+                ("Invalid HNSW parameters M="
+                 + m
+                 + ", efConstruction="
+                 + efConstruction
+                 + ", efSearch="
+                 + efSearch);
+
+        mStore = store;
+        mM = m;
+        mEfConstruction = Math.max(efConstruction, m);
+        mEfSearch = efSearch;
+        mLinks = new int[store.size()][][];
+        mLinkCounts = new int[store.size()][];
+        mVisited = ThreadLocal
+            .withInitial(() -> new VisitedSet(store.size()));
+
+        // Assign levels with an exponentially decaying distribution.
+        var random = new Random(SEED);
+        double levelMultiplier = 1.0 / Math.log(m);
+
+        // Insert each row into the graph.
+        for (int node = 0; node < store.size(); node++)
+            insert(node,
+                   (int) (-Math.log(1.0 - random.nextDouble())
+                          * levelMultiplier));
+    }
+
+    /**
+     * @return The number of movies in this index
+     */
+    public int size() {
+        return mStore.size();
+    }
+
+    /**
+     * Find the approximate top {@code k} movies most similar to the
+     * movie at {@code row}, excluding the movie itself, using the
+     * default {@code efSearch}.
+     *
+     * @param row The row of the watched movie
+     * @param k The max number of movies to return
+     * @return A {@link List} of {@link Ranking} objects ordered from
+     *         most to least similar
+     */
+    public List<Ranking> search(int row, int k) {
+        return search(row, k, mEfSearch);
+    }
+
+    /**
+     * Find the approximate top {@code k} movies most similar to the
+     * movie at {@code row}, excluding the movie itself.
+     *
+     * @param row The row of the watched movie
+     * @param k The max number of movies to return
+     * @param efSearch The size of the dynamic candidate list, where
+     *                 larger values trade speed for recall
+     * @return A {@link List} of {@link Ranking} objects ordered from
+     *         most to least similar
+     */
+    public List<Ranking> search(int row, int k, int efSearch) {
+        var candidates = searchCandidates(row, k, efSearch);
+        var results = new ArrayList<Ranking>(candidates.size());
+
+        // Convert the nearest rows into Ranking objects.
+        for (var candidate : candidates)
+            results.add(new Ranking(mStore.title(candidate.node),
+                                    candidate.similarity));
+
+        return results;
+    }
+
+    /**
+     * Find the rows of the approximate top {@code k} movies most
+     * similar to the movie at {@code row}, excluding the movie
+     * itself.
+     *
+     * @param row The row of the watched movie
+     * @param k The max number of movies to return
+     * @param efSearch The size of the dynamic candidate list
+     * @return The rows ordered from most to least similar
+     */
+    public int[] searchRows(int row, int k, int efSearch) {
+        return searchCandidates(row, k, efSearch)
+            .stream()
+            .mapToInt(Candidate::node)
+            .toArray();
+    }
+
+    /**
+     * Compute the recall@k of this index, i.e., the fraction of the
+     * exact top {@code k} most similar movies that are also returned
+     * by {@link #search}, averaged over the given query rows.
+     *
+     * @param queryRows The rows of the watched movies to query
+     * @param k The number of movies to compare
+     * @param efSearch The size of the dynamic candidate list
+     * @return The average recall@k in the range [0, 1]
+     */
+    public double recall(int[] queryRows, int k, int efSearch) {
+        if (queryRows.length == 0 || k < 1)
+            return 1.0;
+
+        double total = 0.0;
+
+        for (int row : queryRows) {
+            int[] exact = exactSearchRows(row, k);
+            int[] approximate = searchRows(row, k, efSearch);
+
+            if (exact.length == 0) {
+                total += 1.0;
+                continue;
+            }
+
+            // Count the exact results found by the approximate search.
+            Arrays.sort(approximate);
+            int hits = 0;
+            for (int node : exact)
+                if (Arrays.binarySearch(approximate, node) >= 0)
+                    hits++;
+
+            total += (double) hits / exact.length;
+        }
+
+        return total / queryRows.length;
+    }
+
+    /**
+     * Compute a human-readable recall@k report of this index by
+     * comparing its results for a sample of {@code sampleSize} rows
+     * with the exact results of a full scan.
+     *
+     * @param sampleSize The number of rows to sample
+     * @param k The number of movies to compare
+     * @return A {@link String} containing the recall@k at the
+     *         default {@code efSearch}
+     */
+    public String recallReport(int sampleSize, int k) {
+        var queryRows = new Random(SEED)
+            .ints(Math.min(sampleSize, size()), 0, Math.max(size(), 1))
+            .toArray();
+
+        return String.format("HNSW(M=%d, efConstruction=%d, efSearch=%d)"
+                             + " recall@%d over %d movies = %.4f",
+                             mM,
+                             mEfConstruction,
+                             mEfSearch,
+                             k,
+                             queryRows.length,
+                             recall(queryRows, k, mEfSearch));
+    }
+
+    /**
+     * Find the exact top {@code k} movies most similar to the movie
+     * at {@code row} by scanning every row.
+     *
+     * @param row The row of the watched movie
+     * @param k The max number of movies to return
+     * @return The rows ordered from most to least similar
+     */
+    int[] exactSearchRows(int row, int k) {
+        var heap = new PriorityQueue<>(Comparator
+                                       .comparingDouble(Candidate::similarity));
+
+        for (int node = 0; node < size(); node++) {
+            if (node == row)
+                continue;
+
+            heap.offer(new Candidate(node, similarity(row, node)));
+            if (heap.size() > k)
+                heap.poll();
+        }
+
+        return toDescendingList(heap)
+            .stream()
+            .mapToInt(Candidate::node)
+            .toArray();
+    }
+
+    /**
+     * Search the graph for the approximate top {@code k} movies most
+     * similar to the movie at {@code row}.
+     *
+     * @param row The row of the watched movie
+     * @param k The max number of movies to return, which is clamped
+     *          to the number of other movies
+     * @param efSearch The size of the dynamic candidate list, which
+     *                 is clamped to the number of movies
+     * @return A {@link List} of {@link Candidate} objects ordered
+     *         from most to least similar
+     */
+    private List<Candidate> searchCandidates(int row, int k, int efSearch) {
+        // Don't size anything from a client-supplied k that exceeds
+        // the number of movies that can be returned.
+        k = Math.min(k, size() - 1);
+
+        if (k < 1 || mEntryPoint < 0)
+            return List.of();
+
+        // Leave room in the candidate list for the query movie itself.
+        int ef = Math.min(Math.max(efSearch, k + 1), size());
+
+        // Greedily descend from the top level to level 1.
+        int entryPoint = mEntryPoint;
+        for (int level = mMaxLevel; level > 0; level--)
+            entryPoint = greedySearch(row, entryPoint, level);
+
+        // Search level 0 exhaustively within the candidate list.
+        var nearest = searchLayer(row, entryPoint, ef, 0);
+
+        var results = new ArrayList<Candidate>(k);
+        for (var candidate : toDescendingList(nearest)) {
+            if (candidate.node == row)
+                continue;
+            results.add(candidate);
+            if (results.size() == k)
+                break;
+        }
+
+        return results;
+    }
+
+    /**
+     * Insert the {@code node} into the graph at all levels up to and
+     * including {@code level}.
+     *
+     * @param node The row to insert
+     * @param level The highest level of the node
+     */
+    private void insert(int node, int level) {
+        mLinks[node] = new int[level + 1][];
+        mLinkCounts[node] = new int[level + 1];
+        for (int l = 0; l <= level; l++)
+            mLinks[node][l] = new int[maxLinks(l) + 1];
+
+        // The first node becomes the entry point.
+        if (mEntryPoint < 0) {
+            mEntryPoint = node;
+            mMaxLevel = level;
+            return;
+        }
+
+        // Greedily descend through the levels above the node's level.
+        int entryPoint = mEntryPoint;
+        for (int l = mMaxLevel; l > level; l--)
+            entryPoint = greedySearch(node, entryPoint, l);
+
+        // Link the node to its nearest neighbors on each of its
+        // levels, starting at the lower of the two top levels.
+        for (int l = Math.min(level, mMaxLevel); l >= 0; l--) {
+            var candidates = searchLayer(node, entryPoint, mEfConstruction, l);
+            var neighbors = selectNeighbors(toDescendingList(candidates), mM);
+
+            for (var neighbor : neighbors) {
+                addLink(node, neighbor.node, l);
+                addLink(neighbor.node, node, l);
+            }
+
+            // The best candidate is the entry point of the next level.
+            entryPoint = neighbors.isEmpty()
+                ? entryPoint
+                : neighbors.get(0).node;
+        }
+
+        if (level > mMaxLevel) {
+            mEntryPoint = node;
+            mMaxLevel = level;
+        }
+    }
+
+    /**
+     * Add a link from {@code from} to {@code to} at the given {@code
+     * level}, pruning the links of {@code from} with the neighbor
+     * selection heuristic if it has too many.
+     *
+     * @param from The node whose links are updated
+     * @param to The node to link to
+     * @param level The level of the link
+     */
+    private void addLink(int from, int to, int level) {
+        var links = mLinks[from][level];
+        int count = mLinkCounts[from][level];
+        links[count++] = to;
+
+        if (count <= maxLinks(level)) {
+            mLinkCounts[from][level] = count;
+            return;
+        }
+
+        // Too many links, so keep only the most diverse ones.
+        var candidates = new ArrayList<Candidate>(count);
+        for (int i = 0; i < count; i++)
+            candidates.add(new Candidate(links[i], similarity(from, links[i])));
+        candidates.sort(Comparator
+                        .comparingDouble(Candidate::similarity)
+                        .reversed());
+
+        var selected = selectNeighbors(candidates, maxLinks(level));
+        for (int i = 0; i < selected.size(); i++)
+            links[i] = selected.get(i).node;
+        mLinkCounts[from][level] = selected.size();
+    }
+
+    /**
+     * Select up to {@code m} neighbors from the {@code candidates}
+     * using the HNSW heuristic, which skips any candidate that is
+     * more similar to an already selected neighbor than to the query
+     * so the links spread out in different directions.
+     *
+     * @param candidates Candidates ordered from most to least similar
+     * @param m The max number of neighbors to select
+     * @return The selected neighbors ordered from most to least
+     *         similar
+     */
+    private List<Candidate> selectNeighbors(List<Candidate> candidates,
+                                            int m) {
+        var selected = new ArrayList<Candidate>(m);
+
+        for (var candidate : candidates) {
+            if (selected.size() == m)
+                break;
+
+            boolean diverse = true;
+            for (var neighbor : selected)
+                if (similarity(candidate.node, neighbor.node)
+                    > candidate.similarity) {
+                    diverse = false;
+                    break;
+                }
+
+            if (diverse)
+                selected.add(candidate);
+        }
+
+        return selected;
+    }
+
+    /**
+     * Greedily walk the graph at the given {@code level} towards the
+     * node most similar to {@code query}.
+     *
+     * @param query The row being searched for
+     * @param entryPoint The node at which to start
+     * @param level The level to search
+     * @return The most similar node found
+     */
+    private int greedySearch(int query, int entryPoint, int level) {
+        int current = entryPoint;
+        double best = similarity(query, current);
+
+        for (boolean changed = true; changed; ) {
+            changed = false;
+            var links = mLinks[current][level];
+            int count = mLinkCounts[current][level];
+
+            for (int i = 0; i < count; i++) {
+                double similarity = similarity(query, links[i]);
+                if (similarity > best) {
+                    best = similarity;
+                    current = links[i];
+                    changed = true;
+                }
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Search the graph at the given {@code level} for the {@code ef}
+     * nodes most similar to {@code query}.
+     *
+     * @param query The row being searched for
+     * @param entryPoint The node at which to start
+     * @param ef The size of the dynamic candidate list
+     * @param level The level to search
+     * @return A min-heap containing up to {@code ef} of the most
+     *         similar nodes found
+     */
+    private PriorityQueue<Candidate> searchLayer(int query,
+                                                 int entryPoint,
+                                                 int ef,
+                                                 int level) {
+        var visited = mVisited.get();
+        visited.clear();
+
+        // Candidates to expand, most similar first.
+        var candidates = new PriorityQueue<>(Comparator
+                                             .comparingDouble(Candidate::similarity)
+                                             .reversed());
+        // Best results so far, least similar first.
+        var nearest = new PriorityQueue<>(Comparator
+                                          .comparingDouble(Candidate::similarity));
+
+        var start = new Candidate(entryPoint, similarity(query, entryPoint));
+        visited.add(entryPoint);
+        candidates.offer(start);
+        nearest.offer(start);
+
+        while (!candidates.isEmpty()) {
+            var current = candidates.poll();
+
+            // Stop once no remaining candidate can improve the results.
+            if (current.similarity < nearest.peek().similarity
+                && nearest.size() >= ef)
+                break;
+
+            var links = mLinks[current.node][level];
+            int count = mLinkCounts[current.node][level];
+
+            for (int i = 0; i < count; i++) {
+                int node = links[i];
+                if (!visited.add(node))
+                    continue;
+
+                double similarity = similarity(query, node);
+                if (nearest.size() < ef
+                    || similarity > nearest.peek().similarity) {
+                    var candidate = new Candidate(node, similarity);
+                    candidates.offer(candidate);
+                    nearest.offer(candidate);
+                    if (nearest.size() > ef)
+                        nearest.poll();
+                }
+            }
+        }
+
+        return nearest;
+    }
+
+    /**
+     * @param level A level of the graph
+     * @return The max number of links per node at {@code level}
+     */
+    private int maxLinks(int level) {
+        return level == 0 ? 2 * mM : mM;
+    }
+
+    /**
+     * @param a The first row
+     * @param b The second row
+     * @return The cosine similarity of the two rows
+     */
+    private double similarity(int a, int b) {
+        return VectorSimilarityUtils.cosineSimilarity(mStore, a, b);
+    }
+
+    /**
+     * Drain a min-heap of candidates into a {@link List} ordered
+     * from most to least similar.
+     *
+     * @param heap A min-heap of {@link Candidate} objects
+     * @return A {@link List} ordered from most to least similar
+     */
+    private static List<Candidate> toDescendingList(PriorityQueue<Candidate> heap) {
+        var list = new ArrayList<Candidate>(heap.size());
+        while (!heap.isEmpty())
+            list.add(heap.poll());
+        Collections.reverse(list);
+        return list;
+    }
+
+    /**
+     * A node of the graph paired with its similarity to the query.
+     *
+     * @param node The row of the node
+     * @param similarity The similarity of the node to the query
+     */
+    private record Candidate(int node, double similarity) {}
+
+    /**
+     * A set of visited nodes that can be cleared in constant time by
+     * bumping an epoch counter instead of zeroing its array.
+     */
+    private static class VisitedSet {
+        /**
+         * The epoch in which each node was last visited.
+         */
+        private final int[] mEpochs;
+
+        /**
+         * The current epoch.
+         */
+        private int mEpoch;
+
+        /**
+         * @param size The number of nodes in the graph
+         */
+        VisitedSet(int size) {
+            mEpochs = new int[size];
+        }
+
+        /**
+         * Forget all visited nodes.
+         */
+        void clear() {
+            if (++mEpoch == 0) {
+                // Handle wraparound by zeroing the array once.
+                Arrays.fill(mEpochs, 0);
+                mEpoch = 1;
+            }
+        }
+
+        /**
+         * Mark the {@code node} as visited.
+         *
+         * @param node The node to mark
+         * @return True if the node wasn't already visited, else false
+         */
+        boolean add(int node) {
+            if (mEpochs[node] == mEpoch)
+                return false;
+            mEpochs[node] = mEpoch;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,556 @@
+package edu.vandy.recommender.common;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * This class stores the cosine vectors of all movies in a single
+ * contiguous row-major {@code double[]} array together with a
+ * parallel array of movie titles and a title-to-row index.  Unlike a
+ * {@link Map} of boxed {@link List} objects, a full scan over this
+ * store touches memory sequentially and never unboxes a value.
+ *
+ * Rows are assigned in the iteration order of the {@link Map} used
+ * to build the store, so a {@link java.util.TreeMap} yields rows
+ * sorted by title.  The L2 norm of every row is computed once at
+ * construction time, and a store can optionally be built with all
+ * rows scaled to unit length, in which case the cosine similarity
+ * of two rows is simply their dot product.  Instances of this class
+ * are immutable once constructed and can therefore be shared freely
+ * between threads.
+ */
+public class MovieVectorStore {
+    /**
+     * The movie titles, indexed by row.
+     */
+    private final String[] mTitles;
+
+    /**
+     * All movie vectors stored contiguously in row-major order, i.e.,
+     * row {@code r} occupies {@code [r * mDimension, (r + 1) *
+     * mDimension)}.
+     */
+    private final double[] mVectors;
+
+    /**
+     * The number of components in each movie vector.
+     */
+    private final int mDimension;
+
+    /**
+     * The L2 norm of each row, indexed by row.
+     */
+    private final double[] mNorms;
+
+    /**
+     * True if every (non-zero) row has been scaled to unit length.
+     */
+    private final boolean mNormalized;
+
+    /**
+     * Maps each movie title to its row in this store.
+     */
+    private final Map<String, Integer> mRowIndex;
+
+    /**
+     * Construct a {@link MovieVectorStore} from its raw parts.
+     *
+     * @param titles The movie titles, indexed by row
+     * @param vectors The row-major vector matrix, which must contain
+     *                {@code titles.length * dimension} values
+     * @param dimension The number of components in each vector
+     */
+    public MovieVectorStore(String[] titles,
+                            double[] vectors,
+                            int dimension) {
+        this(titles, vectors, dimension, false);
+    }
+
+    /**
+     * Construct a {@link MovieVectorStore} from its raw parts,
+     * optionally scaling each row of {@code vectors} in place to
+     * unit length.
+     *
+     * @param titles The movie titles, indexed by row
+     * @param vectors The row-major vector matrix, which must contain
+     *                {@code titles.length * dimension} values
+     * @param dimension The number of components in each vector
+     * @param normalize True if each row should be scaled to unit
+     *                  length, else false
+     */
+    public MovieVectorStore(String[] titles,
+                            double[] vectors,
+                            int dimension,
+                            boolean normalize) {
+        if (dimension < 0
+            || vectors.length != (long) titles.length * dimension)
+            throw new IllegalArgumentException
+                ("Vector matrix size "
+                 + vectors.length
+                 + " does not match "
+                 + titles.length
+                 + " rows of dimension "
+                 + dimension);
+
+        mTitles = titles;
+        mVectors = vectors;
+        mDimension = dimension;
+        mNormalized = normalize;
+        mNorms = new double[titles.length];
+        mRowIndex = new HashMap<>(titles.length * 4 / 3 + 1);
+
+        // Cache the norm of each row and normalize it if requested.
+        for (int row = 0; row < titles.length; row++) {
+            int offset = row * dimension;
+            double norm = Math.sqrt(CosineSimilarityUtils
+                                    .dotProduct(vectors, offset,
+                                                vectors, offset,
+                                                dimension));
+
+            if (normalize && norm > 0.0) {
+                for (int i = offset; i < offset + dimension; i++)
+                    vectors[i] /= norm;
+                norm = 1.0;
+            }
+
+            mNorms[row] = norm;
+        }
+
+        // Index each title by its row.
+        for (int row = 0; row < titles.length; row++)
+            mRowIndex.put(titles[row], row);
+    }
+
+    /**
+     * Factory method that copies the contents of the {@code movieMap}
+     * into a new {@link MovieVectorStore}.
+     *
+     * @param movieMap A {@link Map} that associates each movie title
+     *                 with its cosine vector
+     * @return A new {@link MovieVectorStore} containing the contents
+     *         of {@code movieMap} in its iteration order
+     */
+    public static MovieVectorStore of(Map<String, List<Double>> movieMap) {
+        return of(movieMap, false);
+    }
+
+    /**
+     * Factory method that copies the contents of the {@code movieMap}
+     * into a new {@link MovieVectorStore}, optionally scaling each
+     * vector to unit length.
+     *
+     * @param movieMap A {@link Map} that associates each movie title
+     *                 with its cosine vector
+     * @param normalize True if each vector should be scaled to unit
+     *                  length, else false
+     * @return A new {@link MovieVectorStore} containing the contents
+     *         of {@code movieMap} in its iteration order
+     */
+    public static MovieVectorStore of(Map<String, List<Double>> movieMap,
+                                      boolean normalize) {
+        int size = movieMap.size();
+        var titles = new String[size];
+
+        // All vectors must have the same dimension as the first one.
+        int dimension = movieMap
+            .values()
+            .stream()
+            .findFirst()
+            .map(List::size)
+            .orElse(0);
+
+        var vectors = new double[size * dimension];
+        int row = 0;
+
+        // Copy each title and unbox each vector into its row.
+        for (var entry : movieMap.entrySet()) {
+            var vector = entry.getValue();
+
+            if (vector.size() != dimension)
+                throw new IllegalArgumentException
+                    ("Movie \""
+                     + entry.getKey()
+                     + "\" has dimension "
+                     + vector.size()
+                     + " instead of "
+                     + dimension);
+
+            titles[row] = entry.getKey();
+
+            int offset = row * dimension;
+            for (var value : vector)
+                vectors[offset++] = value;
+
+            row++;
+        }
+
+        return new MovieVectorStore(titles, vectors, dimension, normalize);
+    }
+
+    /**
+     * Factory method that bulk copies the contents of a memory-mapped
+     * {@link MovieVectorFile} into a new {@link MovieVectorStore}
+     * without parsing or boxing any values.
+     *
+     * @param file A memory-mapped {@link MovieVectorFile}
+     * @param normalize True if each vector should be scaled to unit
+     *                  length, else false
+     * @return A new {@link MovieVectorStore} containing the contents
+     *         of {@code file} sorted by title
+     */
+    public static MovieVectorStore of(MovieVectorFile file,
+                                      boolean normalize) {
+        return new MovieVectorStore(file.titleArray(),
+                                    file.readVectors(),
+                                    file.dimension(),
+                                    normalize);
+    }
+
+    /**
+     * Factory method that creates a {@link Builder}, which adds
+     * movies to a new {@link MovieVectorStore} one at a time, e.g.,
+     * as they arrive from a stream.
+     *
+     * @return A new {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The number of movies in this store
+     */
+    public int size() {
+        return mTitles.length;
+    }
+
+    /**
+     * @return The number of components in each movie vector
+     */
+    public int dimension() {
+        return mDimension;
+    }
+
+    /**
+     * @return True if every (non-zero) row has unit length, else
+     *         false
+     */
+    public boolean isNormalized() {
+        return mNormalized;
+    }
+
+    /**
+     * @param row The row of a movie
+     * @return The cached L2 norm of the vector at {@code row}
+     */
+    public double norm(int row) {
+        return mNorms[row];
+    }
+
+    /**
+     * @param row The row of a movie
+     * @return The title of the movie at {@code row}
+     */
+    public String title(int row) {
+        return mTitles[row];
+    }
+
+    /**
+     * @return An unmodifiable {@link List} of all movie titles in
+     *         row order
+     */
+    public List<String> titles() {
+        return Collections.unmodifiableList(Arrays.asList(mTitles));
+    }
+
+    /**
+     * Find the row of the movie with the given {@code title}.
+     *
+     * @param title The movie title
+     * @return The row of the movie or -1 if it's not in this store
+     */
+    public int row(String title) {
+        var row = mRowIndex.get(title);
+        return row == null ? -1 : row;
+    }
+
+    /**
+     * Find the distinct rows of the movies with the given {@code
+     * titles}, ignoring any titles that aren't in this store.
+     *
+     * @param titles A {@link Collection} of movie titles
+     * @return The distinct rows of the known movies in ascending
+     *         order
+     */
+    public int[] rows(Collection<String> titles) {
+        return titles
+            // Convert the Collection to a Stream.
+            .stream()
+
+            // Look up the row of each title.
+            .mapToInt(this::row)
+
+            // Ignore titles that aren't in this store.
+            .filter(row -> row >= 0)
+
+            // Remove duplicate titles.
+            .distinct()
+
+            // Sort the rows in ascending order.
+            .sorted()
+
+            // Convert the IntStream into an int[].
+            .toArray();
+    }
+
+    /**
+     * @param title The movie title
+     * @return True if the movie is in this store, else false
+     */
+    public boolean contains(String title) {
+        return mRowIndex.containsKey(title);
+    }
+
+    /**
+     * Returns the backing row-major vector matrix without copying
+     * it.  Callers must treat the returned array as read-only.
+     *
+     * @return The backing vector matrix
+     */
+    public double[] vectors() {
+        return mVectors;
+    }
+
+    /**
+     * @param row The row of a movie
+     * @return The index in {@link #vectors()} of the first component
+     *         of the vector at {@code row}
+     */
+    public int offset(int row) {
+        return row * mDimension;
+    }
+
+    /**
+     * @param row The row of a movie
+     * @param i The component index
+     * @return The {@code i}'th component of the vector at {@code row}
+     */
+    public double get(int row, int i) {
+        return mVectors[row * mDimension + i];
+    }
+
+    /**
+     * Returns an unmodifiable {@link Map} view of this store that
+     * associates each movie title with its cosine vector in row
+     * order, which lets code written against a {@link Map} of movies
+     * share this store's arrays rather than requiring a second copy
+     * of every vector.  Each vector is a view of its row that boxes
+     * a value only when it's read.
+     *
+     * @return An unmodifiable {@link Map} view of this store
+     */
+    public Map<String, List<Double>> asMap() {
+        return new AbstractMap<>() {
+            @Override
+            public Set<Entry<String, List<Double>>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<String, List<Double>>> iterator() {
+                        return IntStream
+                            // Visit each row in order.
+                            .range(0, mTitles.length)
+
+                            // Pair the title with a view of its row.
+                            .mapToObj(row -> Map.entry(mTitles[row],
+                                                       rowView(row)))
+
+                            // Convert the Stream to an Iterator.
+                            .iterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return mTitles.length;
+                    }
+                };
+            }
+
+            @Override
+            public List<Double> get(Object title) {
+                int row = title instanceof String s ? row(s) : -1;
+                return row < 0 ? null : rowView(row);
+            }
+
+            @Override
+            public boolean containsKey(Object title) {
+                return mRowIndex.containsKey(title);
+            }
+
+            @Override
+            public int size() {
+                return mTitles.length;
+            }
+        };
+    }
+
+    /**
+     * @param row The row of a movie
+     * @return An unmodifiable {@link List} view of the vector at
+     *         {@code row}
+     */
+    private List<Double> rowView(int row) {
+        return new RowView(row * mDimension);
+    }
+
+    /**
+     * @param row The row of a movie
+     * @return A copy of the vector at {@code row}
+     */
+    public double[] vector(int row) {
+        int offset = row * mDimension;
+        return Arrays.copyOfRange(mVectors, offset, offset + mDimension);
+    }
+
+    /**
+     * An unmodifiable {@link List} view of one row of {@code
+     * mVectors}.
+     */
+    private final class RowView
+        extends AbstractList<Double>
+        implements RandomAccess {
+        /**
+         * The index in {@code mVectors} of the row's first component.
+         */
+        private final int mOffset;
+
+        /**
+         * @param offset The index in {@code mVectors} of the row's
+         *               first component
+         */
+        RowView(int offset) {
+            mOffset = offset;
+        }
+
+        @Override
+        public Double get(int index) {
+            Objects.checkIndex(index, mDimension);
+            return mVectors[mOffset + index];
+        }
+
+        @Override
+        public int size() {
+            return mDimension;
+        }
+    }
+
+    /**
+     * Adds movies to a new {@link MovieVectorStore} one at a time.
+     * Titles and vectors are appended to arrays that grow
+     * geometrically, so adding a movie never boxes a value or keeps a
+     * per-movie object, and the arrays are trimmed to size once by
+     * {@link #build}.  The dimension of the store is the dimension of
+     * the first vector added.  This class isn't thread-safe.
+     */
+    public static class Builder {
+        /**
+         * The titles added so far, indexed by row.
+         */
+        private String[] mTitles = new String[256];
+
+        /**
+         * The vectors added so far, in row-major order.
+         */
+        private double[] mVectors = new double[0];
+
+        /**
+         * The number of components in each vector, or -1 until the
+         * first vector is added.
+         */
+        private int mDimension = -1;
+
+        /**
+         * The number of movies added so far.
+         */
+        private int mSize;
+
+        /**
+         * Use {@link MovieVectorStore#builder()} to create a {@link
+         * Builder}.
+         */
+        private Builder() {
+        }
+
+        /**
+         * Add a movie to the store.
+         *
+         * @param title The movie title
+         * @param vector The cosine vector of the movie, which is
+         *               copied
+         * @return This {@link Builder}
+         */
+        public Builder add(String title, double[] vector) {
+            if (mDimension < 0) {
+                mDimension = vector.length;
+                mVectors = new double[mTitles.length * mDimension];
+            } else if (vector.length != mDimension)
+                throw new IllegalArgumentException
+                    ("Movie \""
+                     + title
+                     + "\" has dimension "
+                     + vector.length
+                     + " instead of "
+                     + mDimension);
+
+            if (mSize == mTitles.length) {
+                // Double the capacity of both arrays.
+                mTitles = Arrays.copyOf(mTitles, mSize * 2);
+                mVectors = Arrays.copyOf(mVectors, mSize * 2 * mDimension);
+            }
+
+            mTitles[mSize] = title;
+            System.arraycopy(vector, 0,
+                             mVectors, mSize * mDimension,
+                             mDimension);
+            mSize++;
+
+            return this;
+        }
+
+        /**
+         * @return The number of movies added so far
+         */
+        public int size() {
+            return mSize;
+        }
+
+        /**
+         * Build a {@link MovieVectorStore} containing the movies
+         * added so far in the order they were added.
+         *
+         * @param normalize True if each vector should be scaled to
+         *                  unit length, else false
+         * @return A new {@link MovieVectorStore}
+         */
+        public MovieVectorStore build(boolean normalize) {
+            int dimension = Math.max(mDimension, 0);
+
+            return new MovieVectorStore(Arrays.copyOf(mTitles, mSize),
+                                        Arrays.copyOf(mVectors,
+                                                      mSize * dimension),
+                                        dimension,
+                                        normalize);
+        }
+    }
+}
@@ -1,22 +1,26 @@
 package edu.vandy.recommender.common;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import edu.vandy.recommender.common.model.Movie;
 import edu.vandy.recommender.utils.WebUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.AbstractMap.SimpleImmutableEntry;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
-import java.util.regex.Pattern;
-import java.util.stream.Stream;
 
 import static edu.vandy.recommender.common.Constants.EndPoint.GET_MOVIES_MAP;
+import static edu.vandy.recommender.common.Constants.EndPoint.GET_MOVIES_STREAM;
 import static edu.vandy.recommender.common.Constants.GATEWAY_PORT;
 import static edu.vandy.recommender.common.Constants.LOCAL_HOST;
 import static edu.vandy.recommender.common.Constants.Service.DATABASE;
@@ -29,11 +33,6 @@ import static java.util.stream.Collectors.toMap;
  */
 @Component
 public class MoviesLoader {
-    /**
-     * Separator used in each dataset line entry.
-     */
-    private static final String SPLITTER = " ";
-
     /**
      * This {@link RestTemplate} is used to connect to the database
      * microservice.
@@ -41,6 +40,15 @@ public class MoviesLoader {
     private static final RestTemplate sRestTemplate =
         new RestTemplate();
 
+    /**
+     * This {@link ObjectReader} reads each line of the database
+     * microservice's {@code GET_MOVIES_STREAM} response straight into
+     * a primitive {@code double[]} vector.
+     */
+    private static final ObjectReader sMovieLineReader =
+        new ObjectMapper()
+        .readerFor(new TypeReference<Map<String, double[]>>() {});
+
     /**
      * Load the movie titles and vectors from the database
      * microservice.
@@ -76,6 +84,162 @@ public class MoviesLoader {
         return movieMap;
     }
 
+    /**
+     * Load the movie titles and vectors from the database
+     * microservice, optionally scaling each vector to unit length.
+     *
+     * @param normalize True if each vector should be scaled to unit
+     *                  length, else false
+     * @return A {@link Map} that associates the movie title with
+     * the cosine vector for each movie
+     */
+    public static Map<String, List<Double>> loadMoviesFromDatabase
+        (boolean normalize) {
+        var movieMap = loadMoviesFromDatabase();
+
+        return normalize
+            ? normalize(movieMap)
+            : movieMap;
+    }
+
+    /**
+     * Stream the movie titles and vectors from the database
+     * microservice straight into a {@link MovieVectorStore}.  Each
+     * movie is added to the store as soon as its line of the
+     * response is read, so the response is never buffered as a whole
+     * document and no {@link Map} of boxed vectors is built.
+     *
+     * @param normalize True if each vector should be scaled to unit
+     *                  length, else false
+     * @return A {@link MovieVectorStore} containing the title and
+     * the cosine vector for each movie
+     */
+    public static MovieVectorStore loadVectorStoreFromDatabase
+        (boolean normalize) {
+        String url = WebUtils
+            .buildUrlString(GATEWAY_PORT,
+                            LOCAL_HOST,
+                            DATABASE + "/" + GET_MOVIES_STREAM);
+
+        var store = sRestTemplate
+            .execute(url,
+                     HttpMethod.GET,
+                     request -> request
+                     .getHeaders()
+                     .setAccept(List.of(MediaType.APPLICATION_NDJSON)),
+                     response -> readVectorStore(response.getBody(),
+                                                 normalize));
+
+        if (store == null) {
+            throw new IllegalStateException
+                ("Unable to stream movies from database microservice.");
+        }
+
+        System.out.println("Successfully streamed "
+                           + store.size()
+                           + " movies from the database microservice at "
+                           + url);
+
+        return store;
+    }
+
+    /**
+     * Read newline-delimited JSON, where each line associates one or
+     * more movie titles with their cosine vectors, into a {@link
+     * MovieVectorStore} one line at a time.
+     *
+     * @param is The {@link InputStream} to read
+     * @param normalize True if each vector should be scaled to unit
+     *                  length, else false
+     * @return A {@link MovieVectorStore} containing the movies in
+     *         the order they were read
+     * @throws IOException If the {@code is} can't be read or parsed
+     */
+    public static MovieVectorStore readVectorStore(InputStream is,
+                                                   boolean normalize)
+        throws IOException {
+        var builder = MovieVectorStore.builder();
+
+        try (MappingIterator<Map<String, double[]>> lines =
+             sMovieLineReader.readValues(is)) {
+            while (lines.hasNextValue())
+                lines.nextValue().forEach(builder::add);
+        }
+
+        return builder.build(normalize);
+    }
+
+    /**
+     * Load the movie titles and vectors from a file in the resources
+     * folder, optionally scaling each vector to unit length.
+     *
+     * @param dataset The pathname where the dataset is located
+     * @param normalize True if each vector should be scaled to unit
+     *                  length, else false
+     * @return A {@link TreeMap} that associates the movie title with
+     * the cosine vector for each movie
+     */
+    public static TreeMap<String, List<Double>> loadMoviesFromResources
+        (final String dataset,
+         boolean normalize) {
+        var movieMap = loadMoviesFromResources(dataset);
+
+        return normalize
+            ? normalize(movieMap)
+            : movieMap;
+    }
+
+    /**
+     * Load the movie titles and vectors from a binary movie vector
+     * file created by {@link MovieVectorFile}, which is memory-mapped
+     * and bulk copied into a {@link MovieVectorStore} without parsing
+     * any text.
+     *
+     * @param vectorFile The pathname of the binary movie vector file
+     * @param normalize True if each vector should be scaled to unit
+     *                  length, else false
+     * @return A {@link MovieVectorStore} containing the title and
+     * the cosine vector for each movie
+     */
+    public static MovieVectorStore loadVectorStoreFromFile
+        (final String vectorFile,
+         boolean normalize) {
+        var store = MovieVectorStore
+            .of(MovieVectorFile.open(Path.of(vectorFile)), normalize);
+
+        System.out.println("Successfully loaded "
+                           + store.size()
+                           + " movies from the vector file "
+                           + vectorFile);
+
+        return store;
+    }
+
+    /**
+     * Scale every cosine vector in the {@code movieMap} to unit
+     * length so that the cosine similarity of two movies reduces to
+     * the dot product of their vectors.
+     *
+     * @param movieMap A {@link Map} that associates the movie title
+     *                 with the cosine vector for each movie
+     * @return A new {@link TreeMap} that associates the movie title
+     * with the unit-length cosine vector for each movie
+     */
+    public static TreeMap<String, List<Double>> normalize
+        (Map<String, List<Double>> movieMap) {
+        return movieMap
+            // Convert the entry set to a Stream.
+            .entrySet()
+            .stream()
+
+            // Put the title and the normalized cosine vector in map.
+            .collect(toMap(Map.Entry::getKey,
+                           entry -> CosineSimilarityUtils
+                           .normalize(entry.getValue()),
+                           (x, y) -> x,
+                           TreeMap::new));
+    }
+
     /**
      * Load the movie titles and vectors from a file in the resources
      * folder.
@@ -91,17 +255,11 @@ public class MoviesLoader {
         try (InputStream is = MoviesLoader.class
              .getResourceAsStream("/" + dataset)) {
 
-            // Create an InputStreamReader from the InputStream.
-            InputStreamReader isr =
-                new InputStreamReader(Objects.requireNonNull(is));
-
-            // Create a BufferedReader from the InputStreamReader.
-            BufferedReader br = new BufferedReader(isr);
-
-            // Use the loadCSVFile() method to load the CSV data from
-            // the BufferedReader and convert it into a Map data
+            // Use the MovieDatasetParser to load the CSV data from
+            // the InputStream and convert it into a TreeMap data
             // structure.
-            var map = loadCSVFile(br);
+            var map = new TreeMap<>(MovieDatasetParser
+                                    .parse(Objects.requireNonNull(is)));
 
             System.out.println("Successfully loaded "
                                + map.size()
@@ -117,68 +275,4 @@ public class MoviesLoader {
             return new TreeMap<>();
         }
     }
-
-    /**
-     * Factory method that builds a cosine vector {@link Map} from a
-     * CSV file containing the cosine values for all the movies.
-     *
-     * @param reader A {@link BufferedReader}.
-     * @return A {@link TreeMap} that associates the movie title with
-     * the cosine vector for each movie
-     */
-    private static TreeMap<String, List<Double>> loadCSVFile
-        (BufferedReader reader) {
-        // Read all lines from filename and convert into a Stream of
-        // Strings.
-        Stream<String> lines = reader.lines();
-
-        return lines
-            // Consume the first line, which gives the format of the
-            // CSV file.
-            .skip(1)
-
-            // Divide the title from the cosine vector.
-            .map(line -> line.split(";"))
-
-            // Put the title and the associated cosine vector in map.
-            .map(strings -> new SimpleImmutableEntry<>
-                 (strings[0], parseVector(strings[1])))
-
-            // Trigger intermediate processing and collect the results
-            // into a Map.
-            .collect(toMap(SimpleImmutableEntry::getKey,
-                           SimpleImmutableEntry::getValue,
-                           (x, y) -> x,
-                           TreeMap::new));
-    }
-
-    /**
-     * Convert the {@link String} representation of movie cosine
-     * values into a {@link List<Double>}.
-     *
-     * @param movieValues The {@link String} vector of cosine values
-     *                    representing a movie
-     * @return A {@link List<Double>} containing the movie cosine
-     * values
-     */
-    private static List<Double> parseVector(String movieValues) {
-        // Access the vector stored in String form.
-        return Pattern
-            // Compile splitter into a regular expression (regex).
-            .compile(SPLITTER)
-
-            // Use regex to split the vector into a stream of strings.
-            .splitAsStream(movieValues
-                           // Remove brackets and spaces.
-                           .substring(3, movieValues.length() - 2))
-
-            // Make the stream a parallel stream.
-            .parallel()
-
-            // Convert each cosine value from String to Double.
-            .map(Double::valueOf)
-
-            // Collect the Stream<Double> into an List<Double>.
-            .toList();
-    }
 }
@@ -0,0 +1,347 @@
+package edu.vandy.recommender.common;
+
+import edu.vandy.recommender.common.model.Ranking;
+import edu.vandy.recommender.utils.TopKSelector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * This class stores the top {@code N} most similar movies of every
+ * movie in a {@link MovieVectorStore} in a compact row-major {@code
+ * int[]}/{@code float[]} table.  Once the table is built, a
+ * single-movie recommendation for up to {@code N} movies is an
+ * {@code O(k)} lookup rather than an {@code O(movies * dimension)}
+ * scan.
+ *
+ * The table is built by a blocked all-pairs pass that compares a
+ * block of rows with a block of columns at a time so both blocks
+ * stay in the CPU cache, and row blocks are processed in parallel.
+ * Tables can be persisted to disk and are tagged with a fingerprint
+ * of the store they were built from, so a stale table is detected
+ * when the dataset changes.
+ *
+ * All values in the file are little-endian and the layout is:
+ * <pre>
+ *   header    : magic "MNBR" (int), version (int),
+ *               movie count (int), neighbors per movie (int),
+ *               store fingerprint (long)
+ *   neighbors : count * width rows (int), row-major
+ *   scores    : count * width similarities (float), row-major
+ * </pre>
+ */
+public class NeighborTable {
+    /**
+     * The magic number at the start of every file ("MNBR").
+     */
+    private static final int MAGIC = 0x52424E4D;
+
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The size of the fixed header in bytes.
+     */
+    private static final int HEADER_SIZE = 24;
+
+    /**
+     * The number of movies in the table.
+     */
+    private final int mSize;
+
+    /**
+     * The number of neighbors stored per movie.
+     */
+    private final int mWidth;
+
+    /**
+     * The neighbor rows of each movie ordered from most to least
+     * similar, row-major.
+     */
+    private final int[] mNeighbors;
+
+    /**
+     * The similarities parallel to {@code mNeighbors}.
+     */
+    private final float[] mScores;
+
+    /**
+     * The fingerprint of the {@link MovieVectorStore} this table was
+     * built from.
+     */
+    private final long mFingerprint;
+
+    /**
+     * Construct a {@link NeighborTable} from its parts.
+     *
+     * @param size The number of movies in the table
+     * @param width The number of neighbors stored per movie
+     * @param neighbors The neighbor rows, row-major
+     * @param scores The similarities parallel to {@code neighbors}
+     * @param fingerprint The fingerprint of the source store
+     */
+    private NeighborTable(int size,
+                          int width,
+                          int[] neighbors,
+                          float[] scores,
+                          long fingerprint) {
+        mSize = size;
+        mWidth = width;
+        mNeighbors = neighbors;
+        mScores = scores;
+        mFingerprint = fingerprint;
+    }
+
+    /**
+     * Build a {@link NeighborTable} containing the {@code n} most
+     * similar movies of every movie in the {@code store}.
+     *
+     * @param store The {@link MovieVectorStore} to compare
+     * @param n The number of neighbors to keep per movie
+     * @param blockSize The number of rows and columns per block
+     * @return A new {@link NeighborTable}
+     */
+    public static NeighborTable build(MovieVectorStore store,
+                                      int n,
+                                      int blockSize) {
+        int size = store.size();
+        int width = Math.max(Math.min(n, size - 1), 0);
+        int block = Math.max(blockSize, 1);
+        var neighbors = new int[size * width];
+        var scores = new float[size * width];
+
+        IntStream
+            // Visit each block of rows.
+            .range(0, (size + block - 1) / block)
+
+            // Process the row blocks in parallel.
+            .parallel()
+
+            // Fill in the table entries for each row block.
+            .forEach(rowBlock -> {
+                    int rowStart = rowBlock * block;
+                    int rowEnd = Math.min(rowStart + block, size);
+
+                    var selectors = new TopKSelector[rowEnd - rowStart];
+                    for (int i = 0; i < selectors.length; i++)
+                        selectors[i] = new TopKSelector(width);
+
+                    // Compare the row block with each column block.
+                    for (int colStart = 0; colStart < size; colStart += block) {
+                        int colEnd = Math.min(colStart + block, size);
+
+                        for (int row = rowStart; row < rowEnd; row++) {
+                            var selector = selectors[row - rowStart];
+                            for (int col = colStart; col < colEnd; col++)
+                                if (col != row)
+                                    selector.offer(col,
+                                                   VectorSimilarityUtils
+                                                   .cosineSimilarity(store,
+                                                                     row,
+                                                                     col));
+                        }
+                    }
+
+                    // Copy the winners of each row into the table.
+                    for (int row = rowStart; row < rowEnd; row++)
+                        selectors[row - rowStart]
+                            .copyTo(neighbors, scores, row * width);
+                });
+
+        return new NeighborTable(size,
+                                 width,
+                                 neighbors,
+                                 scores,
+                                 fingerprint(store));
+    }
+
+    /**
+     * Compute a fingerprint of the titles and vectors in the {@code
+     * store}, which changes whenever the dataset changes.
+     *
+     * @param store A {@link MovieVectorStore}
+     * @return The fingerprint of the {@code store}
+     */
+    public static long fingerprint(MovieVectorStore store) {
+        // Use 64-bit FNV-1a over the titles and vector bits.
+        long hash = 0xcbf29ce484222325L;
+
+        for (int row = 0; row < store.size(); row++) {
+            for (byte b : store.title(row).getBytes(StandardCharsets.UTF_8))
+                hash = (hash ^ b) * 0x100000001b3L;
+
+            // Terminate each title so adjacent titles can't collide.
+            hash *= 0x100000001b3L;
+        }
+
+        for (double value : store.vectors())
+            hash = (hash ^ Double.doubleToLongBits(value)) * 0x100000001b3L;
+
+        return hash ^ store.dimension();
+    }
+
+    /**
+     * @return The number of movies in the table
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return The number of neighbors stored per movie
+     */
+    public int width() {
+        return mWidth;
+    }
+
+    /**
+     * @param store A {@link MovieVectorStore}
+     * @return True if this table was built from a store with the same
+     *         titles and vectors as {@code store}
+     */
+    public boolean matches(MovieVectorStore store) {
+        return store.size() == mSize && fingerprint(store) == mFingerprint;
+    }
+
+    /**
+     * @param maxCount The number of recommendations requested
+     * @return True if the table contains at least {@code maxCount}
+     *         neighbors per movie or all other movies
+     */
+    public boolean covers(int maxCount) {
+        return maxCount <= mWidth || mWidth == mSize - 1;
+    }
+
+    /**
+     * Look up the {@code maxCount} movies most similar to the movie
+     * at {@code row}.
+     *
+     * @param row The row of the watched movie
+     * @param maxCount The max number of neighbors to return
+     * @param titles Maps a row to its movie title
+     * @return A {@link List} of {@link Ranking} objects ordered from
+     *         most to least similar
+     */
+    public List<Ranking> lookup(int row,
+                                int maxCount,
+                                IntFunction<String> titles) {
+        int count = Math.max(Math.min(maxCount, mWidth), 0);
+        var rankings = new ArrayList<Ranking>(count);
+
+        for (int i = row * mWidth; i < row * mWidth + count; i++)
+            rankings.add(new Ranking(titles.apply(mNeighbors[i]),
+                                     (double) mScores[i]));
+
+        return rankings;
+    }
+
+    /**
+     * Write this table to a file at {@code path}.
+     *
+     * @param path The {@link Path} of the file to write
+     */
+    public void write(Path path) {
+        long fileSize = HEADER_SIZE
+            + (long) mNeighbors.length * (Integer.BYTES + Float.BYTES);
+
+        try (var channel = FileChannel.open(path,
+                                            StandardOpenOption.CREATE,
+                                            StandardOpenOption.READ,
+                                            StandardOpenOption.WRITE,
+                                            StandardOpenOption.TRUNCATE_EXISTING)) {
+            var buffer = channel
+                .map(FileChannel.MapMode.READ_WRITE, 0, fileSize)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(mSize)
+                .putInt(mWidth)
+                .putLong(mFingerprint);
+
+            buffer.asIntBuffer().put(mNeighbors);
+            buffer.position(buffer.position()
+                            + mNeighbors.length * Integer.BYTES);
+            buffer.asFloatBuffer().put(mScores);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Read a table previously written by {@link #write}.  The header
+     * dimensions are checked against the file length and every
+     * neighbor row is checked against the movie count, so a
+     * truncated or corrupt file is rejected here rather than failing
+     * a later lookup.
+     *
+     * @param path The {@link Path} of the file to read
+     * @return The {@link NeighborTable} stored in the file
+     * @throws IllegalArgumentException If the file isn't a valid
+     *         neighbor table
+     */
+    public static NeighborTable read(Path path) {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var buffer = channel
+                .map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                throw new IllegalArgumentException
+                    (path + " is not a version "
+                     + VERSION + " neighbor table file");
+
+            int size = buffer.getInt();
+            int width = buffer.getInt();
+            long fingerprint = buffer.getLong();
+
+            // A table never holds more than all the other movies.
+            if (size < 0 || width < 0 || width > Math.max(size - 1, 0))
+                throw new IllegalArgumentException
+                    (path + " has an invalid header: " + size
+                     + " movies with " + width + " neighbors each");
+
+            long entries = (long) size * width;
+            long expectedSize = HEADER_SIZE
+                + entries * (Integer.BYTES + Float.BYTES);
+            if (channel.size() != expectedSize)
+                throw new IllegalArgumentException
+                    (path + " is " + channel.size()
+                     + " bytes, but its header needs " + expectedSize);
+
+            var neighbors = new int[(int) entries];
+            var scores = new float[(int) entries];
+
+            buffer.asIntBuffer().get(neighbors);
+            buffer.position(buffer.position()
+                            + neighbors.length * Integer.BYTES);
+            buffer.asFloatBuffer().get(scores);
+
+            // Every neighbor must be a row of the table.
+            for (int neighbor : neighbors)
+                if (neighbor < 0 || neighbor >= size)
+                    throw new IllegalArgumentException
+                        (path + " contains neighbor row " + neighbor
+                         + " outside of " + size + " movies");
+
+            return new NeighborTable(size,
+                                     width,
+                                     neighbors,
+                                     scores,
+                                     fingerprint);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package edu.vandy.recommender.common;
+
+import edu.vandy.recommender.common.model.Ranking;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * This class builds a {@link NeighborTable} for a {@link
+ * MovieVectorStore} on a background thread so startup isn't delayed,
+ * and answers single-movie recommendation lookups once the table is
+ * ready.
+ *
+ * If a table file is configured, a previously persisted table is
+ * reused when its fingerprint matches the store; otherwise the table
+ * is rebuilt and written back to the file.  Calling {@link #rebuild}
+ * with a new store discards the current table until its replacement
+ * is ready.
+ */
+public class NeighborTableJob {
+    /**
+     * Logs when the table is loaded or built, and why it couldn't be.
+     */
+    private static final Logger logger =
+        LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    /**
+     * The number of neighbors to keep per movie.
+     */
+    private final int mN;
+
+    /**
+     * The number of rows and columns per block of the all-pairs pass.
+     */
+    private final int mBlockSize;
+
+    /**
+     * The file the table is persisted to, or null if the table isn't
+     * persisted.
+     */
+    private final Path mFile;
+
+    /**
+     * A table together with the store it was built for, which are
+     * published as one unit so a lookup never pairs a table with the
+     * titles of a different store.
+     *
+     * @param store The {@link MovieVectorStore} the table was built
+     *              for
+     * @param table The {@link NeighborTable} of the {@code store}
+     */
+    private record Ready(MovieVectorStore store, NeighborTable table) {}
+
+    /**
+     * The store whose table is currently being built or served.
+     */
+    private volatile MovieVectorStore mStore;
+
+    /**
+     * The table for {@code mStore}, or null if it isn't ready yet.
+     */
+    private volatile Ready mReady;
+
+    /**
+     * Create a {@link NeighborTableJob}.
+     *
+     * @param n The number of neighbors to keep per movie
+     * @param blockSize The number of rows and columns per block of
+     *                  the all-pairs pass
+     * @param file The pathname the table is persisted to, or an empty
+     *             {@link String} if the table isn't persisted
+     */
+    public NeighborTableJob(int n, int blockSize, String file) {
+        mN = n;
+        mBlockSize = blockSize;
+        mFile = file == null || file.isEmpty() ? null : Path.of(file);
+    }
+
+    /**
+     * Start building the table for the {@code store} in the
+     * background, replacing any table for a previous store.
+     *
+     * @param store The {@link MovieVectorStore} to build a table for
+     * @return A {@link CompletableFuture} that completes with the new
+     *         {@link NeighborTable}
+     */
+    public CompletableFuture<NeighborTable> rebuild(MovieVectorStore store) {
+        mStore = store;
+        mReady = null;
+
+        var future = new CompletableFuture<NeighborTable>();
+
+        Thread.ofVirtual().name("neighbor-table").start(() -> {
+                try {
+                    var table = loadOrBuild(store);
+
+                    // Only publish the table if the store hasn't been
+                    // replaced in the meantime.
+                    if (mStore == store)
+                        mReady = new Ready(store, table);
+
+                    future.complete(table);
+                } catch (Exception e) {
+                    logger.warn("Unable to build neighbor table", e);
+                    future.completeExceptionally(e);
+                }
+            });
+
+        return future;
+    }
+
+    /**
+     * @return The {@link NeighborTable} for the current store, or
+     *         null if it isn't ready yet
+     */
+    public NeighborTable table() {
+        var ready = mReady;
+        return ready == null ? null : ready.table();
+    }
+
+    /**
+     * Look up the {@code maxCount} movies most similar to the {@code
+     * watchedMovie} in the table of the current store.
+     *
+     * @param watchedMovie The title of the watched movie
+     * @param maxCount The max number of recommendations
+     * @return A {@link List} of {@link Ranking} objects ordered from
+     *         most to least similar, or null if the table isn't ready,
+     *         doesn't contain the {@code watchedMovie}, or doesn't
+     *         cover {@code maxCount}
+     */
+    public List<Ranking> lookup(String watchedMovie, int maxCount) {
+        var ready = mReady;
+        if (ready == null || !ready.table().covers(maxCount))
+            return null;
+
+        int row = ready.store().row(watchedMovie);
+
+        return row < 0
+            ? null
+            : ready.table().lookup(row, maxCount, ready.store()::title);
+    }
+
+    /**
+     * Load the persisted table if it matches the {@code store}, else
+     * build a new table and persist it.
+     *
+     * @param store The {@link MovieVectorStore} to build a table for
+     * @return A {@link NeighborTable} for the {@code store}
+     */
+    private NeighborTable loadOrBuild(MovieVectorStore store) {
+        if (mFile != null && Files.exists(mFile)) {
+            try {
+                var table = NeighborTable.read(mFile);
+                if (table.size() == store.size()
+                    && table.width() >= Math.min(mN, store.size() - 1)
+                    && table.matches(store)) {
+                    logger.info("Loaded neighbor table from {}", mFile);
+                    return table;
+                }
+
+                logger.info("Rebuilding stale neighbor table {} "
+                            + "({} movies with {} neighbors each)",
+                            mFile,
+                            table.size(),
+                            table.width());
+            } catch (Exception e) {
+                logger.warn("Unable to read neighbor table {}", mFile, e);
+            }
+        }
+
+        long startTime = System.nanoTime();
+
+        var table = NeighborTable.build(store, mN, mBlockSize);
+
+        logger.info("Built top-{} neighbor table over {} movies in {} msecs",
+                    table.width(),
+                    table.size(),
+                    (System.nanoTime() - startTime) / 1_000_000);
+
+        if (mFile != null)
+            table.write(mFile);
+
+        return table;
+    }
+}
@@ -0,0 +1,122 @@
+package edu.vandy.recommender.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * This class caches recommendation results so identical requests
+ * aren't recomputed from scratch.  It's a thin layer over a bounded
+ * Caffeine {@link Cache}, which evicts entries via W-TinyLFU once
+ * {@code maxSize} entries are cached and expires entries {@code ttl}
+ * after they were computed.
+ *
+ * Keys are canonicalized, so requests for the same watched movies in
+ * a different order or with duplicates share a cache entry.  The
+ * movies are only loaded once per process, so {@link #invalidateAll}
+ * is the hook to call if they're ever reloaded.
+ */
+public class RecommendationCache {
+    /**
+     * The canonical key of a recommendation request.
+     *
+     * @param watchedMovies The sorted, de-duplicated watched movies
+     * @param maxCount The upper limit for the number of
+     *                 recommendations
+     */
+    public record Key(List<String> watchedMovies, int maxCount) {
+        /**
+         * @param watchedMovie The title of the watched movie
+         * @param maxCount The upper limit for the number of
+         *                 recommendations
+         * @return The canonical {@link Key} of the request
+         */
+        public static Key of(String watchedMovie, int maxCount) {
+            return new Key(List.of(watchedMovie), maxCount);
+        }
+
+        /**
+         * @param watchedMovies The titles of the watched movies
+         * @param maxCount The upper limit for the number of
+         *                 recommendations
+         * @return The canonical {@link Key} of the request
+         */
+        public static Key of(Collection<String> watchedMovies, int maxCount) {
+            return new Key(List.copyOf(new TreeSet<>(watchedMovies)), maxCount);
+        }
+    }
+
+    /**
+     * The cached recommendation results.
+     */
+    private final Cache<Key, Object> mCache;
+
+    /**
+     * Create a {@link RecommendationCache}.
+     *
+     * @param maxSize The max number of cached results
+     * @param ttl How long a result stays cached after it's computed
+     */
+    public RecommendationCache(long maxSize, Duration ttl) {
+        mCache = Caffeine
+            .newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+    }
+
+    /**
+     * Return the cached result for the {@code key}, computing and
+     * caching it via {@code compute} if it's absent.  Concurrent
+     * requests for the same absent key compute the result only once.
+     *
+     * @param key The canonical {@link Key} of the request
+     * @param compute Computes the result on a cache miss
+     * @return The cached or newly computed result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key key, Supplier<T> compute) {
+        return (T) mCache.get(key, k -> compute.get());
+    }
+
+    /**
+     * Remove the cached result for the {@code key}.
+     *
+     * @param key The canonical {@link Key} of the request
+     */
+    public void invalidate(Key key) {
+        mCache.invalidate(key);
+    }
+
+    /**
+     * Remove all cached results.
+     */
+    public void invalidateAll() {
+        mCache.invalidateAll();
+    }
+
+    /**
+     * @return A {@link Map} of the hit, miss, and eviction counters,
+     *         the hit rate as a percentage, and the current size
+     */
+    public Map<String, Long> stats() {
+        var stats = mCache.stats();
+        var map = new LinkedHashMap<String, Long>();
+
+        map.put("hits", stats.hitCount());
+        map.put("misses", stats.missCount());
+        map.put("evictions", stats.evictionCount());
+        map.put("hitRatePercent", Math.round(stats.hitRate() * 100));
+        map.put("size", mCache.estimatedSize());
+
+        return map;
+    }
+}
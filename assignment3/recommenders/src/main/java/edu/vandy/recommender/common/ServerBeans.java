@@ -1,11 +1,17 @@
 package edu.vandy.recommender.common;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -21,18 +27,36 @@ import java.util.TreeMap;
 public class ServerBeans {
     /**
      * Constructs a {@link TreeMap} Bean that contains the movie titles
-     * and cosine vectors.
+     * and cosine vectors.  If the {@code app.stream-movies} property
+     * is true this Bean is instead a {@link Map} view of the {@code
+     * movieVectorStore} Bean.
      *
+     * @param dataset The name of the dataset (unused)
+     * @param normalize True if the vectors should be scaled to unit
+     *                  length so cosine similarity is a dot product
+     * @param streamMovies True if the movies are streamed from the
+     *                     database microservice into the {@code
+     *                     movieVectorStore} Bean
+     * @param store The {@link MovieVectorStore} to view when
+     *              streaming
      * @return A {@link Map} containing all movie titles and associated
      *         cosine vectors.
      */
     @Lazy // Only create this bean lazily (on demand).
     @Bean("movieMap")
     public Map<String, List<Double>> getMovieMap
-        (@Value("${app.dataset}") final String dataset) {
+        (@Value("${app.dataset}") final String dataset,
+         @Value("${app.normalize-vectors:false}") final boolean normalize,
+         @Value("${app.stream-movies:false}") final boolean streamMovies,
+         @Lazy @Qualifier("movieVectorStore") MovieVectorStore store) {
+        // When streaming, the store is loaded first and this Map is
+        // just a view of it, so every vector is only held once.
+        if (streamMovies)
+            return store.asMap();
+
         try {
             // return LoadVectors.loadVectors(dataset);
-            return MoviesLoader.loadMoviesFromDatabase();
+            return MoviesLoader.loadMoviesFromDatabase(normalize);
         } catch (Exception e) {
             System.out.println(
                 "ERROR! Unable to retrieve movie cosine"
@@ -42,4 +66,183 @@ public class ServerBeans {
             return new TreeMap<>();
         }
     }
+
+    /**
+     * Constructs a {@link MovieVectorStore} Bean that contains the
+     * same movie titles and cosine vectors as the {@code movieMap}
+     * Bean, but stored contiguously in primitive arrays.  If the
+     * {@code app.vector-file} property names a binary movie vector
+     * file the store is loaded from that file instead, in which case
+     * the {@code movieMap} Bean isn't needed.
+     *
+     * @param movieMap A {@link Map} containing all movie titles and
+     *                 associated cosine vectors
+     * @param normalize True if the vectors should be scaled to unit
+     *                  length so cosine similarity is a dot product
+     * @param vectorFile The pathname of a binary movie vector file,
+     *                   or an empty {@link String} if there is none
+     * @param streamMovies True if the movies should be streamed from
+     *                     the database microservice, which is used
+     *                     when there's no {@code vectorFile}
+     * @return A {@link MovieVectorStore} containing all movie titles
+     *         and associated cosine vectors
+     */
+    @Lazy // Only create this bean lazily (on demand).
+    @Bean("movieVectorStore")
+    public MovieVectorStore getMovieVectorStore
+        (@Lazy @Qualifier("movieMap") Map<String, List<Double>> movieMap,
+         @Value("${app.normalize-vectors:false}") final boolean normalize,
+         @Value("${app.vector-file:}") final String vectorFile,
+         @Value("${app.stream-movies:false}") final boolean streamMovies) {
+        if (!vectorFile.isEmpty()) {
+            try {
+                return MoviesLoader
+                    .loadVectorStoreFromFile(vectorFile, normalize);
+            } catch (Exception e) {
+                System.out.println("ERROR! Unable to load movie vector file "
+                                   + vectorFile
+                                   + ": "
+                                   + e);
+            }
+        }
+
+        if (streamMovies) {
+            try {
+                return MoviesLoader.loadVectorStoreFromDatabase(normalize);
+            } catch (Exception e) {
+                System.out.println("ERROR! Unable to stream movie cosine"
+                                   + " vectors from database microservice: "
+                                   + e);
+                // Return an empty MovieVectorStore.
+                return MovieVectorStore.builder().build(normalize);
+            }
+        }
+
+        return MovieVectorStore.of(movieMap, normalize);
+    }
+
+    /**
+     * Constructs a {@link TitleIndex} Bean over all titles of the
+     * {@code movieVectorStore} Bean when the {@code
+     * app.title-index.enabled} property is true, so title searches
+     * don't have to scan every title.  The index is built lazily by
+     * the first title search.
+     *
+     * @param store The {@link MovieVectorStore} whose titles to index
+     * @return A {@link TitleIndex} over all movie titles
+     */
+    @Lazy
+    @Bean("titleIndex")
+    @ConditionalOnProperty(name = "app.title-index.enabled", havingValue = "true")
+    public TitleIndex getTitleIndex
+        (@Qualifier("movieVectorStore") MovieVectorStore store) {
+        return new TitleIndex(store.titles());
+    }
+
+    /**
+     * Constructs an {@link HnswIndex} Bean over all rows of the
+     * {@code movieVectorStore} Bean when the {@code app.hnsw.enabled}
+     * property is true.  The index is built lazily by the first
+     * approximate recommendation request, so startup doesn't force
+     * the {@code movieVectorStore} Bean to load.  If the {@code
+     * app.hnsw.recall-report} property is true a recall@k report
+     * against the exact results is printed once the index is built.
+     *
+     * @param store The {@link MovieVectorStore} to index
+     * @param m The max number of links per node
+     * @param efConstruction The size of the dynamic candidate list
+     *                       used while building the index
+     * @param efSearch The size of the dynamic candidate list used
+     *                 while searching the index
+     * @param recallReport True if the recall report is printed
+     * @param recallSample The number of movies sampled by the recall
+     *                     report
+     * @return An {@link HnswIndex} over all movie vectors
+     */
+    @Lazy
+    @Bean("movieIndex")
+    @ConditionalOnProperty(name = "app.hnsw.enabled", havingValue = "true")
+    public HnswIndex getMovieIndex
+        (@Qualifier("movieVectorStore") MovieVectorStore store,
+         @Value("${app.hnsw.m:16}") final int m,
+         @Value("${app.hnsw.ef-construction:100}") final int efConstruction,
+         @Value("${app.hnsw.ef-search:64}") final int efSearch,
+         @Value("${app.hnsw.recall-report:false}") final boolean recallReport,
+         @Value("${app.hnsw.recall-sample:100}") final int recallSample) {
+        long startTime = System.nanoTime();
+
+        var index = new HnswIndex(store, m, efConstruction, efSearch);
+
+        if (recallReport) {
+            System.out.println("Built HNSW index over "
+                               + index.size()
+                               + " movies in "
+                               + (System.nanoTime() - startTime) / 1_000_000
+                               + " msecs");
+            System.out.println(index.recallReport(recallSample, 10));
+        }
+
+        return index;
+    }
+
+    /**
+     * Constructs a {@link NeighborTableJob} Bean that answers lookups
+     * from the top-{@code n} neighbor table of the {@code
+     * movieVectorStore} Bean when the {@code app.neighbors.enabled}
+     * property is true.  The table isn't built until the {@code
+     * neighborTableBuilder} Bean starts it.
+     *
+     * @param n The number of neighbors to keep per movie
+     * @param blockSize The number of rows and columns per block of
+     *                  the all-pairs pass
+     * @param file The pathname the table is persisted to, or an empty
+     *             {@link String} if the table isn't persisted
+     * @return A {@link NeighborTableJob} without a table yet
+     */
+    @Bean("neighborTableJob")
+    @ConditionalOnProperty(name = "app.neighbors.enabled", havingValue = "true")
+    public NeighborTableJob getNeighborTableJob
+        (@Value("${app.neighbors.n:100}") final int n,
+         @Value("${app.neighbors.block-size:256}") final int blockSize,
+         @Value("${app.neighbors.file:}") final String file) {
+        return new NeighborTableJob(n, blockSize, file);
+    }
+
+    /**
+     * Constructs an {@link ApplicationListener} Bean that starts
+     * building the neighbor table in the background once the
+     * application is ready, so startup neither waits for the table
+     * nor forces the lazy {@code movieVectorStore} Bean to load
+     * before the database microservice can be reached.
+     *
+     * @param job The {@link NeighborTableJob} that builds the table
+     * @param store Provides the {@link MovieVectorStore} to build a
+     *              table for
+     * @return An {@link ApplicationListener} that starts the build
+     */
+    @Bean("neighborTableBuilder")
+    @ConditionalOnProperty(name = "app.neighbors.enabled", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> getNeighborTableBuilder
+        (@Qualifier("neighborTableJob") NeighborTableJob job,
+         @Qualifier("movieVectorStore") ObjectProvider<MovieVectorStore> store) {
+        return event -> job.rebuild(store.getObject());
+    }
+
+    /**
+     * Constructs a {@link RecommendationCache} Bean that caches the
+     * results of identical recommendation requests when the {@code
+     * app.cache.enabled} property is true.
+     *
+     * @param maxSize The max number of cached results
+     * @param ttlSeconds How many seconds a result stays cached
+     * @return A {@link RecommendationCache}
+     */
+    @Bean("recommendationCache")
+    @ConditionalOnProperty(name = "app.cache.enabled", havingValue = "true")
+    public RecommendationCache getRecommendationCache
+        (@Value("${app.cache.max-size:10000}") final long maxSize,
+         @Value("${app.cache.ttl-seconds:600}") final long ttlSeconds) {
+        return new RecommendationCache(maxSize,
+                                       Duration.ofSeconds(ttlSeconds));
+    }
 }
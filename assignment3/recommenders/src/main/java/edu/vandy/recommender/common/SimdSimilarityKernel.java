@@ -0,0 +1,113 @@
+package edu.vandy.recommender.common;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * This class uses the incubating JDK Vector API to compute dot
+ * products and cosine similarities over primitive {@code double}
+ * arrays using the widest SIMD lanes supported by the CPU.
+ *
+ * This class must only be loaded when the {@code
+ * jdk.incubator.vector} module is present, so it's only accessed via
+ * {@link VectorSimilarityUtils}, which falls back to a scalar loop
+ * otherwise.
+ */
+final class SimdSimilarityKernel {
+    /**
+     * The preferred (i.e., widest) vector shape on this platform.
+     */
+    private static final VectorSpecies<Double> SPECIES =
+        DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * A Java utility class should have a private constructor.
+     */
+    private SimdSimilarityKernel() {}
+
+    /**
+     * Compute the dot product of two vectors of the given {@code
+     * length} that start at the given offsets of two (possibly
+     * identical) primitive arrays.
+     *
+     * @param a The array containing the first vector
+     * @param offsetA The index of the first component of vector a
+     * @param b The array containing the second vector
+     * @param offsetB The index of the first component of vector b
+     * @param length The number of components in each vector
+     * @return The computed dot product
+     */
+    static double dotProduct(double[] a,
+                             int offsetA,
+                             double[] b,
+                             int offsetB,
+                             int length) {
+        var sum = DoubleVector.zero(SPECIES);
+        int upperBound = SPECIES.loopBound(length);
+        int i = 0;
+
+        // Multiply and accumulate a full lane width at a time.
+        for (; i < upperBound; i += SPECIES.length()) {
+            var va = DoubleVector.fromArray(SPECIES, a, offsetA + i);
+            var vb = DoubleVector.fromArray(SPECIES, b, offsetB + i);
+            sum = va.fma(vb, sum);
+        }
+
+        double dotProduct = sum.reduceLanes(VectorOperators.ADD);
+
+        // Handle any remaining components one at a time.
+        for (; i < length; i++)
+            dotProduct += a[offsetA + i] * b[offsetB + i];
+
+        return dotProduct;
+    }
+
+    /**
+     * Compute the cosine similarity value for two vectors of the
+     * given {@code length} that start at the given offsets of two
+     * (possibly identical) primitive arrays.
+     *
+     * @param a The array containing the first vector
+     * @param offsetA The index of the first component of vector a
+     * @param b The array containing the second vector
+     * @param offsetB The index of the first component of vector b
+     * @param length The number of components in each vector
+     * @return The computed cosine similarity index
+     */
+    static double cosineSimilarity(double[] a,
+                                   int offsetA,
+                                   double[] b,
+                                   int offsetB,
+                                   int length) {
+        var dotSum = DoubleVector.zero(SPECIES);
+        var normASum = DoubleVector.zero(SPECIES);
+        var normBSum = DoubleVector.zero(SPECIES);
+        int upperBound = SPECIES.loopBound(length);
+        int i = 0;
+
+        // Accumulate the dot product and both norms in one pass.
+        for (; i < upperBound; i += SPECIES.length()) {
+            var va = DoubleVector.fromArray(SPECIES, a, offsetA + i);
+            var vb = DoubleVector.fromArray(SPECIES, b, offsetB + i);
+            dotSum = va.fma(vb, dotSum);
+            normASum = va.fma(va, normASum);
+            normBSum = vb.fma(vb, normBSum);
+        }
+
+        double dotProduct = dotSum.reduceLanes(VectorOperators.ADD);
+        double normA = normASum.reduceLanes(VectorOperators.ADD);
+        double normB = normBSum.reduceLanes(VectorOperators.ADD);
+
+        // Handle any remaining components one at a time.
+        for (; i < length; i++) {
+            double x = a[offsetA + i];
+            double y = b[offsetB + i];
+            dotProduct += x * y;
+            normA += x * x;
+            normB += y * y;
+        }
+
+        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+}
@@ -0,0 +1,258 @@
+package edu.vandy.recommender.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class is a trigram inverted index over case-folded movie
+ * titles, which answers case-insensitive substring searches without
+ * scanning every title.  Each distinct three-character sequence of a
+ * folded title maps to a posting list of the rows containing it, so
+ * a query intersects the posting lists of its own trigrams to get a
+ * small set of candidates and only verifies those candidates.
+ *
+ * Titles are stored in ascending order (ignoring case), so search
+ * results are returned in the same order as the other title
+ * searches.  Queries shorter than three characters
+ * have no trigrams and fall back to a scan of the pre-folded titles.
+ * This class is immutable once it's built and thus thread-safe.
+ */
+public class TitleIndex {
+    /**
+     * Orders titles ignoring case, breaking ties between titles that
+     * only differ in case by their natural order.  This matches the
+     * {@code order by lower(id), id} of the database title searches.
+     */
+    static final Comparator<String> TITLE_ORDER =
+        String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    /**
+     * The titles in ascending order (ignoring case), indexed by row.
+     */
+    private final String[] mTitles;
+
+    /**
+     * The case-folded titles, parallel to {@code mTitles}.
+     */
+    private final String[] mFoldedTitles;
+
+    /**
+     * Maps each trigram to the ascending rows of the folded titles
+     * that contain it.
+     */
+    private final Map<Long, int[]> mPostings;
+
+    /**
+     * Build a {@link TitleIndex} over the {@code titles}.
+     *
+     * @param titles The movie titles to index
+     */
+    public TitleIndex(Collection<String> titles) {
+        mTitles = titles.stream().sorted(TITLE_ORDER).toArray(String[]::new);
+        mFoldedTitles = new String[mTitles.length];
+
+        var postings = new HashMap<Long, PostingList>();
+
+        for (int row = 0; row < mTitles.length; row++) {
+            var folded = fold(mTitles[row]);
+            mFoldedTitles[row] = folded;
+
+            for (int i = 0; i + 3 <= folded.length(); i++) {
+                var list = postings
+                    .computeIfAbsent(trigram(folded, i),
+                                     k -> new PostingList());
+
+                // Rows are visited in order, so a repeated trigram
+                // within one title is always the last row added.
+                list.addIfAbsent(row);
+            }
+        }
+
+        mPostings = new HashMap<>(postings.size() * 4 / 3 + 1);
+        postings.forEach((trigram, list) -> mPostings.put(trigram,
+                                                          list.toArray()));
+    }
+
+    /**
+     * @return The number of indexed titles
+     */
+    public int size() {
+        return mTitles.length;
+    }
+
+    /**
+     * Find all titles that contain the {@code query}, ignoring case.
+     *
+     * @param query The search query
+     * @return A {@link List} of matching titles in ascending order
+     *         (ignoring case)
+     */
+    public List<String> search(String query) {
+        var rows = searchRows(query);
+        var titles = new ArrayList<String>(rows.length);
+
+        for (int row : rows)
+            titles.add(mTitles[row]);
+
+        return titles;
+    }
+
+    /**
+     * Find the rows of all titles that contain the {@code query},
+     * ignoring case.
+     *
+     * @param query The search query
+     * @return The ascending rows of the matching titles
+     */
+    public int[] searchRows(String query) {
+        var folded = fold(query);
+
+        // A short query has no trigrams, so verify every title.
+        if (folded.length() < 3)
+            return verify(null, mTitles.length, folded);
+
+        // Gather the posting list of each trigram in the query.
+        var lists = new ArrayList<int[]>();
+        for (int i = 0; i + 3 <= folded.length(); i++) {
+            var list = mPostings.get(trigram(folded, i));
+
+            // No title contains a trigram that isn't indexed.
+            if (list == null)
+                return new int[0];
+
+            lists.add(list);
+        }
+
+        // Intersect the shortest lists first to shrink the candidates
+        // as quickly as possible.
+        lists.sort(Comparator.comparingInt(list -> list.length));
+
+        var candidates = lists.get(0);
+        int count = candidates.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            if (lists.get(i) == lists.get(i - 1))
+                continue;
+            candidates = intersect(candidates, count, lists.get(i));
+            count = candidates.length;
+        }
+
+        // Trigrams don't encode their order, so verify each candidate.
+        return verify(candidates, count, folded);
+    }
+
+    /**
+     * Keep only the candidates whose folded title contains the
+     * {@code folded} query.
+     *
+     * @param candidates The ascending candidate rows, or null to
+     *                   consider every row
+     * @param count The number of candidates
+     * @param folded The case-folded query
+     * @return The ascending rows that contain the query
+     */
+    private int[] verify(int[] candidates, int count, String folded) {
+        var matches = new int[count];
+        int size = 0;
+
+        for (int i = 0; i < count; i++) {
+            int row = candidates == null ? i : candidates[i];
+            if (mFoldedTitles[row].contains(folded))
+                matches[size++] = row;
+        }
+
+        return Arrays.copyOf(matches, size);
+    }
+
+    /**
+     * Intersect two ascending row arrays.
+     *
+     * @param a The first ascending rows
+     * @param count The number of rows of {@code a} to consider
+     * @param b The second ascending rows
+     * @return The ascending rows in both {@code a} and {@code b}
+     */
+    private static int[] intersect(int[] a, int count, int[] b) {
+        var result = new int[Math.min(count, b.length)];
+        int size = 0;
+
+        for (int i = 0, j = 0; i < count && j < b.length; ) {
+            if (a[i] < b[j])
+                i++;
+            else if (a[i] > b[j])
+                j++;
+            else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Case-fold a {@link String} exactly as the original searches do,
+     * so the index keeps their semantics.
+     *
+     * @param s The {@link String} to fold
+     * @return The case-folded {@link String}
+     */
+    private static String fold(String s) {
+        return s.toLowerCase();
+    }
+
+    /**
+     * Pack the three characters at {@code index} of {@code s} into a
+     * single key.
+     *
+     * @param s A case-folded {@link String}
+     * @param index The index of the first character
+     * @return The trigram key
+     */
+    private static long trigram(String s, int index) {
+        return ((long) s.charAt(index) << 32)
+            | ((long) s.charAt(index + 1) << 16)
+            | s.charAt(index + 2);
+    }
+
+    /**
+     * A growable ascending array of rows used while building the
+     * index.
+     */
+    private static final class PostingList {
+        /**
+         * The rows added so far.
+         */
+        private int[] mRows = new int[4];
+
+        /**
+         * The number of rows added so far.
+         */
+        private int mSize;
+
+        /**
+         * Append the {@code row} unless it was the last row added.
+         *
+         * @param row The row to append
+         */
+        void addIfAbsent(int row) {
+            if (mSize > 0 && mRows[mSize - 1] == row)
+                return;
+            if (mSize == mRows.length)
+                mRows = Arrays.copyOf(mRows, mSize * 2);
+            mRows[mSize++] = row;
+        }
+
+        /**
+         * @return A trimmed copy of the rows
+         */
+        int[] toArray() {
+            return Arrays.copyOf(mRows, mSize);
+        }
+    }
+}
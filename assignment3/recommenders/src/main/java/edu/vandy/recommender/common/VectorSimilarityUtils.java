@@ -0,0 +1,190 @@
+package edu.vandy.recommender.common;
+
+/**
+ * This class computes dot products and cosine similarity values over
+ * primitive {@code double} arrays and {@link MovieVectorStore} rows
+ * using the SIMD lanes of the incubating JDK Vector API when the
+ * {@code jdk.incubator.vector} module is available.  When the module
+ * is missing it falls back to the scalar loops in {@link
+ * CosineSimilarityUtils}, so callers can always use these methods as
+ * a drop-in alternative to the stream-based implementation.
+ */
+public class VectorSimilarityUtils {
+    /**
+     * True if the {@code jdk.incubator.vector} module was added to
+     * the boot layer (e.g., via {@code --add-modules}), else false.
+     */
+    private static final boolean sSimdSupported = ModuleLayer
+        .boot()
+        .findModule("jdk.incubator.vector")
+        .isPresent();
+
+    /**
+     * A Java utility class should have a private constructor.
+     */
+    private VectorSimilarityUtils() {}
+
+    /**
+     * @return True if the SIMD kernel is used, else false if the
+     *         scalar fallback is used
+     */
+    public static boolean isSimdSupported() {
+        return sSimdSupported;
+    }
+
+    /**
+     * Compute the dot product of two vectors of the given {@code
+     * length} that start at the given offsets of two (possibly
+     * identical) primitive arrays.
+     *
+     * @param a The array containing the first vector
+     * @param offsetA The index of the first component of vector a
+     * @param b The array containing the second vector
+     * @param offsetB The index of the first component of vector b
+     * @param length The number of components in each vector
+     * @return The computed dot product
+     */
+    public static double dotProduct(double[] a,
+                                    int offsetA,
+                                    double[] b,
+                                    int offsetB,
+                                    int length) {
+        return sSimdSupported
+            ? SimdSimilarityKernel
+            .dotProduct(a, offsetA, b, offsetB, length)
+            : CosineSimilarityUtils
+            .dotProduct(a, offsetA, b, offsetB, length);
+    }
+
+    /**
+     * Compute the cosine similarity value for two vectors of the
+     * given {@code length} that start at the given offsets of two
+     * (possibly identical) primitive arrays.
+     *
+     * @param a The array containing the first vector
+     * @param offsetA The index of the first component of vector a
+     * @param b The array containing the second vector
+     * @param offsetB The index of the first component of vector b
+     * @param length The number of components in each vector
+     * @return The computed cosine similarity index
+     */
+    public static double cosineSimilarity(double[] a,
+                                          int offsetA,
+                                          double[] b,
+                                          int offsetB,
+                                          int length) {
+        return sSimdSupported
+            ? SimdSimilarityKernel
+            .cosineSimilarity(a, offsetA, b, offsetB, length)
+            : CosineSimilarityUtils
+            .cosineSimilarity(a, offsetA, b, offsetB, length);
+    }
+
+    /**
+     * Compute the cosine similarity value for two rows of the {@code
+     * store} using the cached row norms, so only the dot product is
+     * computed here.
+     *
+     * @param store The {@link MovieVectorStore} containing both rows
+     * @param rowA The row of the first movie
+     * @param rowB The row of the second movie
+     * @return The computed cosine similarity index
+     */
+    public static double cosineSimilarity(MovieVectorStore store,
+                                          int rowA,
+                                          int rowB) {
+        double dotProduct = dotProduct(store.vectors(),
+                                       store.offset(rowA),
+                                       store.vectors(),
+                                       store.offset(rowB),
+                                       store.dimension());
+
+        return store.isNormalized()
+            // Unit vectors need no further scaling.
+            ? dotProduct
+            // Otherwise, divide by the cached norms.
+            : dotProduct / (store.norm(rowA) * store.norm(rowB));
+    }
+
+    /**
+     * Calculates the sum of cosine similarities of the movie at
+     * {@code row} with the movies at each of the {@code watchedRows}
+     * of the {@code store}.
+     *
+     * @param store The {@link MovieVectorStore} containing all rows
+     * @param row The row of the movie we want to calculate similarity
+     * @param watchedRows The rows of the watched movies to compare
+     *                    with the movie at {@code row}
+     * @return A {@link double} containing the sum of cosine
+     *         similarities
+     */
+    public static double sumOfCosines(MovieVectorStore store,
+                                      int row,
+                                      int[] watchedRows) {
+        double sum = 0.0;
+
+        // Sum the cosine similarity with each watched movie.
+        for (int watchedRow : watchedRows)
+            sum += cosineSimilarity(store, row, watchedRow);
+
+        return sum;
+    }
+
+    /**
+     * Build the aggregated profile vector of the movies at {@code
+     * watchedRows}, i.e., the sum of their unit-length vectors.
+     * Since cosine similarity is linear in each unit vector, the sum
+     * of the cosine similarities of a movie with all the watched
+     * movies equals its dot product with this one vector divided by
+     * its own norm, so the cost of scoring a movie no longer depends
+     * on how many movies were watched.
+     *
+     * @param store The {@link MovieVectorStore} containing all rows
+     * @param watchedRows The rows of the watched movies
+     * @return A new array containing the sum of the unit vectors of
+     *         the watched movies
+     */
+    public static double[] profileVector(MovieVectorStore store,
+                                         int[] watchedRows) {
+        var vectors = store.vectors();
+        var profile = new double[store.dimension()];
+
+        // Accumulate the unit vector of each watched movie.
+        for (int watchedRow : watchedRows) {
+            int offset = store.offset(watchedRow);
+            double scale = 1.0 / store.norm(watchedRow);
+
+            for (int i = 0; i < profile.length; i++)
+                profile[i] += vectors[offset + i] * scale;
+        }
+
+        return profile;
+    }
+
+    /**
+     * Calculates the sum of cosine similarities of the movie at
+     * {@code row} with all the watched movies using their {@code
+     * profile} vector, which requires only one dot product.
+     *
+     * @param store The {@link MovieVectorStore} containing all rows
+     * @param row The row of the movie we want to calculate similarity
+     * @param profile The vector returned by {@link #profileVector}
+     * @return A {@link double} containing the sum of cosine
+     *         similarities
+     */
+    public static double profileSimilarity(MovieVectorStore store,
+                                           int row,
+                                           double[] profile) {
+        double dotProduct = dotProduct(store.vectors(),
+                                       store.offset(row),
+                                       profile,
+                                       0,
+                                       profile.length);
+
+        return store.isNormalized()
+            // Unit vectors need no further scaling.
+            ? dotProduct
+            // Otherwise, divide by the cached norm.
+            : dotProduct / store.norm(row);
+    }
+}
@@ -1,7 +1,11 @@
 package edu.vandy.recommender.microservice.parallelflux;
 
 import edu.vandy.recommender.common.BaseService;
+import edu.vandy.recommender.common.HnswIndex;
+import edu.vandy.recommender.common.MovieVectorStore;
+import edu.vandy.recommender.common.VectorSimilarityUtils;
 import edu.vandy.recommender.common.model.Ranking;
+import edu.vandy.recommender.utils.GetTopK;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.ParallelFlux;
@@ -65,6 +69,12 @@ public class ParallelFluxService
      */
     @Override
     public Flux<Ranking> search(String query) {
+        // Answer the search via the trigram index if it's enabled,
+        // which returns the matching titles already sorted.
+        var index = mTitleIndex == null ? null : mTitleIndex.getIfAvailable();
+        if (index != null)
+            return Flux.fromIterable(titles2Rankings(index.search(query)));
+
         // Perform the following steps using a Project Reactor
         // ParallelFlux.
         // 
@@ -174,6 +184,101 @@ public class ParallelFluxService
         return null;
     }
 
+    /**
+     * Recommend approximately the {@code maxCount} movies from our
+     * movie database that are most similar to a single {@code
+     * watchedMovie} by searching the {@link HnswIndex}.  If the index
+     * is disabled an exact scan of the {@link MovieVectorStore} is
+     * used instead.
+     *
+     * @param watchedMovie A {@link String} indicating the title of
+     *                     the movie that has been watched
+     * @param maxCount The upper limit for the number of
+     *                 recommendations returned
+     * @return A {@link Flux} that emits movie titles approximately
+     *         most similar to the {@code watchedMovie}
+     */
+    @Override
+    public Flux<Ranking> getApproximateRecommendations(String watchedMovie,
+                                                       int maxCount) {
+        int watchedRow = mMovieVectorStore.row(watchedMovie);
+
+        // Return an empty Flux if the movie isn't known.
+        if (watchedRow < 0)
+            return Flux.empty();
+
+        // Build the index on first use.
+        var index = mMovieIndex.getIfAvailable();
+
+        // Fall back to an exact scan if there's no index.
+        if (index == null)
+            return GetTopK
+                // Select the top rows on each rail and merge them.
+                .getTopK(Flux
+                         // Emit the row of each movie in the store.
+                         .range(0, mMovieVectorStore.size())
+
+                         // Convert the Flux to a ParallelFlux.
+                         .parallel()
+
+                         // Run each rail in the parallel thread pool.
+                         .runOn(Schedulers.parallel())
+
+                         // Don't recommend the watched movie.
+                         .filter(row -> row != watchedRow),
+                         row -> VectorSimilarityUtils
+                         .cosineSimilarity(mMovieVectorStore,
+                                           watchedRow,
+                                           row),
+                         maxCount)
+
+                // Only create Ranking objects for the winners.
+                .flatMapIterable(selector -> selector
+                                 .toRankings(mMovieVectorStore::title));
+
+        return Flux
+            // Search the index when the Flux is subscribed to.
+            .defer(() -> Flux
+                   .fromIterable(index.search(watchedRow, maxCount)))
+
+            // Run the search in the parallel thread pool.
+            .subscribeOn(Schedulers.parallel());
+    }
+
+    /**
+     * Convert the ordered {@code rankings} into a {@link Flux}.
+     *
+     * @param rankings The ordered {@link Ranking} objects
+     * @return A {@link Flux} that emits the {@code rankings}
+     */
+    @Override
+    protected Flux<Ranking> fromRankings(List<Ranking> rankings) {
+        return Flux.fromIterable(rankings);
+    }
+
+    /**
+     * Cache the rankings emitted by the {@code result} the first time
+     * it's subscribed to and replay them to later subscribers, so a
+     * cached {@link Flux} isn't recomputed.
+     *
+     * @param result The {@link Flux} to cache
+     * @param onError Invalidates the cache entry if {@code result}
+     *                fails
+     * @return A {@link Flux} that replays the cached rankings
+     */
+    @Override
+    protected Flux<Ranking> memoize(Flux<Ranking> result,
+                                    Runnable onError) {
+        return result == null
+            ? null
+            : result
+            // Don't keep a failed result in the cache.
+            .doOnError(e -> onError.run())
+
+            // Replay the rankings to all later subscribers.
+            .cache();
+    }
+
     /**
      * Compute the cosine similarity between a movie and all other
      * movies in the database using Project Reactor {@link
@@ -1,16 +1,21 @@
 package edu.vandy.recommender.utils;
 
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.ParallelFlux;
 
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static java.util.Collections.reverseOrder;
 
 /**
  * This Java utility class efficiently finds the top {@code k} items
- * in a {@link Flux}, {@link Stream}, or {@link List} using a Java
+ * in a {@link Flux}, {@link ParallelFlux}, {@link Stream}, or {@link
+ * List} using a Java
  * {@link PriorityQueue}, which is implemented internally via a Heap
  * data structure (<a
  * href="http://en.wikipedia.org/wiki/Heap_(data_structure)">here</a>).
@@ -180,6 +185,96 @@ public class GetTopK {
         }
     }
 
+    /**
+     * This adapter method enables integration with Project Reactor's
+     * {@code ParallelFlux.as()} operator.
+     *
+     * @param k The max number of items to return
+     * @return A {@link Function} that converts a {@link ParallelFlux}
+     *         into a {@link Flux} that emits its top {@code k} items
+     */
+    public static <T> Function<ParallelFlux<T>, Flux<T>> getTopKParallel(int k) {
+        return parallelFlux -> GetTopK.getTopK(parallelFlux, k);
+    }
+
+    /**
+     * This method returns a {@link Flux} that emits the top {@code k}
+     * items in the {@code parallelFlux} parameter.  Each rail keeps
+     * its own bounded heap, so selection runs concurrently on all
+     * rails without any shared state, and the per-rail heaps are
+     * only merged once all the rails complete.
+     *
+     * @param parallelFlux The {@link ParallelFlux} given as input
+     * @param k The max number of items to return
+     * @return A {@link Flux} that emits the top {@code k} items in
+     *         the {@code parallelFlux} parameter
+     */
+    public static <T> Flux<T> getTopK(ParallelFlux<T> parallelFlux,
+                                      int k) {
+        if (k < 1)
+            // Return an empty Flux if k < 1.
+            return Flux.empty();
+        else
+            return parallelFlux
+                // Give each rail its own heap of the top k items.
+                .reduce(PriorityQueue<T>::new,
+                        (heap, item) -> {
+                            // Insert the item into the heap.
+                            heap.offer(item);
+
+                            // Remove the item of lowest priority from
+                            // the heap if its size exceeds k.
+                            if (heap.size() > k)
+                                heap.poll();
+                            return heap;
+                        })
+
+                // Merge the per-rail heaps once all rails complete.
+                .reduce((heap, other) -> {
+                        for (var item : other) {
+                            heap.offer(item);
+                            if (heap.size() > k)
+                                heap.poll();
+                        }
+                        return heap;
+                    })
+
+                // Convert the merged heap into a Flux whose values
+                // are ordered from highest to lowest.
+                .flatMapMany(GetTopK::convertHeapToFlux);
+    }
+
+    /**
+     * This method scores each row emitted by the {@code rows} {@link
+     * ParallelFlux} and returns a {@link Mono} that emits a {@link
+     * TopKSelector} containing the top {@code k} rows.  Each rail
+     * fills its own selector and the selectors are merged once all
+     * the rails complete.
+     *
+     * @param rows The {@link ParallelFlux} of rows given as input
+     * @param scorer Computes the score of each row
+     * @param k The max number of rows to keep
+     * @return A {@link Mono} that emits a {@link TopKSelector}
+     *         containing the top {@code k} rows
+     */
+    public static Mono<TopKSelector> getTopK(ParallelFlux<Integer> rows,
+                                             IntToDoubleFunction scorer,
+                                             int k) {
+        return rows
+            // Give each rail its own selector of the top k rows.
+            .reduce(() -> new TopKSelector(k),
+                    (selector, row) -> {
+                        selector.offer(row, scorer.applyAsDouble(row));
+                        return selector;
+                    })
+
+            // Merge the per-rail selectors once all rails complete.
+            .reduce(TopKSelector::merge)
+
+            // Handle a ParallelFlux without any rows.
+            .defaultIfEmpty(new TopKSelector(0));
+    }
+
     /**
      * Returns a {@link Flux} that contains the items in the queue
      * sorted from highest to lowest.
@@ -196,4 +291,29 @@ public class GetTopK {
             // Sort the Flux contents from highest to lowest.
             .sort(reverseOrder());
     }
+
+    /**
+     * This method scores each row emitted by the {@code rows} {@link
+     * IntStream} and returns a {@link TopKSelector} containing the
+     * top {@code k} rows without allocating any objects per row.  It
+     * works for both sequential and parallel streams, in which case
+     * each thread fills its own selector and the selectors are
+     * merged at the end.
+     *
+     * @param rows The {@link IntStream} of rows given as input
+     * @param scorer Computes the score of each row
+     * @param k The max number of rows to keep
+     * @return A {@link TopKSelector} containing the top {@code k}
+     *         rows
+     */
+    public static TopKSelector getTopK(IntStream rows,
+                                       IntToDoubleFunction scorer,
+                                       int k) {
+        return rows
+            // Score each row and keep the top k in a selector.
+            .collect(() -> new TopKSelector(k),
+                     (selector, row) -> selector
+                     .offer(row, scorer.applyAsDouble(row)),
+                     TopKSelector::merge);
+    }
 }
@@ -0,0 +1,265 @@
+package edu.vandy.recommender.utils;
+
+import edu.vandy.recommender.common.model.Ranking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntFunction;
+
+/**
+ * This class keeps track of the top {@code k} (row, score) pairs
+ * offered to it using a bounded min-heap stored in two parallel
+ * primitive arrays.  Unlike a {@link PriorityQueue} of {@link
+ * Ranking} objects, offering a pair never allocates an object (the
+ * arrays only grow while fewer than {@code k} pairs are kept), so a
+ * full scan over all movies only creates {@link Ranking} objects for
+ * the final {@code k} winners.
+ *
+ * This class is not thread-safe, but instances that were filled
+ * concurrently by different threads can be combined via {@link
+ * #merge}.
+ */
+public class TopKSelector {
+    /**
+     * The initial capacity of the heap arrays, which grow on demand
+     * up to {@code mK} pairs.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The max number of pairs to keep.
+     */
+    private final int mK;
+
+    /**
+     * The rows of the heap, where {@code mRows[0]} has the lowest
+     * score.
+     */
+    private int[] mRows;
+
+    /**
+     * The scores of the heap, parallel to {@code mRows}.
+     */
+    private double[] mScores;
+
+    /**
+     * The number of pairs currently in the heap.
+     */
+    private int mSize;
+
+    /**
+     * Create a {@link TopKSelector} that keeps the top {@code k}
+     * pairs.
+     *
+     * @param k The max number of pairs to keep, which may come from
+     *          a client and exceed the number of pairs offered
+     */
+    public TopKSelector(int k) {
+        this(k, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Create a {@link TopKSelector} that keeps the top {@code k}
+     * pairs.  The heap arrays are sized for at most {@code capacity}
+     * pairs and grow on demand, so a huge {@code k} only costs as
+     * much memory as the pairs that are actually kept.
+     *
+     * @param k The max number of pairs to keep
+     * @param capacity The initial capacity of the heap arrays
+     */
+    private TopKSelector(int k, int capacity) {
+        mK = Math.max(k, 0);
+        mRows = new int[Math.min(mK, capacity)];
+        mScores = new double[mRows.length];
+    }
+
+    /**
+     * @return The number of pairs currently kept
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Offer a (row, score) pair, which is kept only if the selector
+     * isn't full yet or if its score beats the lowest score kept.
+     *
+     * @param row The row of a movie
+     * @param score The score of the movie
+     */
+    public void offer(int row, double score) {
+        if (mSize < mK) {
+            if (mSize == mRows.length)
+                grow();
+
+            // Append the pair and restore the heap property.
+            mRows[mSize] = row;
+            mScores[mSize] = score;
+            siftUp(mSize++);
+        } else if (mK > 0 && score > mScores[0]) {
+            // Replace the lowest pair and restore the heap property.
+            mRows[0] = row;
+            mScores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Offer all pairs kept by the {@code other} selector to this
+     * selector.
+     *
+     * @param other Another {@link TopKSelector}
+     * @return This {@link TopKSelector}
+     */
+    public TopKSelector merge(TopKSelector other) {
+        for (int i = 0; i < other.mSize; i++)
+            offer(other.mRows[i], other.mScores[i]);
+        return this;
+    }
+
+    /**
+     * @return The rows kept, ordered from highest to lowest score
+     */
+    public int[] rows() {
+        var rows = new int[mSize];
+        drainSorted(rows, null);
+        return rows;
+    }
+
+    /**
+     * Convert the pairs kept into {@link Ranking} objects ordered
+     * from highest to lowest score.
+     *
+     * @param titles Maps a row to its movie title
+     * @return A {@link List} of {@link Ranking} objects ordered from
+     *         highest to lowest score
+     */
+    public List<Ranking> toRankings(IntFunction<String> titles) {
+        var rows = new int[mSize];
+        var scores = new double[mSize];
+        drainSorted(rows, scores);
+
+        var rankings = new ArrayList<Ranking>(mSize);
+        for (int i = 0; i < rows.length; i++)
+            rankings.add(new Ranking(titles.apply(rows[i]), scores[i]));
+
+        return rankings;
+    }
+
+    /**
+     * Copy the pairs kept into the parallel {@code rows} and {@code
+     * scores} arrays starting at {@code offset}, ordered from highest
+     * to lowest score.
+     *
+     * @param rows Receives the rows
+     * @param scores Receives the scores narrowed to {@code float}
+     * @param offset The index of the first element to write
+     */
+    public void copyTo(int[] rows, float[] scores, int offset) {
+        var sortedRows = new int[mSize];
+        var sortedScores = new double[mSize];
+        drainSorted(sortedRows, sortedScores);
+
+        for (int i = 0; i < mSize; i++) {
+            rows[offset + i] = sortedRows[i];
+            scores[offset + i] = (float) sortedScores[i];
+        }
+    }
+
+    /**
+     * Copy the heap and repeatedly remove its lowest pair, filling
+     * the output arrays from the back so they end up ordered from
+     * highest to lowest score.  The heap itself isn't modified.
+     *
+     * @param rows Receives the rows, must have length {@code mSize}
+     * @param scores Receives the scores if it's non-null
+     */
+    private void drainSorted(int[] rows, double[] scores) {
+        var heap = new TopKSelector(mSize, mSize);
+        System.arraycopy(mRows, 0, heap.mRows, 0, mSize);
+        System.arraycopy(mScores, 0, heap.mScores, 0, mSize);
+        heap.mSize = mSize;
+
+        for (int i = mSize - 1; i >= 0; i--) {
+            rows[i] = heap.mRows[0];
+            if (scores != null)
+                scores[i] = heap.mScores[0];
+
+            // Move the last pair to the root and restore the heap.
+            heap.mSize--;
+            heap.mRows[0] = heap.mRows[heap.mSize];
+            heap.mScores[0] = heap.mScores[heap.mSize];
+            heap.siftDown(0);
+        }
+    }
+
+    /**
+     * Double the capacity of the heap arrays without exceeding {@code
+     * mK} pairs.
+     */
+    private void grow() {
+        int capacity = (int) Math.min(Math.max(2L * mRows.length, 1L), mK);
+        mRows = Arrays.copyOf(mRows, capacity);
+        mScores = Arrays.copyOf(mScores, capacity);
+    }
+
+    /**
+     * Move the pair at index {@code i} up until its parent has a
+     * lower or equal score.
+     *
+     * @param i The index of the pair to move
+     */
+    private void siftUp(int i) {
+        int row = mRows[i];
+        double score = mScores[i];
+
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (mScores[parent] <= score)
+                break;
+            mRows[i] = mRows[parent];
+            mScores[i] = mScores[parent];
+            i = parent;
+        }
+
+        mRows[i] = row;
+        mScores[i] = score;
+    }
+
+    /**
+     * Move the pair at index {@code i} down until both of its
+     * children have higher or equal scores.
+     *
+     * @param i The index of the pair to move
+     */
+    private void siftDown(int i) {
+        int row = mRows[i];
+        double score = mScores[i];
+        int half = mSize >>> 1;
+
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < mSize && mScores[right] < mScores[child])
+                child = right;
+            if (score <= mScores[child])
+                break;
+            mRows[i] = mRows[child];
+            mScores[i] = mScores[child];
+            i = child;
+        }
+
+        mRows[i] = row;
+        mScores[i] = score;
+    }
+
+    /**
+     * @return A {@link String} representation of the rows kept
+     */
+    @Override
+    public String toString() {
+        return Arrays.toString(rows());
+    }
+}
@@ -1,6 +1,7 @@
 package edu.vandy.recommender.common
 
 import edu.vandy.recommender.common.GetTopRecommendationsFlux.getTopRecommendationsHeap
+import edu.vandy.recommender.common.GetTopRecommendationsFlux.getTopRecommendationsPerRail
 import edu.vandy.recommender.common.GetTopRecommendationsFlux.getTopRecommendationsSort
 import edu.vandy.recommender.common.model.Ranking
 import edu.vandy.recommender.utils.GetTopK
@@ -11,6 +12,7 @@ import org.reactivestreams.Publisher
 import reactor.core.publisher.Flux
 import test.admin.AssignmentTests
 import java.util.function.Function
+import kotlin.random.Random
 
 class GetTopRecommendationsFluxTest: AssignmentTests() {
 
@@ -81,4 +83,18 @@ class GetTopRecommendationsFluxTest: AssignmentTests() {
 
         confirmVerified(fri, fro, fr)
     }
-}
\ No newline at end of file
+
+    @Test
+    fun `getTopRecommendationsPerRail matches a sequential sort`() {
+        val rankings = (1..1000).map { Ranking("movie$it", Random.nextDouble()) }
+        val count = 25
+
+        val results = getTopRecommendationsPerRail(
+            Flux.fromIterable(rankings).parallel(4), count
+        ).collectList().block()
+
+        assertThat(results).isEqualTo(
+            rankings.sortedByDescending { it.cosineSimilarity }.take(count)
+        )
+    }
+}
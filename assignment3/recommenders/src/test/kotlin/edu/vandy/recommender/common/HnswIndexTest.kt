@@ -0,0 +1,71 @@
+package edu.vandy.recommender.common
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import kotlin.random.Random
+
+/**
+ * Checks the approximate results of [HnswIndex] against the exact
+ * results of a full scan.
+ */
+internal class HnswIndexTest : AssignmentTests(timeoutSeconds = 60) {
+    private val size = 2_000
+
+    /**
+     * A fixed seed keeps the recall threshold below from flaking.
+     */
+    private val random = Random(42)
+
+    private val store = MovieVectorStore.of(
+        (1..size).associate {
+            "movie$it" to (1..20).map { random.nextDouble(-0.9, 0.9) }
+        }.toSortedMap(),
+        true
+    )
+
+    private val index = HnswIndex(store, 16, 100, 64)
+
+    @Test
+    fun `search excludes the watched movie and is ordered by similarity`() {
+        val row = random.nextInt(size)
+        val results = index.search(row, 20)
+
+        assertThat(results).hasSize(20)
+        assertThat(results.map { it.title }).doesNotContain(store.title(row))
+        assertThat(results.map { it.cosineSimilarity })
+            .isSortedAccordingTo(Comparator.reverseOrder())
+    }
+
+    @Test
+    fun `search handles small and empty inputs`() {
+        assertThat(index.search(0, 0)).isEmpty()
+
+        val tiny = MovieVectorStore.of(
+            sortedMapOf("a" to listOf(1.0, 0.0), "b" to listOf(0.0, 1.0))
+        )
+        assertThat(HnswIndex(tiny, 4, 10, 10).search(0, 10).map { it.title })
+            .containsExactly("b")
+        assertThat(
+            HnswIndex(MovieVectorStore.of(sortedMapOf<String, List<Double>>()), 4, 10, 10).search(0, 10)
+        ).isEmpty()
+    }
+
+    @Test
+    fun `search clamps k to the number of other movies`() {
+        val results = index.search(0, Int.MAX_VALUE)
+
+        assertThat(results).hasSizeLessThanOrEqualTo(size - 1)
+        assertThat(results.map { it.title }).doesNotContain(store.title(0))
+        assertThat(index.searchRows(0, Int.MAX_VALUE, Int.MAX_VALUE))
+            .isNotEmpty()
+            .hasSizeLessThanOrEqualTo(size - 1)
+    }
+
+    @Test
+    fun `recall@10 against exact results is high`() {
+        val queryRows = (1..100).map { random.nextInt(size) }.toIntArray()
+
+        assertThat(index.recall(queryRows, 10, 64)).isGreaterThan(0.9)
+    }
+}
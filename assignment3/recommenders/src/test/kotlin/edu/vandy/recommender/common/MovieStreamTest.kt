@@ -0,0 +1,62 @@
+package edu.vandy.recommender.common
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.util.TreeMap
+import kotlin.random.Random
+
+/**
+ * Checks that reading the database microservice's newline-delimited
+ * movie stream with [MoviesLoader.readVectorStore] builds the same
+ * [MovieVectorStore] as the whole movie map does.
+ */
+internal class MovieStreamTest : AssignmentTests() {
+    private val movieMap = (1..1_000).associateTo(TreeMap()) { i ->
+        "Movie $i" to List(8) { Random.nextDouble() }
+    }
+
+    private fun ndjson(map: Map<String, List<Double>>) =
+        map.entries.joinToString("") { (title, vector) ->
+            "{\"$title\":${vector.joinToString(",", "[", "]")}}\n"
+        }.byteInputStream()
+
+    @Test
+    fun `streamed store matches the movie map`() {
+        listOf(false, true).forEach { normalize ->
+            val streamed = MoviesLoader.readVectorStore(ndjson(movieMap), normalize)
+            val expected = MovieVectorStore.of(movieMap, normalize)
+
+            assertThat(streamed.titles()).isEqualTo(expected.titles())
+            assertThat(streamed.vectors()).isEqualTo(expected.vectors())
+            assertThat(streamed.dimension()).isEqualTo(8)
+        }
+    }
+
+    @Test
+    fun `map view matches the movie map`() {
+        val view = MoviesLoader.readVectorStore(ndjson(movieMap), false).asMap()
+
+        assertThat(view).isEqualTo(movieMap)
+        assertThat(view.keys.toList()).isEqualTo(movieMap.keys.toList())
+        assertThat(view["Movie 42"]).isEqualTo(movieMap["Movie 42"])
+        assertThat(view["No such movie"]).isNull()
+    }
+
+    @Test
+    fun `empty stream builds an empty store`() {
+        val store = MoviesLoader.readVectorStore("".byteInputStream(), true)
+
+        assertThat(store.size()).isZero()
+        assertThat(store.asMap()).isEmpty()
+    }
+
+    @Test
+    fun `mismatched dimension is rejected`() {
+        val lines = "{\"a\":[1.0,2.0]}\n{\"b\":[1.0]}\n".byteInputStream()
+
+        assertThatThrownBy { MoviesLoader.readVectorStore(lines, false) }
+            .isInstanceOf(IllegalArgumentException::class.java)
+    }
+}
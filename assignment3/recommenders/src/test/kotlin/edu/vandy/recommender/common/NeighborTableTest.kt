@@ -0,0 +1,117 @@
+package edu.vandy.recommender.common
+
+import edu.vandy.recommender.utils.TopKSelector
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import test.admin.AssignmentTests
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.file.Files
+import java.nio.file.Path
+import kotlin.random.Random
+
+/**
+ * Checks the lookups of [NeighborTable] against the exact results of
+ * a full scan and round-trips the table through its file format.
+ */
+internal class NeighborTableTest : AssignmentTests(timeoutSeconds = 60) {
+    @TempDir
+    lateinit var dir: Path
+
+    private val size = 1_000
+
+    private val store = MovieVectorStore.of(
+        (1..size).associate {
+            "movie$it" to (1..20).map { Random.nextDouble(-0.9, 0.9) }
+        }.toSortedMap(),
+        true
+    )
+
+    private val table = NeighborTable.build(store, 50, 64)
+
+    @Test
+    fun `lookup matches a full scan`() {
+        repeat(20) {
+            val row = Random.nextInt(size)
+            val selector = TopKSelector(10)
+            (0 until size).filter { it != row }.forEach {
+                selector.offer(it, VectorSimilarityUtils.cosineSimilarity(store, row, it))
+            }
+
+            assertThat(table.lookup(row, 10, store::title).map { it.title })
+                .isEqualTo(selector.toRankings(store::title).map { it.title })
+        }
+    }
+
+    @Test
+    fun `table covers at most n neighbors unless it holds every movie`() {
+        assertThat(table.width()).isEqualTo(50)
+        assertThat(table.covers(50)).isTrue
+        assertThat(table.covers(51)).isFalse
+
+        val tiny = MovieVectorStore.of(
+            sortedMapOf("a" to listOf(1.0, 0.0), "b" to listOf(0.0, 1.0))
+        )
+        val tinyTable = NeighborTable.build(tiny, 50, 64)
+        assertThat(tinyTable.covers(100)).isTrue
+        assertThat(tinyTable.lookup(0, 100, tiny::title).map { it.title })
+            .containsExactly("b")
+    }
+
+    @Test
+    fun `persisted table round-trips and detects dataset changes`() {
+        val path = dir.resolve("neighbors.bin")
+        table.write(path)
+
+        val read = NeighborTable.read(path)
+        assertThat(read.matches(store)).isTrue
+        assertThat(read.lookup(7, 50, store::title))
+            .isEqualTo(table.lookup(7, 50, store::title))
+
+        val changed = MovieVectorStore.of(
+            (1..size).associate {
+                "movie$it" to (1..20).map { Random.nextDouble(-0.9, 0.9) }
+            }.toSortedMap(),
+            true
+        )
+        assertThat(read.matches(changed)).isFalse
+    }
+
+    @Test
+    fun `truncated or corrupt tables are rejected`() {
+        val path = dir.resolve("neighbors.bin")
+        table.write(path)
+        val bytes = Files.readAllBytes(path)
+
+        Files.write(path, bytes.copyOf(bytes.size - 4))
+        assertThatThrownBy { NeighborTable.read(path) }
+            .isInstanceOf(IllegalArgumentException::class.java)
+
+        // Point the first neighbor past the last movie.
+        val corrupt = bytes.copyOf()
+        ByteBuffer.wrap(corrupt).order(ByteOrder.LITTLE_ENDIAN).putInt(24, size)
+        Files.write(path, corrupt)
+        assertThatThrownBy { NeighborTable.read(path) }
+            .isInstanceOf(IllegalArgumentException::class.java)
+    }
+
+    @Test
+    fun `job rebuilds a table persisted for a different store`() {
+        val path = dir.resolve("neighbors.bin")
+        NeighborTable.build(
+            MovieVectorStore.of(sortedMapOf("a" to listOf(1.0, 0.0), "b" to listOf(0.0, 1.0))),
+            50,
+            64
+        ).write(path)
+
+        val rebuilt = NeighborTableJob(50, 64, path.toString())
+            .rebuild(store)
+            .get()
+
+        assertThat(rebuilt.size()).isEqualTo(size)
+        assertThat(rebuilt.matches(store)).isTrue
+        assertThat(NeighborTable.read(path).matches(store)).isTrue
+    }
+}
@@ -0,0 +1,51 @@
+package edu.vandy.recommender.common
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.time.Duration
+
+/**
+ * Checks the key canonicalization, counters, and invalidation of
+ * [RecommendationCache].
+ */
+internal class RecommendationCacheTest : AssignmentTests() {
+    private val cache = RecommendationCache(100, Duration.ofMinutes(1))
+
+    @Test
+    fun `keys ignore order and duplicates of watched movies`() {
+        assertThat(RecommendationCache.Key.of(listOf("b", "a", "b"), 5))
+            .isEqualTo(RecommendationCache.Key.of(listOf("a", "b"), 5))
+        assertThat(RecommendationCache.Key.of(listOf("a"), 5))
+            .isEqualTo(RecommendationCache.Key.of("a", 5))
+        assertThat(RecommendationCache.Key.of("a", 5))
+            .isNotEqualTo(RecommendationCache.Key.of("a", 6))
+    }
+
+    @Test
+    fun `identical requests are computed once and counted`() {
+        var computed = 0
+        val compute = { ++computed; listOf("x") }
+
+        repeat(3) {
+            assertThat(cache.get(RecommendationCache.Key.of(listOf("b", "a"), 5), compute))
+                .containsExactly("x")
+        }
+
+        assertThat(computed).isEqualTo(1)
+        assertThat(cache.stats()).containsEntry("hits", 2L).containsEntry("misses", 1L)
+    }
+
+    @Test
+    fun `invalidateAll discards every result`() {
+        var computed = 0
+        val key = RecommendationCache.Key.of("a", 5)
+
+        cache.get(key) { ++computed }
+        cache.invalidateAll()
+        cache.get(key) { ++computed }
+
+        assertThat(computed).isEqualTo(2)
+        assertThat(cache.stats()).containsEntry("size", 1L)
+    }
+}
@@ -0,0 +1,94 @@
+package edu.vandy.recommender.common
+
+import edu.vandy.recommender.common.model.Ranking
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.within
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import kotlin.random.Random
+
+/**
+ * Checks that the [MovieVectorStore] scans used by
+ * [BaseService.getCachedRecommendations] rank movies the same way as
+ * the stream-based [CosineSimilarityUtils] implementation.
+ */
+internal class StoreScanTest : AssignmentTests() {
+    private val tolerance = within(1e-9)
+
+    private val random = Random(42)
+
+    private val movieMap = (1..200).associate {
+        "movie$it" to (1..37).map { random.nextDouble(-0.9, 0.9) }
+    }.toSortedMap()
+
+    /**
+     * A minimal [BaseService] whose graded methods must never be
+     * called by the scans.
+     */
+    private class Service : BaseService<List<Ranking>>() {
+        override fun getAllMovies() = error("not scanned")
+        override fun search(query: String) = error("not scanned")
+        override fun getRecommendations(watchedMovie: String, maxCount: Int) =
+            error("not scanned")
+        override fun getRecommendations(watchedMovies: List<String>, maxCount: Int) =
+            error("not scanned")
+        override fun getApproximateRecommendations(watchedMovie: String, maxCount: Int) =
+            error("not scanned")
+        override fun fromRankings(rankings: List<Ranking>) = rankings
+    }
+
+    private val service = Service().apply {
+        mMovieMap = movieMap
+        mMovieVectorStore = MovieVectorStore.of(movieMap, true)
+    }
+
+    @Test
+    fun `single movie scan matches stream implementation`() {
+        val watched = movieMap.keys.random(random)
+        val expected = movieMap
+            .filterKeys { it != watched }
+            .map { (title, vector) ->
+                title to CosineSimilarityUtils
+                    .cosineSimilarity(movieMap.getValue(watched), vector, false)
+            }
+            .sortedByDescending { it.second }
+            .take(10)
+
+        val rankings = service.scanStore(watched, 10)
+
+        assertThat(rankings.map { it.title })
+            .isEqualTo(expected.map { it.first })
+        rankings.zip(expected).forEach { (ranking, (_, score)) ->
+            assertThat(ranking.cosineSimilarity).isCloseTo(score, tolerance)
+        }
+    }
+
+    @Test
+    fun `profile scan matches sum of cosines`() {
+        val watched = movieMap.keys.shuffled(random).take(20)
+        val expected = movieMap
+            .filterKeys { it !in watched }
+            .map { (title, vector) ->
+                title to CosineSimilarityUtils
+                    .sumOfCosines(vector, watched, movieMap, false)
+            }
+            .sortedByDescending { it.second }
+            .take(10)
+
+        val rankings = service.scanProfile(watched, 10)
+
+        assertThat(rankings.map { it.title })
+            .isEqualTo(expected.map { it.first })
+        rankings.zip(expected).forEach { (ranking, (_, score)) ->
+            assertThat(ranking.cosineSimilarity).isCloseTo(score, tolerance)
+        }
+    }
+
+    @Test
+    fun `unknown movie falls back to the caller`() {
+        assertThat(service.scanStore("no such movie", 10)).isNull()
+        assertThat(service.scanProfile(listOf("movie1", "no such movie"), 10))
+            .isNull()
+        assertThat(service.scanProfile(listOf(), 10)).isNull()
+    }
+}
@@ -0,0 +1,57 @@
+package edu.vandy.recommender.common
+
+import edu.vandy.recommender.common.model.Ranking
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import kotlin.random.Random
+
+/**
+ * Checks that [TitleIndex] returns exactly the titles found by a
+ * case-insensitive scan, sorted by title (ignoring case), and that
+ * [BaseService] sorts its titles the same way without an index.
+ */
+internal class TitleIndexTest : AssignmentTests() {
+    private val words = listOf("The", "Lord", "of", "the", "Rings", "Star", "WARS", "Mock", "mocking", "Bird")
+
+    private val titles = (1..2_000).map { i ->
+        (1..Random.nextInt(1, 5)).joinToString(" ") { words.random() } + " " + i % 50
+    }.toSet()
+
+    private val index = TitleIndex(titles)
+
+    @Test
+    fun `search matches a case-insensitive scan`() {
+        listOf("", "a", "mo", "MOCK", "of the", "rings 1", "star wars", "the lord of", "zzz", " 4")
+            .forEach { query ->
+                assertThat(index.search(query)).isEqualTo(
+                    titles.filter { it.lowercase().contains(query.lowercase()) }
+                        .sortedWith(String.CASE_INSENSITIVE_ORDER.thenComparing(naturalOrder()))
+                )
+            }
+    }
+
+    @Test
+    fun `search handles an empty index`() {
+        assertThat(TitleIndex(emptyList()).search("mock")).isEmpty()
+        assertThat(TitleIndex(emptyList()).search("")).isEmpty()
+    }
+
+    @Test
+    fun `service titles without an index use the index order`() {
+        val service = object : BaseService<List<Ranking>>() {
+            override fun getAllMovies() = error("not called")
+            override fun search(query: String) = error("not called")
+            override fun getRecommendations(watchedMovie: String, maxCount: Int) = error("not called")
+            override fun getRecommendations(watchedMovies: List<String>, maxCount: Int) = error("not called")
+            override fun getApproximateRecommendations(watchedMovie: String, maxCount: Int) = error("not called")
+            override fun fromRankings(rankings: List<Ranking>) = rankings
+        }
+        service.mMovieMap = titles.associateWith { listOf<Double>() }.toSortedMap()
+
+        assertThat(service.getAllTitles()).isEqualTo(index.search(""))
+        listOf("mo", "MOCK", "star wars", " 4").forEach { query ->
+            assertThat(service.searchTitles(query)).isEqualTo(index.search(query))
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package edu.vandy.recommender.common
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.within
+import org.junit.jupiter.api.Assumptions.assumeTrue
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import kotlin.random.Random
+
+/**
+ * Checks the SIMD (or scalar fallback) kernels in
+ * [VectorSimilarityUtils] against the stream-based
+ * [CosineSimilarityUtils] implementation.
+ */
+internal class VectorSimilarityUtilsTest : AssignmentTests() {
+    private val tolerance = within(1e-9)
+
+    /**
+     * Uses an odd dimension so both the lane loop and the scalar
+     * tail loop of the SIMD kernel are exercised.
+     */
+    private fun randomMovieMap(size: Int = 100, dimension: Int = 37) =
+        (1..size).associate {
+            "movie$it" to (1..dimension).map { Random.nextDouble(-0.9, 0.9) }
+        }.toSortedMap()
+
+    @Test
+    fun `cosineSimilarity of arrays matches stream implementation`() {
+        for (dimension in listOf(1, 3, 8, 37, 300)) {
+            val a = (1..dimension).map { Random.nextDouble(-0.9, 0.9) }
+            val b = (1..dimension).map { Random.nextDouble(-0.9, 0.9) }
+            val expected =
+                CosineSimilarityUtils.cosineSimilarity(a, b, false)
+
+            assertThat(
+                VectorSimilarityUtils.cosineSimilarity(
+                    a.toDoubleArray(), 0, b.toDoubleArray(), 0, dimension
+                )
+            ).isCloseTo(expected, tolerance)
+        }
+    }
+
+    @Test
+    fun `dotProduct matches scalar implementation`() {
+        val store = MovieVectorStore.of(randomMovieMap())
+        val vectors = store.vectors()
+
+        for (row in 0 until store.size()) {
+            val offset = store.offset(row)
+            assertThat(
+                VectorSimilarityUtils.dotProduct(
+                    vectors, 0, vectors, offset, store.dimension()
+                )
+            ).isCloseTo(
+                CosineSimilarityUtils.dotProduct(
+                    vectors, 0, vectors, offset, store.dimension()
+                ),
+                tolerance
+            )
+        }
+    }
+
+    @Test
+    fun `cosineSimilarity of store rows matches stream implementation`() {
+        val map = randomMovieMap()
+        val plain = MovieVectorStore.of(map)
+        val normalized = MovieVectorStore.of(map, true)
+        val titles = map.keys.toList()
+
+        for (a in titles) {
+            for (b in titles.shuffled().take(10)) {
+                val expected = CosineSimilarityUtils
+                    .cosineSimilarity(map.getValue(a), map.getValue(b), false)
+
+                assertThat(
+                    VectorSimilarityUtils.cosineSimilarity(
+                        plain, plain.row(a), plain.row(b)
+                    )
+                ).isCloseTo(expected, tolerance)
+                assertThat(
+                    VectorSimilarityUtils.cosineSimilarity(
+                        normalized, normalized.row(a), normalized.row(b)
+                    )
+                ).isCloseTo(expected, tolerance)
+            }
+        }
+    }
+
+    @Test
+    fun `sumOfCosines of store rows matches stream implementation`() {
+        val map = randomMovieMap()
+        val store = MovieVectorStore.of(map, true)
+        val watched = map.keys.shuffled().take(5)
+        val watchedRows = store.rows(watched)
+
+        for (title in map.keys) {
+            assertThat(
+                VectorSimilarityUtils.sumOfCosines(
+                    store, store.row(title), watchedRows
+                )
+            ).isCloseTo(
+                CosineSimilarityUtils.sumOfCosines(
+                    map.getValue(title), watched, map, false
+                ),
+                tolerance
+            )
+        }
+    }
+
+    @Test
+    fun `profileSimilarity matches stream implementation`() {
+        val map = randomMovieMap()
+        val watched = map.keys.shuffled().take(7)
+
+        for (normalize in listOf(false, true)) {
+            val store = MovieVectorStore.of(map, normalize)
+            val profile = VectorSimilarityUtils
+                .profileVector(store, store.rows(watched))
+
+            for (title in map.keys) {
+                assertThat(
+                    VectorSimilarityUtils.profileSimilarity(
+                        store, store.row(title), profile
+                    )
+                ).isCloseTo(
+                    CosineSimilarityUtils.sumOfCosines(
+                        map.getValue(title), watched, map, false
+                    ),
+                    tolerance
+                )
+            }
+        }
+    }
+
+    /**
+     * The tests run with the `jdk.incubator.vector` module, so
+     * the scalar fallback is called directly here.  Every length up
+     * to 17 is checked at unaligned offsets, which covers lengths
+     * that aren't a multiple of any lane count.
+     */
+    @Test
+    fun `scalar fallback matches stream implementation`() {
+        for (length in 1..17) {
+            val a = (1..length).map { Random.nextDouble(-0.9, 0.9) }
+            val b = (1..length).map { Random.nextDouble(-0.9, 0.9) }
+            val arrayA = (listOf(0.5) + a).toDoubleArray()
+            val arrayB = (listOf(0.25, -0.5, 0.75) + b).toDoubleArray()
+
+            assertThat(
+                CosineSimilarityUtils.cosineSimilarity(
+                    arrayA, 1, arrayB, 3, length
+                )
+            ).isCloseTo(
+                CosineSimilarityUtils.cosineSimilarity(a, b, false),
+                tolerance
+            )
+            assertThat(
+                CosineSimilarityUtils.dotProduct(
+                    arrayA, 1, arrayB, 3, length
+                )
+            ).isCloseTo(
+                a.zip(b).sumOf { (x, y) -> x * y },
+                tolerance
+            )
+        }
+    }
+
+    @Test
+    fun `SIMD kernel matches scalar fallback for every tail length`() {
+        assumeTrue(VectorSimilarityUtils.isSimdSupported())
+
+        for (length in 1..17) {
+            val a = DoubleArray(length + 1) { Random.nextDouble(-0.9, 0.9) }
+            val b = DoubleArray(length + 3) { Random.nextDouble(-0.9, 0.9) }
+
+            assertThat(
+                SimdSimilarityKernel.dotProduct(a, 1, b, 3, length)
+            ).isCloseTo(
+                CosineSimilarityUtils.dotProduct(a, 1, b, 3, length),
+                tolerance
+            )
+            assertThat(
+                SimdSimilarityKernel.cosineSimilarity(a, 1, b, 3, length)
+            ).isCloseTo(
+                CosineSimilarityUtils.cosineSimilarity(a, 1, b, 3, length),
+                tolerance
+            )
+        }
+    }
+}
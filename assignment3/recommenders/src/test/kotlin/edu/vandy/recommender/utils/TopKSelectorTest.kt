@@ -0,0 +1,71 @@
+package edu.vandy.recommender.utils
+
+import edu.vandy.recommender.common.model.Ranking
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import reactor.core.publisher.Flux
+import java.util.stream.IntStream
+import kotlin.random.Random
+
+/**
+ * Checks [TopKSelector] and the primitive and per-rail [GetTopK.getTopK]
+ * variants against a full sort of all scores.
+ */
+internal class TopKSelectorTest : AssignmentTests() {
+    private val scores = DoubleArray(5_000) { Random.nextDouble() }
+
+    private fun expected(k: Int) =
+        scores.indices.sortedByDescending { scores[it] }.take(k)
+
+    @Test
+    fun `selector keeps the top k rows ordered by score`() {
+        for (k in listOf(0, 1, 10, 100, scores.size + 1, Int.MAX_VALUE)) {
+            val selector = TopKSelector(k)
+            scores.forEachIndexed { row, score -> selector.offer(row, score) }
+
+            assertThat(selector.rows().toList()).isEqualTo(expected(k))
+        }
+    }
+
+    @Test
+    fun `parallel getTopK merges per-thread selectors`() {
+        val selector = GetTopK
+            .getTopK(IntStream.range(0, scores.size).parallel(), { scores[it] }, 50)
+
+        assertThat(selector.rows().toList()).isEqualTo(expected(50))
+    }
+
+    @Test
+    fun `toRankings only creates rankings for the winners`() {
+        val selector = TopKSelector(3)
+        scores.forEachIndexed { row, score -> selector.offer(row, score) }
+
+        val rankings = selector.toRankings { "movie$it" }
+
+        assertThat(rankings.map { it.title })
+            .isEqualTo(expected(3).map { "movie$it" })
+        assertThat(rankings.map { it.cosineSimilarity })
+            .isEqualTo(expected(3).map { scores[it] })
+    }
+
+    @Test
+    fun `per-rail getTopK of a ParallelFlux matches a full sort`() {
+        val rankings = scores.mapIndexed { row, score -> Ranking("movie$row", score) }
+        val parallelFlux = Flux.fromIterable(rankings).parallel(4)
+
+        assertThat(GetTopK.getTopK(parallelFlux, 25).collectList().block())
+            .isEqualTo(expected(25).map { rankings[it] })
+        assertThat(GetTopK.getTopK(parallelFlux, 0).collectList().block())
+            .isEmpty()
+    }
+
+    @Test
+    fun `per-rail getTopK of ParallelFlux rows merges selectors`() {
+        val rows = Flux.range(0, scores.size).parallel(4)
+
+        assertThat(
+            GetTopK.getTopK(rows, { scores[it] }, 25).block()?.rows()?.toList()
+        ).isEqualTo(expected(25))
+    }
+}
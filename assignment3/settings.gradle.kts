@@ -23,3 +23,4 @@ include(":database-ex")
 include(":timer")
 include(":testing")
 include(":common")
+include(":tracing")
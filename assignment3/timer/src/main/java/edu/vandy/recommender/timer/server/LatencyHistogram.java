@@ -0,0 +1,308 @@
+package edu.vandy.recommender.timer.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is a concurrent log-linear histogram of latencies
+ * recorded in nanoseconds, in the style of HdrHistogram.  Each power
+ * of two range of values is split into {@code SUB_BUCKETS} equally
+ * sized buckets, so every recorded value is counted in a bucket whose
+ * width is less than 1% of the value, and any percentile can be
+ * reported with that relative error no matter how many values have
+ * been recorded.
+ *
+ * Recording is lock-free: the bucket counts are {@link
+ * AtomicLongArray} objects, where concurrent recordings of different
+ * latencies rarely touch the same element, while the total count and
+ * sum that every recording updates are {@link LongAdder} objects,
+ * which stripe their updates across threads.  The buckets of each
+ * power of two range are only allocated once a value in that range
+ * is recorded, so a histogram costs memory in proportion to the
+ * spread of its latencies.  Histograms can be merged, which makes it
+ * cheap to combine the histograms of several time periods or several
+ * timers.
+ */
+public class LatencyHistogram {
+    /**
+     * The log2 of the number of buckets each power of two range is
+     * split into, which bounds the relative error by 2^-7.
+     */
+    private static final int SUB_BUCKET_BITS = 7;
+
+    /**
+     * The number of buckets each power of two range is split into.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Values of 2^44 nanoseconds (almost 5 hours) or more are
+     * counted in the last bucket, although {@link #max()} is still
+     * exact.
+     */
+    private static final int MAX_VALUE_BITS = 44;
+
+    /**
+     * The number of groups of {@code SUB_BUCKETS} buckets.
+     */
+    private static final int GROUPS = MAX_VALUE_BITS - SUB_BUCKET_BITS + 1;
+
+    /**
+     * The number of buckets.
+     */
+    private static final int BUCKETS = GROUPS * SUB_BUCKETS;
+
+    /**
+     * The number of values recorded in each bucket, in groups of
+     * {@code SUB_BUCKETS} buckets that are allocated on demand.
+     */
+    private final AtomicReferenceArray<AtomicLongArray> mCounts =
+        new AtomicReferenceArray<>(GROUPS);
+
+    /**
+     * The number of values recorded.
+     */
+    private final LongAdder mCount = new LongAdder();
+
+    /**
+     * The sum of all values recorded.
+     */
+    private final LongAdder mSum = new LongAdder();
+
+    /**
+     * The largest value recorded.
+     */
+    private final LongAccumulator mMax =
+        new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos The latency in nanoseconds, where negative values
+     *              are recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0L);
+
+        int bucket = bucket(value);
+        group(bucket / SUB_BUCKETS)
+            .incrementAndGet(bucket % SUB_BUCKETS);
+        mCount.increment();
+        mSum.add(value);
+        mMax.accumulate(value);
+    }
+
+    /**
+     * Add all the values recorded by {@code other} to this histogram.
+     *
+     * @param other The {@link LatencyHistogram} to merge
+     * @return This {@link LatencyHistogram}
+     */
+    public LatencyHistogram merge(LatencyHistogram other) {
+        for (int g = 0; g < GROUPS; g++) {
+            var counts = other.mCounts.get(g);
+            if (counts == null)
+                continue;
+
+            for (int i = 0; i < SUB_BUCKETS; i++) {
+                long count = counts.get(i);
+                if (count != 0)
+                    group(g).addAndGet(i, count);
+            }
+        }
+
+        mCount.add(other.mCount.sum());
+        mSum.add(other.mSum.sum());
+        mMax.accumulate(other.mMax.get());
+        return this;
+    }
+
+    /**
+     * @param group The index of a group of buckets
+     * @return The counts of the {@code group}, which are allocated
+     *         if this is the first value recorded in it
+     */
+    private AtomicLongArray group(int group) {
+        var counts = mCounts.get(group);
+
+        if (counts == null
+            && !mCounts.compareAndSet(group,
+                                      null,
+                                      counts = new AtomicLongArray(SUB_BUCKETS)))
+            // Another thread allocated the group first.
+            counts = mCounts.get(group);
+
+        return counts;
+    }
+
+    /**
+     * @return The number of values recorded
+     */
+    public long count() {
+        return mCount.sum();
+    }
+
+    /**
+     * @return The sum of the values recorded in nanoseconds
+     */
+    public long sum() {
+        return mSum.sum();
+    }
+
+    /**
+     * @return The mean of the values recorded in nanoseconds, or 0 if
+     *         none have been recorded
+     */
+    public double mean() {
+        long count = mCount.sum();
+        return count == 0 ? 0.0 : (double) mSum.sum() / count;
+    }
+
+    /**
+     * @return The largest value recorded in nanoseconds
+     */
+    public long max() {
+        return mMax.get();
+    }
+
+    /**
+     * @return A consistent {@link Snapshot} of the statistics of the
+     *         values recorded so far
+     */
+    public Snapshot snapshot() {
+        var counts = new long[BUCKETS];
+        long total = 0;
+
+        for (int g = 0; g < GROUPS; g++) {
+            var group = mCounts.get(g);
+            if (group != null)
+                for (int i = 0; i < SUB_BUCKETS; i++)
+                    total += counts[g * SUB_BUCKETS + i] = group.get(i);
+        }
+
+        long max = mMax.get();
+
+        return new Snapshot(total,
+                            mean(),
+                            valueAt(counts, total, 0.5, max),
+                            valueAt(counts, total, 0.9, max),
+                            valueAt(counts, total, 0.99, max),
+                            valueAt(counts, total, 0.999, max),
+                            max);
+    }
+
+    /**
+     * @param counts A copy of the bucket counts
+     * @param total The sum of the {@code counts}
+     * @param quantile The quantile in (0, 1]
+     * @param max The largest value recorded
+     * @return The largest value in the bucket containing the {@code
+     *         quantile} of the {@code counts}, but no larger than
+     *         {@code max}
+     */
+    private static long valueAt(long[] counts,
+                                long total,
+                                double quantile,
+                                long max) {
+        if (total == 0)
+            return 0L;
+
+        long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++)
+            if ((seen += counts[i]) >= rank)
+                return Math.min(highestValue(i), max);
+
+        return max;
+    }
+
+    /**
+     * @param value A non-negative value
+     * @return The bucket {@code value} is counted in
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+            // Small values are counted exactly.
+            return (int) value;
+
+        int shift = Math.min(63 - Long.numberOfLeadingZeros(value),
+                             MAX_VALUE_BITS - 1)
+            - SUB_BUCKET_BITS;
+
+        return value >>> shift >= 2 * SUB_BUCKETS
+            // The value is too large to be counted precisely.
+            ? BUCKETS - 1
+            : (int) (shift * SUB_BUCKETS + (value >>> shift));
+    }
+
+    /**
+     * @param bucket A bucket
+     * @return The largest value counted in the {@code bucket}
+     */
+    static long highestValue(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS)
+            return bucket;
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+
+        return bucket == BUCKETS - 1
+            ? Long.MAX_VALUE
+            : lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * The statistics of the values recorded by a {@link
+     * LatencyHistogram}, all in nanoseconds.
+     *
+     * @param count The number of values recorded
+     * @param mean The mean value
+     * @param p50 The median value
+     * @param p90 The 90th percentile value
+     * @param p99 The 99th percentile value
+     * @param p999 The 99.9th percentile value
+     * @param max The largest value
+     */
+    public record Snapshot(long count,
+                           double mean,
+                           long p50,
+                           long p90,
+                           long p99,
+                           long p999,
+                           long max) {
+        /**
+         * @return The statistics in milliseconds
+         */
+        @Override
+        public String toString() {
+            return "count="
+                + count
+                + " mean="
+                + millis(mean)
+                + " p50="
+                + millis(p50)
+                + " p90="
+                + millis(p90)
+                + " p99="
+                + millis(p99)
+                + " p999="
+                + millis(p999)
+                + " max="
+                + millis(max)
+                + " msecs";
+        }
+
+        /**
+         * @param nanos A latency in nanoseconds
+         * @return The latency in milliseconds with 3 decimal places
+         */
+        private static String millis(double nanos) {
+            return String.format("%.3f",
+                                 nanos / TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+}
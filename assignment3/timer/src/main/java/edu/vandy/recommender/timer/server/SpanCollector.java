@@ -0,0 +1,299 @@
+package edu.vandy.recommender.timer.server;
+
+import edu.vandy.recommender.common.Span;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class keeps the {@link Span} objects posted by the gateway and
+ * the microservices in memory, grouped by trace, and computes the
+ * critical path of a trace, which breaks the latency of a request
+ * down into the stages that it actually waited for.
+ *
+ * Memory is bounded: once {@code app.timer.max-traces} traces are
+ * held the oldest trace is evicted, and spans beyond {@code
+ * app.timer.max-spans-per-trace} are dropped.
+ */
+@Service
+public class SpanCollector {
+    /**
+     * The max number of traces to keep.
+     */
+    @Value("${app.timer.max-traces:10000}")
+    private int mMaxTraces = 10_000;
+
+    /**
+     * The max number of spans to keep per trace.
+     */
+    @Value("${app.timer.max-spans-per-trace:1000}")
+    private int mMaxSpansPerTrace = 1_000;
+
+    /**
+     * The spans of one trace.
+     *
+     * @param spans The spans received so far
+     * @param size The number of {@code spans}
+     */
+    private record Trace(ConcurrentLinkedQueue<Span> spans,
+                         AtomicInteger size) {}
+
+    /**
+     * Associates a trace id with its {@link Trace}.
+     */
+    private final ConcurrentHashMap<String, Trace> mTraces =
+        new ConcurrentHashMap<>();
+
+    /**
+     * The trace ids in the order their first span arrived, which is
+     * the order they're evicted in.
+     */
+    private final ConcurrentLinkedQueue<String> mArrivals =
+        new ConcurrentLinkedQueue<>();
+
+    /**
+     * One stage of a critical path, which is the part of a span that
+     * wasn't spent waiting for one of its children.
+     *
+     * @param spanId The id of the span
+     * @param service The microservice that recorded the span
+     * @param name What the span times
+     * @param startMicros The start of the stage in microseconds since
+     *                    the epoch
+     * @param endMicros The end of the stage in microseconds since the
+     *                  epoch
+     * @param durationMicros The length of the stage in microseconds
+     */
+    public record Segment(String spanId,
+                          String service,
+                          String name,
+                          long startMicros,
+                          long endMicros,
+                          long durationMicros) {}
+
+    /**
+     * The critical path of a trace.
+     *
+     * @param traceId The id of the trace
+     * @param durationMicros The duration of the root span in
+     *                       microseconds
+     * @param segments The stages of the critical path in
+     *                 chronological order, whose durations add up to
+     *                 {@code durationMicros}
+     */
+    public record CriticalPath(String traceId,
+                               long durationMicros,
+                               List<Segment> segments) {}
+
+    /**
+     * Keep the {@code spans}.
+     *
+     * @param spans A {@link List} of ended {@link Span} objects
+     * @return The number of {@link Span} objects kept
+     */
+    public int addSpans(List<Span> spans) {
+        int kept = 0;
+
+        for (var span : spans) {
+            var trace = mTraces
+                // Atomically find or create the trace.
+                .computeIfAbsent(span.traceId, id -> {
+                        mArrivals.add(id);
+                        return new Trace(new ConcurrentLinkedQueue<>(),
+                                         new AtomicInteger());
+                    });
+
+            if (trace.size().incrementAndGet() <= mMaxSpansPerTrace) {
+                trace.spans().add(span);
+                kept++;
+            }
+        }
+
+        // Evict the oldest traces.
+        while (mTraces.size() > mMaxTraces) {
+            var oldest = mArrivals.poll();
+            if (oldest == null)
+                break;
+            mTraces.remove(oldest);
+        }
+
+        return kept;
+    }
+
+    /**
+     * @param traceId The id of a trace
+     * @return The {@link Span} objects of the trace ordered by start
+     *         time, which is empty if the trace is unknown
+     */
+    public List<Span> getTrace(String traceId) {
+        var trace = mTraces.get(traceId);
+
+        return trace == null
+            ? List.of()
+            : trace
+            .spans()
+            .stream()
+            .sorted(Comparator.comparingLong(span -> span.startMicros))
+            .toList();
+    }
+
+    /**
+     * Compute the critical path of a trace.  Starting at the end of
+     * the root span, the path repeatedly follows the child that
+     * finished last before the current point in time and then
+     * continues from that child's start, so children that ran in
+     * parallel with a longer sibling are skipped.  Time a span spent
+     * outside its children on the path is attributed to the span
+     * itself.
+     *
+     * @param traceId The id of a trace
+     * @return The {@link CriticalPath} of the trace, or null if the
+     *         trace is unknown
+     */
+    public CriticalPath getCriticalPath(String traceId) {
+        var spans = getTrace(traceId);
+        if (spans.isEmpty())
+            return null;
+
+        var ids = new HashSet<String>();
+        spans.forEach(span -> ids.add(span.spanId));
+
+        // Group the children by parent.  A span whose parent hasn't
+        // been received is a root.
+        Map<String, List<Span>> children = new HashMap<>();
+        var roots = new ArrayList<Span>();
+        for (var span : spans)
+            if (span.parentId != null && ids.contains(span.parentId))
+                children
+                    .computeIfAbsent(span.parentId, id -> new ArrayList<>())
+                    .add(span);
+            else
+                roots.add(span);
+
+        // The children that finish last are considered first.
+        children.values()
+            .forEach(list -> list
+                     .sort(Comparator
+                           .comparingLong((Span span) -> span.endMicros)
+                           .reversed()));
+
+        // The longest root covers the most of the request.  A
+        // malformed trace whose parents form a cycle has no roots.
+        var root = (roots.isEmpty() ? spans : roots)
+            .stream()
+            .max(Comparator.comparingLong(span -> span.endMicros
+                                          - span.startMicros))
+            .orElseThrow();
+
+        Deque<Segment> path = new ArrayDeque<>();
+        walk(root,
+             root.startMicros,
+             root.endMicros,
+             children,
+             new HashSet<>(),
+             path);
+
+        return new CriticalPath(traceId,
+                                root.endMicros - root.startMicros,
+                                List.copyOf(path));
+    }
+
+    /**
+     * Add the critical path of the {@code span} between {@code begin}
+     * and {@code end} to the front of the {@code path}, working
+     * backwards in time.  Clipping each span to the part of its
+     * parent it's waited for keeps the durations of the stages adding
+     * up to the duration of the root even if the clocks of different
+     * microservices are slightly skewed.
+     *
+     * @param span The {@link Span} to walk
+     * @param begin The point in time the path must start at or after
+     * @param end The point in time the path must end by
+     * @param children The children of each span ordered by
+     *                 descending end time
+     * @param visited The ids of the spans already walked, which
+     *                guards against malformed traces
+     * @param path The stages found so far, in chronological order
+     */
+    private static void walk(Span span,
+                             long begin,
+                             long end,
+                             Map<String, List<Span>> children,
+                             Set<String> visited,
+                             Deque<Segment> path) {
+        visited.add(span.spanId);
+
+        long lower = Math.max(begin, span.startMicros);
+        long cursor = Math.min(end, span.endMicros);
+
+        for (var child : children.getOrDefault(span.spanId, List.of())) {
+            if (cursor <= lower)
+                break;
+
+            // Skip children that started after the path reached
+            // them, since they ran in parallel with a later stage.
+            if (child.startMicros >= cursor
+                || visited.contains(child.spanId))
+                continue;
+
+            long childEnd = Math.min(child.endMicros, cursor);
+            if (childEnd <= lower)
+                // The remaining children end even earlier.
+                break;
+
+            addFirst(path, span, childEnd, cursor);
+            walk(child, lower, childEnd, children, visited, path);
+            cursor = Math.max(child.startMicros, lower);
+        }
+
+        addFirst(path, span, lower, cursor);
+    }
+
+    /**
+     * Add the time {@code span} spent on its own from {@code start}
+     * to {@code end} to the front of the {@code path}, merging it
+     * with the first segment if that's from the same span.
+     */
+    private static void addFirst(Deque<Segment> path,
+                                 Span span,
+                                 long start,
+                                 long end) {
+        if (end <= start)
+            return;
+
+        var first = path.peekFirst();
+        if (first != null
+            && first.spanId().equals(span.spanId)
+            && first.startMicros() == end) {
+            path.removeFirst();
+            end = first.endMicros();
+        }
+
+        path.addFirst(new Segment(span.spanId,
+                                  span.service,
+                                  span.name,
+                                  start,
+                                  end,
+                                  end - start));
+    }
+
+    /**
+     * Clears all the spans.
+     */
+    public void clear() {
+        mTraces.clear();
+        mArrivals.clear();
+    }
+}
@@ -1,17 +1,27 @@
 package edu.vandy.recommender.timer.server;
 
+import edu.vandy.recommender.common.Span;
 import edu.vandy.recommender.common.Timer;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.util.List;
+import java.util.Optional;
+
 import static edu.vandy.recommender.common.Constants.EndPoint.*;
+import static edu.vandy.recommender.common.Constants.Params.DROPPED_ON_ERROR_PARAM;
+import static edu.vandy.recommender.common.Constants.Params.DROPPED_ON_OVERFLOW_PARAM;
+import static edu.vandy.recommender.common.Constants.Params.SERVICE_PARAM;
+import static edu.vandy.recommender.common.Constants.Params.TRACE_ID_PARAM;
 import static edu.vandy.recommender.common.Constants.Service.TIMER;
 
 /**
@@ -43,6 +53,13 @@ public class TimerController {
     @Autowired
     private TimerService mService;
 
+    /**
+     * Spring will inject the collector of the spans of traced
+     * requests.
+     */
+    @Autowired
+    private SpanCollector mSpanCollector;
+
     /**
      * A request for testing the Eureka connection.
      *
@@ -89,13 +106,98 @@ public class TimerController {
     }
 
     /**
-     * Clears all previously recorded timings.
+     * Record the execution times of a batch of {@link Timer} objects
+     * in one request, which is how {@link
+     * edu.vandy.recommender.common.RunTimer} exports its timings,
+     * along with how many timings and spans it has dropped so far.
+     *
+     * @param timers A {@link List} of stopped {@link Timer} instances
+     * @param service The name of the microservice that sent the
+     *                batch, or null if it didn't say
+     * @param droppedOnOverflow The number of timings and spans the
+     *                          sender dropped because its buffer was
+     *                          full
+     * @param droppedOnError The number of timings and spans the
+     *                       sender dropped because their batch
+     *                       couldn't be posted
+     * @return The number of {@link Timer} objects recorded
+     */
+    @PostMapping(POST_TIMINGS)
+    public int recordTimings(@RequestBody List<Timer> timers,
+                             @RequestParam(name = SERVICE_PARAM,
+                                           required = false)
+                             String service,
+                             @RequestParam(name = DROPPED_ON_OVERFLOW_PARAM,
+                                           defaultValue = "0")
+                             long droppedOnOverflow,
+                             @RequestParam(name = DROPPED_ON_ERROR_PARAM,
+                                           defaultValue = "0")
+                             long droppedOnError) {
+        if (service != null)
+            mService
+                // Forward to the service.
+                .recordDropped(service, droppedOnOverflow, droppedOnError);
+
+        return mService
+            // Forward to the service.
+            .addTimers(timers);
+    }
+
+    /**
+     * Keep a batch of {@link Span} objects from traced requests,
+     * which is how the gateway and {@link
+     * edu.vandy.recommender.common.RunTimer} export their spans.
+     *
+     * @param spans A {@link List} of ended {@link Span} instances
+     * @return The number of {@link Span} objects kept
+     */
+    @PostMapping(POST_SPANS)
+    public int recordSpans(@RequestBody List<Span> spans) {
+        return mSpanCollector
+            // Forward to the collector.
+            .addSpans(spans);
+    }
+
+    /**
+     * @param traceId The id of a trace, which is returned to clients
+     *                in the {@code traceresponse} header
+     * @return The {@link Span} objects of the trace ordered by start
+     *         time
+     */
+    @GetMapping(GET_TRACE + "/{" + TRACE_ID_PARAM + "}")
+    public List<Span> getTrace(@PathVariable String traceId) {
+        return mSpanCollector
+            // Forward request to the collector.
+            .getTrace(traceId);
+    }
+
+    /**
+     * @param traceId The id of a trace, which is returned to clients
+     *                in the {@code traceresponse} header
+     * @return The {@link SpanCollector.CriticalPath} of the trace, or
+     *         a 404 status if the trace is unknown
+     */
+    @GetMapping(GET_CRITICAL_PATH + "/{" + TRACE_ID_PARAM + "}")
+    public ResponseEntity<SpanCollector.CriticalPath>
+        getCriticalPath(@PathVariable String traceId) {
+        return ResponseEntity
+            // Forward request to the collector.
+            .of(Optional.ofNullable(mSpanCollector
+                                    .getCriticalPath(traceId)));
+    }
+
+    /**
+     * Clears all previously recorded timings and spans.
      */
     @PostMapping(CLEAR_TIMINGS)
     public void clearTimings() {
         mService
             // Forward to the service.
             .clearTimings();
+
+        mSpanCollector
+            // Forward to the collector.
+            .clear();
     }
 
     /**
@@ -108,4 +210,17 @@ public class TimerController {
             // Forward request to the service.
             .getTimingResults();
     }
+
+    /**
+     * @return A {@link String} containing the lifetime and sliding
+     *         window timings of every identifier in the Prometheus
+     *         text exposition format
+     */
+    @GetMapping(value = GET_METRICS,
+                produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String getMetrics() {
+        return mService
+            // Forward request to the service.
+            .getPrometheusMetrics();
+    }
 }
@@ -2,14 +2,20 @@ package edu.vandy.recommender.timer.server;
 
 import edu.vandy.recommender.common.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This class defines implementation methods that are called by the
@@ -32,45 +38,127 @@ public class TimerService {
     @Autowired
     private ConcurrentHashMap<String, Timing> mResultsMap;
 
+    /**
+     * The sliding windows reported by {@link #getPrometheusMetrics()}
+     * and their labels.
+     */
+    private static final Map<String, Duration> WINDOWS = Map.of
+        ("1m", Duration.ofMinutes(1),
+         "5m", Duration.ofMinutes(5),
+         "15m", Duration.ofMinutes(15));
+
+    /**
+     * The percentiles reported for each window.
+     */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    /**
+     * The length of each slot of the sliding windows, which bounds
+     * how far past its nominal length a window reaches back.
+     */
+    @Value("${app.timer.window-slot:15s}")
+    private Duration mWindowSlot = Duration.ofSeconds(15);
+
+    /**
+     * Associates an identifier with the timings recorded over the
+     * most recent {@code WINDOWS}.
+     */
+    private final ConcurrentHashMap<String, WindowedHistogram> mWindowsMap =
+        new ConcurrentHashMap<>();
+
+    /**
+     * The number of timings and spans a microservice's {@code
+     * RunTimer} has dropped.
+     *
+     * @param onOverflow The number dropped because its buffer was
+     *                   full
+     * @param onError The number dropped because their batch couldn't
+     *                be posted
+     */
+    public record Dropped(long onOverflow, long onError) {}
+
+    /**
+     * Associates the name of a microservice with the latest {@link
+     * Dropped} counts it reported.
+     */
+    private final ConcurrentHashMap<String, Dropped> mDroppedMap =
+        new ConcurrentHashMap<>();
+
     /**
      * Keep a record the passed {@link Timer}.
      *
      * @param timer A {@link Timer} instance.
      */
     public Timer addTimer(Timer timer) {
-        // Compute the elapsed time in microseconds.
-        long elapsedTime = (timer.stopTime - timer.startTime) 
-            / 1_000_000;
-
-        // Lookup the TimingRecord associated with methodName.
-        Timing timing = mResultsMap.get(timer.id);
-
-        // This handles the case where methodName wasn't in the Map.
-        if (timing == null) {
-            timing = new Timing(elapsedTime);
-
-            // Put the methodName and timingRecord into the results
-            // Map.
-            mResultsMap.put(timer.id, timing);
-        } else {
-            // Increment the invocation count.
-            timing.invocationCount.incrementAndGet();
-
-            // Update the average time.
-            timing
-                .averageTime
-                .set((timing.invocationCount.get()
-                      * timing.averageTime.get()
-                      + elapsedTime)
-                     / (timing.invocationCount.get()));
-        }
+        var timing = mResultsMap
+            // Atomically find or create the Timing for this id.
+            .computeIfAbsent(timer.id, id -> new Timing());
+
+        // Record the elapsed time in nanoseconds.
+        timing.record(timer.stopTime - timer.startTime);
+
+        // Record how a timed reactive stream ended.
+        if (timer.signal != null)
+            timing.recordStream(timer.elements, timer.signal);
+
+        mWindowsMap
+            // Atomically find or create the windows for this id.
+            .computeIfAbsent(timer.id,
+                             id -> new WindowedHistogram(mWindowSlot,
+                                                         Duration.ofMinutes(15)))
+
+            // Record the elapsed time in the current slot.
+            .record(timer.stopTime - timer.startTime);
 
         return timer;
     }
 
+    /**
+     * Keep a record of each of the passed {@link Timer} objects.
+     *
+     * @param timers A {@link List} of {@link Timer} instances
+     * @return The number of {@link Timer} objects recorded
+     */
+    public int addTimers(List<Timer> timers) {
+        timers.forEach(this::addTimer);
+        return timers.size();
+    }
+
+    /**
+     * Keep the drop counts reported by a microservice.  The counts
+     * are running totals, so batches that arrive out of order never
+     * lower them.
+     *
+     * @param service The name of the microservice
+     * @param onOverflow The number of timings and spans it dropped
+     *                   because its buffer was full
+     * @param onError The number of timings and spans it dropped
+     *                because their batch couldn't be posted
+     */
+    public void recordDropped(String service,
+                              long onOverflow,
+                              long onError) {
+        mDroppedMap
+            // Atomically keep the larger of each count.
+            .merge(service,
+                   new Dropped(onOverflow, onError),
+                   (old, now) -> new Dropped
+                   (Math.max(old.onOverflow(), now.onOverflow()),
+                    Math.max(old.onError(), now.onError())));
+    }
+
+    /**
+     * @return The latest {@link Dropped} counts of each microservice
+     *         ordered by name
+     */
+    public Map<String, Dropped> getDropped() {
+        return new TreeMap<>(mDroppedMap);
+    }
+
     /**
      * @return A {@link String} containing the timing results for all
-     *         the method runs ordered from fastest to slowest
+     *         the method runs ordered from fastest to slowest mean
+     *         time
      */
     public String getTimingResults() {
         StringBuilder stringBuffer =
@@ -92,23 +180,26 @@ public class TimerService {
             // Convert the entrySet into a stream.
             .stream()
 
-            // Create a SimpleEntry containing the timing results
-            // (value) followed by the test name (key).
+            // Create a SimpleEntry containing a snapshot of the
+            // timing results (value) followed by the test name (key).
             .map(entry
-                 -> new SimpleEntry<>(entry.getValue(),
+                 -> new SimpleEntry<>(entry.getValue().snapshot(),
                                       entry.getKey()))
 
-            // Sort the stream by the timing results (key).
-            .sorted(Comparator.comparing(SimpleEntry::getKey))
+            // Sort the stream by the mean time of the snapshot (key).
+            .sorted(Comparator.comparingDouble(entry -> entry
+                                               .getKey()
+                                               .mean()))
 
             // Append the entries in the sorted stream.
             .forEach(entry -> stringBuffer
-                     .append(entry.getKey().invocationCount)
-                     .append(" call(s) to ")
                      .append(entry.getValue())
-                     .append(" executed in an average of ")
-                     .append(entry.getKey().averageTime)
-                     .append(" msecs\n"));
+                     .append(": ")
+                     .append(entry.getKey())
+                     .append(mResultsMap
+                             .getOrDefault(entry.getValue(), new Timing())
+                             .streamResults())
+                     .append("\n"));
 
         // Convert stringBuffer to a String and return it.
         var results = stringBuffer.toString();
@@ -116,54 +207,251 @@ public class TimerService {
         return results;
     }
 
+    /**
+     * Returns the timings in the Prometheus text exposition format.
+     * Lifetime counts and sums are a {@code summary}, so rates can be
+     * computed by Prometheus, while the count, rate, percentiles, and
+     * max of the 1, 5, and 15 minute sliding windows are gauges.
+     *
+     * @return A {@link String} containing the timings of every
+     *         identifier
+     */
+    public String getPrometheusMetrics() {
+        var metrics = new StringBuilder();
+        var lifetime = new TreeMap<>(mResultsMap);
+        var windows = new TreeMap<>(mWindowsMap);
+
+        metrics
+            .append("# HELP timer_latency_seconds Lifetime latency of timed calls.\n")
+            .append("# TYPE timer_latency_seconds summary\n");
+        lifetime.forEach((id, timing) -> {
+                String labels = "{id=\"" + escape(id) + "\"}";
+                metrics
+                    .append("timer_latency_seconds_count").append(labels)
+                    .append(' ').append(timing.count()).append('\n')
+                    .append("timer_latency_seconds_sum").append(labels)
+                    .append(' ').append(seconds(timing.sum())).append('\n');
+            });
+
+        metrics
+            .append("# HELP timer_elements_total Elements emitted by timed reactive streams.\n")
+            .append("# TYPE timer_elements_total counter\n");
+        lifetime.forEach((id, timing) -> {
+                if (!timing.signals().isEmpty())
+                    metrics
+                        .append("timer_elements_total{id=\"")
+                        .append(escape(id)).append("\"} ")
+                        .append(timing.elements()).append('\n');
+            });
+
+        metrics
+            .append("# HELP timer_signals_total Terminal signals of timed reactive streams.\n")
+            .append("# TYPE timer_signals_total counter\n");
+        lifetime.forEach((id, timing) -> timing
+                         .signals()
+                         .forEach((signal, count) -> metrics
+                                  .append("timer_signals_total{id=\"")
+                                  .append(escape(id))
+                                  .append("\",signal=\"")
+                                  .append(escape(signal))
+                                  .append("\"} ")
+                                  .append(count).append('\n')));
+
+        // Take one snapshot per id and window for all the gauges.
+        var snapshots = new TreeMap<String, LatencyHistogram>();
+        var rates = new TreeMap<String, Double>();
+        windows.forEach((id, windowed) -> WINDOWS
+                        .forEach((name, window) -> {
+                                String labels = "id=\""
+                                    + escape(id)
+                                    + "\",window=\""
+                                    + name
+                                    + "\"";
+                                var histogram = windowed.window(window);
+                                snapshots.put(labels, histogram);
+                                rates.put(labels,
+                                          histogram.count()
+                                          / (windowed.span(window).toMillis()
+                                             / 1000.0));
+                            }));
+
+        metrics
+            .append("# HELP timer_window_latency_seconds Latency percentiles over a sliding window.\n")
+            .append("# TYPE timer_window_latency_seconds gauge\n");
+        snapshots.forEach((labels, histogram) -> {
+                var snapshot = histogram.snapshot();
+                long[] values = {snapshot.p50(),
+                                 snapshot.p90(),
+                                 snapshot.p99(),
+                                 snapshot.p999()};
+                for (int i = 0; i < QUANTILES.length; i++)
+                    metrics
+                        .append("timer_window_latency_seconds{")
+                        .append(labels)
+                        .append(",quantile=\"").append(QUANTILES[i])
+                        .append("\"} ").append(seconds(values[i]))
+                        .append('\n');
+            });
+
+        metrics
+            .append("# HELP timer_window_latency_max_seconds Max latency over a sliding window.\n")
+            .append("# TYPE timer_window_latency_max_seconds gauge\n");
+        snapshots.forEach((labels, histogram) -> metrics
+                          .append("timer_window_latency_max_seconds{")
+                          .append(labels).append("} ")
+                          .append(seconds(histogram.max())).append('\n'));
+
+        metrics
+            .append("# HELP timer_window_calls Number of timed calls over a sliding window.\n")
+            .append("# TYPE timer_window_calls gauge\n");
+        snapshots.forEach((labels, histogram) -> metrics
+                          .append("timer_window_calls{")
+                          .append(labels).append("} ")
+                          .append(histogram.count()).append('\n'));
+
+        metrics
+            .append("# HELP timer_window_calls_per_second Rate of timed calls over a sliding window.\n")
+            .append("# TYPE timer_window_calls_per_second gauge\n");
+        rates.forEach((labels, rate) -> metrics
+                      .append("timer_window_calls_per_second{")
+                      .append(labels).append("} ")
+                      .append(String.format(Locale.ROOT, "%.6f", rate))
+                      .append('\n'));
+
+        metrics
+            .append("# HELP timer_exporter_dropped_total Timings and spans a service dropped instead of exporting.\n")
+            .append("# TYPE timer_exporter_dropped_total counter\n");
+        getDropped().forEach((service, dropped) -> metrics
+                             .append("timer_exporter_dropped_total{service=\"")
+                             .append(escape(service))
+                             .append("\",reason=\"overflow\"} ")
+                             .append(dropped.onOverflow()).append('\n')
+                             .append("timer_exporter_dropped_total{service=\"")
+                             .append(escape(service))
+                             .append("\",reason=\"error\"} ")
+                             .append(dropped.onError()).append('\n'));
+
+        return metrics.toString();
+    }
+
+    /**
+     * @param nanos A latency in nanoseconds
+     * @return The latency in seconds
+     */
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT,
+                             "%.9f",
+                             (double) nanos / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * @param value A Prometheus label value
+     * @return The {@code value} with backslashes, double quotes, and
+     *         line feeds escaped
+     */
+    private static String escape(String value) {
+        return value
+            .replace("\\", "\\\\")
+            .replace("\"", "\\\"")
+            .replace("\n", "\\n");
+    }
+
     /**
      * Clears all previously recorded timings.
      */
     public void clearTimings() {
         mResultsMap.clear();
+        mWindowsMap.clear();
     }
 
     /**
-     * This class records the execution time of timing requests.
+     * This class records the execution times of timing requests for
+     * a given identifier in a {@link LatencyHistogram}, along with
+     * the elements and terminal signals of timed reactive streams.
      */
     public static class Timing
+           extends LatencyHistogram
            implements Comparable<Timing> {
         /**
-         * The average time of all the computations for a given
-         * identifier.
+         * The number of elements emitted by the timed streams.
+         */
+        private final LongAdder mElements = new LongAdder();
+
+        /**
+         * Associates each terminal signal with the number of timed
+         * streams it ended.
          */
-        final AtomicLong averageTime;
+        private final ConcurrentHashMap<String, LongAdder> mSignals =
+            new ConcurrentHashMap<>();
 
         /**
-         * The total number of invocations for a given identifier.
+         * Record how a timed reactive stream ended.
+         *
+         * @param elements The number of elements the stream emitted
+         * @param signal The signal that terminated the stream
          */
-        final AtomicLong invocationCount;
+        public void recordStream(long elements, String signal) {
+            mElements.add(elements);
+            mSignals.computeIfAbsent(signal, s -> new LongAdder())
+                .increment();
+        }
 
         /**
-         * Constructor initializes the fields.
+         * @return The number of elements emitted by the timed streams
          */
-        public Timing(long elapsedTime) {
-            this.averageTime = new AtomicLong(elapsedTime);
-            this.invocationCount = new AtomicLong(1);
+        public long elements() {
+            return mElements.sum();
+        }
+
+        /**
+         * @return The number of timed streams ended by each terminal
+         *         signal, ordered by signal
+         */
+        public Map<String, Long> signals() {
+            var signals = new TreeMap<String, Long>();
+            mSignals.forEach((signal, count) ->
+                             signals.put(signal, count.sum()));
+            return signals;
+        }
+
+        /**
+         * @return The elements, throughput in elements per second of
+         *         streaming time, and terminal signals of the timed
+         *         streams, or an empty {@link String} if no streams
+         *         were timed
+         */
+        public String streamResults() {
+            var signals = signals();
+            if (signals.isEmpty())
+                return "";
+
+            double seconds = (double) sum() / TimeUnit.SECONDS.toNanos(1);
+
+            return " elements="
+                + elements()
+                + " throughput="
+                + String.format(Locale.ROOT,
+                                "%.1f",
+                                seconds == 0 ? 0.0 : elements() / seconds)
+                + "/sec signals="
+                + signals;
         }
 
         /**
          * Compares this {@link Timing} with the specified {@link
-         * Timing} for order using the {@code averageTime()} method.
+         * Timing} for order using the {@code mean()} method.
          * Returns a negative integer, zero, or a positive integer as
          * this {@link Timing} is less than, equal to, or greater than
          * the specified {@link Timing}.
          *
          * @param that The {@link Timing} to be compared
          * @return A negative integer, zero, or a positive integer as
-         *         this {@link Timing}'s average time is less than,
-         *         equal to, or greater than the specified {@link
-         *         Timing}
+         *         this {@link Timing}'s mean time is less than, equal
+         *         to, or greater than the specified {@link Timing}
          */
         @Override
         public int compareTo(Timing that) {
-            return (int) (this.averageTime.get()
-                          - that.averageTime.get());
+            return Double.compare(this.mean(), that.mean());
         }
     }
 }
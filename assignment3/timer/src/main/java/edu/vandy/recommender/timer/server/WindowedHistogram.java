@@ -0,0 +1,152 @@
+package edu.vandy.recommender.timer.server;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * This class keeps the latencies recorded over a sliding time window
+ * as a ring of {@link LatencyHistogram} slots, each of which covers
+ * one fixed-length interval of wall-clock time.  Recording only
+ * touches the slot of the current interval, and a slot is replaced
+ * by an empty one the first time it's reused a lap later, so old
+ * latencies expire without any background work or locking.
+ *
+ * A window is reported by merging the current, partly filled slot
+ * with the complete slots before it, so a window of {@code d} covers
+ * between {@code d} and {@code d} plus one slot of recent history.
+ */
+public class WindowedHistogram {
+    /**
+     * The latencies recorded during one interval.
+     *
+     * @param interval The number of slot lengths since the epoch
+     * @param histogram The latencies recorded during the interval
+     */
+    private record Slot(long interval, LatencyHistogram histogram) {}
+
+    /**
+     * The slots, where the slot of {@code interval} is at index
+     * {@code interval % mSlots.length()}.
+     */
+    private final AtomicReferenceArray<Slot> mSlots;
+
+    /**
+     * The length of each slot in milliseconds.
+     */
+    private final long mSlotMillis;
+
+    /**
+     * Returns the current wall-clock time in milliseconds.
+     */
+    private final LongSupplier mClock;
+
+    /**
+     * Create a {@link WindowedHistogram} that uses the system clock.
+     *
+     * @param slot The length of each slot
+     * @param maxWindow The longest window that will be reported
+     */
+    public WindowedHistogram(Duration slot, Duration maxWindow) {
+        this(slot, maxWindow, System::currentTimeMillis);
+    }
+
+    /**
+     * Create a {@link WindowedHistogram}.
+     *
+     * @param slot The length of each slot
+     * @param maxWindow The longest window that will be reported
+     * @param clock Returns the current wall-clock time in
+     *              milliseconds
+     */
+    public WindowedHistogram(Duration slot,
+                             Duration maxWindow,
+                             LongSupplier clock) {
+        mSlotMillis = Math.max(1, slot.toMillis());
+        mClock = clock;
+        // Keep one more slot than the longest window needs for the
+        // one being filled.
+        mSlots = new AtomicReferenceArray<>
+            ((int) slots(maxWindow) + 1);
+    }
+
+    /**
+     * Record a latency in the current slot.
+     *
+     * @param nanos The latency in nanoseconds
+     */
+    public void record(long nanos) {
+        slot(mClock.getAsLong() / mSlotMillis).record(nanos);
+    }
+
+    /**
+     * Merge the latencies recorded during the {@code window}.
+     *
+     * @param window The length of the window, which is rounded up to
+     *               a whole number of slots and limited to the
+     *               longest window given to the constructor
+     * @return A new {@link LatencyHistogram} containing the latencies
+     *         recorded during the {@code window}
+     */
+    public LatencyHistogram window(Duration window) {
+        long now = mClock.getAsLong() / mSlotMillis;
+        long oldest = now - Math.min(slots(window), mSlots.length() - 1);
+        var merged = new LatencyHistogram();
+
+        for (int i = 0; i < mSlots.length(); i++) {
+            var slot = mSlots.get(i);
+            if (slot != null
+                && slot.interval() >= oldest
+                && slot.interval() <= now)
+                merged.merge(slot.histogram());
+        }
+
+        return merged;
+    }
+
+    /**
+     * @param window The length of a window
+     * @return The length of wall-clock time {@link #window} actually
+     *         merges for the {@code window}, which is used to turn
+     *         counts into rates
+     */
+    public Duration span(Duration window) {
+        long nowMillis = mClock.getAsLong();
+        long oldest = nowMillis / mSlotMillis
+            - Math.min(slots(window), mSlots.length() - 1);
+
+        return Duration.ofMillis(nowMillis - oldest * mSlotMillis);
+    }
+
+    /**
+     * @param window A length of time
+     * @return The number of whole slots needed to cover the {@code
+     *         window}
+     */
+    private long slots(Duration window) {
+        return Math.max(1, (window.toMillis() + mSlotMillis - 1) / mSlotMillis);
+    }
+
+    /**
+     * @param interval The number of slot lengths since the epoch
+     * @return The {@link LatencyHistogram} of the {@code interval},
+     *         which replaces the slot's histogram from a lap ago
+     */
+    private LatencyHistogram slot(long interval) {
+        int index = (int) Math.floorMod(interval, (long) mSlots.length());
+
+        for (;;) {
+            var slot = mSlots.get(index);
+
+            if (slot != null && slot.interval() >= interval)
+                // A late recording from a slot that has already been
+                // reused lands in the newer slot rather than being
+                // lost.
+                return slot.histogram();
+
+            var fresh = new Slot(interval, new LatencyHistogram());
+            if (mSlots.compareAndSet(index, slot, fresh))
+                return fresh.histogram();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package edu.vandy.recommender.timer.server
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.within
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.util.concurrent.Executors
+import kotlin.math.ceil
+import kotlin.math.exp
+import kotlin.math.ln
+import kotlin.random.Random
+
+/**
+ * Checks that [LatencyHistogram] reports percentiles within its
+ * relative error bound of the exact percentiles.
+ */
+class LatencyHistogramTest : AssignmentTests() {
+    private fun latencies(n: Int) = List(n) { exp(Random.nextDouble() * ln(1e12)).toLong() }
+
+    private fun exact(sorted: List<Long>, quantile: Double) =
+        sorted[maxOf(0, ceil(quantile * sorted.size).toInt() - 1)]
+
+    private fun assertClose(actual: Long, expected: Long) {
+        assertThat(actual).isBetween(expected, expected + expected / 128)
+    }
+
+    @Test
+    fun `percentiles are within the relative error bound`() {
+        repeat(10) {
+            val values = latencies(Random.nextInt(1, 50_000))
+            val histogram = LatencyHistogram().apply { values.forEach(::record) }
+            val sorted = values.sorted()
+            val snapshot = histogram.snapshot()
+
+            assertThat(snapshot.count()).isEqualTo(values.size.toLong())
+            assertThat(snapshot.mean()).isCloseTo(values.average(), within(1e-6 * values.average()))
+            assertThat(snapshot.max()).isEqualTo(sorted.last())
+            assertClose(snapshot.p50(), exact(sorted, 0.5))
+            assertClose(snapshot.p90(), exact(sorted, 0.9))
+            assertClose(snapshot.p99(), exact(sorted, 0.99))
+            assertClose(snapshot.p999(), exact(sorted, 0.999))
+        }
+    }
+
+    @Test
+    fun `sub-millisecond latencies are not truncated`() {
+        val histogram = LatencyHistogram().apply { repeat(10) { record(250_000) } }
+
+        assertThat(histogram.snapshot().p50()).isEqualTo(250_000L)
+        assertThat(histogram.mean()).isEqualTo(250_000.0)
+    }
+
+    @Test
+    fun `merge combines the recorded values`() {
+        val a = LatencyHistogram().apply { record(10) }
+        val b = LatencyHistogram().apply { record(1_000_000); record(30) }
+
+        val snapshot = a.merge(b).snapshot()
+
+        assertThat(snapshot.count()).isEqualTo(3L)
+        assertThat(snapshot.p50()).isEqualTo(30L)
+        assertThat(snapshot.max()).isEqualTo(1_000_000L)
+    }
+
+    @Test
+    fun `concurrent recordings are all counted`() {
+        val histogram = LatencyHistogram()
+        val executor = Executors.newFixedThreadPool(8)
+
+        (1..8).map { executor.submit { repeat(100_000) { histogram.record(it.toLong()) } } }
+            .forEach { it.get() }
+        executor.shutdown()
+
+        assertThat(histogram.count()).isEqualTo(800_000L)
+        assertThat(histogram.max()).isEqualTo(99_999L)
+    }
+
+    @Test
+    fun `empty histogram reports zeros`() {
+        val snapshot = LatencyHistogram().snapshot()
+
+        assertThat(snapshot.count()).isZero()
+        assertThat(snapshot.p999()).isZero()
+        assertThat(snapshot.mean()).isZero()
+    }
+}
@@ -0,0 +1,61 @@
+package edu.vandy.recommender.timer.server
+
+import edu.vandy.recommender.common.Span
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+
+/**
+ * Checks that [SpanCollector] breaks a trace down into the stages on
+ * its critical path and bounds the traces it keeps.
+ */
+class SpanCollectorTest : AssignmentTests() {
+    private val collector = SpanCollector()
+
+    private fun span(traceId: String, id: String, parent: String?, start: Long, end: Long) =
+        Span().apply {
+            this.traceId = traceId
+            spanId = id
+            parentId = parent
+            service = "test"
+            name = id
+            startMicros = start
+            endMicros = end
+        }
+
+    @Test
+    fun `critical path follows the stages the request waited for`() {
+        collector.addSpans(
+            listOf(
+                span("t", "server", "gateway", 5, 95),
+                span("t", "gateway", null, 0, 100),
+                span("t", "fetch", "server", 10, 40),
+                span("t", "shortScore", "server", 20, 30),
+                span("t", "score", "server", 20, 80),
+                span("t", "topK", "server", 82, 90)
+            )
+        )
+
+        val path = collector.getCriticalPath("t")!!
+
+        assertThat(path.segments().map { it.name() })
+            .containsExactly("gateway", "server", "fetch", "score", "server", "topK", "server", "gateway")
+        assertThat(path.segments().sumOf { it.durationMicros() }).isEqualTo(path.durationMicros()).isEqualTo(100L)
+    }
+
+    @Test
+    fun `children are clipped to their parent`() {
+        collector.addSpans(listOf(span("t", "root", null, 10, 20), span("t", "skewed", "root", 5, 25)))
+
+        val path = collector.getCriticalPath("t")!!
+
+        assertThat(path.segments().map { it.name() }).containsExactly("skewed")
+        assertThat(path.segments().single().durationMicros()).isEqualTo(10L)
+    }
+
+    @Test
+    fun `unknown traces have no critical path`() {
+        assertThat(collector.getCriticalPath("missing")).isNull()
+        assertThat(collector.getTrace("missing")).isEmpty()
+    }
+}
@@ -0,0 +1,52 @@
+package edu.vandy.recommender.timer.server
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.time.Duration
+
+/**
+ * Checks that [WindowedHistogram] reports only the latencies recorded
+ * within each sliding window and expires older ones.
+ */
+class WindowedHistogramTest : AssignmentTests() {
+    private var now = 1_000_000_000L
+
+    private val windows = WindowedHistogram(Duration.ofSeconds(15), Duration.ofMinutes(15)) { now }
+
+    private fun advance(duration: Duration) {
+        now += duration.toMillis()
+    }
+
+    @Test
+    fun `windows contain only recent latencies`() {
+        windows.record(1_000)
+        advance(Duration.ofMinutes(6))
+        windows.record(2_000)
+        advance(Duration.ofMinutes(2))
+        windows.record(3_000)
+
+        assertThat(windows.window(Duration.ofMinutes(1)).count()).isEqualTo(1L)
+        assertThat(windows.window(Duration.ofMinutes(5)).count()).isEqualTo(2L)
+        assertThat(windows.window(Duration.ofMinutes(15)).count()).isEqualTo(3L)
+        assertThat(windows.window(Duration.ofMinutes(15)).max()).isEqualTo(3_000L)
+    }
+
+    @Test
+    fun `latencies expire after the longest window`() {
+        repeat(10) { windows.record(5_000) }
+        advance(Duration.ofMinutes(16))
+        windows.record(7_000)
+
+        val window = windows.window(Duration.ofMinutes(15))
+        assertThat(window.count()).isEqualTo(1L)
+        assertThat(window.snapshot().p50()).isEqualTo(7_000L)
+    }
+
+    @Test
+    fun `span covers the window and the current slot`() {
+        advance(Duration.ofSeconds(5))
+
+        assertThat(windows.span(Duration.ofMinutes(1))).isBetween(Duration.ofMinutes(1), Duration.ofSeconds(75))
+    }
+}
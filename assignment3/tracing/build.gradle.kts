@@ -0,0 +1,4 @@
+tasks {
+    bootJar {enabled = false}
+    jar {enabled = true}
+}
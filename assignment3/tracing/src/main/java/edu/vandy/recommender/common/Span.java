@@ -0,0 +1,117 @@
+package edu.vandy.recommender.common;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * This class records one stage of a traced request, such as a hop
+ * through the gateway, the handling of a request by a microservice,
+ * or a timed call within it.  Spans are posted to the 'timer'
+ * microservice, which links the spans of a trace via their parent
+ * ids.
+ *
+ * Start and end times are wall-clock microseconds since the epoch,
+ * so spans recorded by different microservices can be compared, but
+ * they're measured with {@link System#nanoTime()} relative to a
+ * single reading of the wall clock, so the duration of a span isn't
+ * skewed by wall-clock adjustments.
+ */
+public class Span {
+    /**
+     * The id of the trace this span belongs to.
+     */
+    public String traceId;
+
+    /**
+     * The id of this span.
+     */
+    public String spanId;
+
+    /**
+     * The id of the parent span, or null if this is a root span.
+     */
+    public String parentId;
+
+    /**
+     * The name of the microservice that recorded this span.
+     */
+    public String service;
+
+    /**
+     * What this span times (e.g., an HTTP method and path, or a
+     * {@code RunTimer} identifier).
+     */
+    public String name;
+
+    /**
+     * The start time in microseconds since the epoch.
+     */
+    public long startMicros;
+
+    /**
+     * The end time in microseconds since the epoch.
+     */
+    public long endMicros;
+
+    /**
+     * A description of the error that ended this span, or null if it
+     * succeeded.
+     */
+    public String error;
+
+    /**
+     * The wall-clock time when this class was loaded, in
+     * microseconds since the epoch.
+     */
+    private static final long sEpochMicros =
+        ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+
+    /**
+     * The {@link System#nanoTime()} reading that corresponds to
+     * {@code sEpochMicros}.
+     */
+    private static final long sOriginNanos = System.nanoTime();
+
+    /**
+     * Constructs an empty {@link Span}, which is needed for JSON
+     * deserialization.
+     */
+    public Span() {
+    }
+
+    /**
+     * Constructs a {@link Span} and sets its start time.
+     *
+     * @param context The {@link TraceContext} of this span
+     * @param parentId The id of the parent span, or null if this is
+     *                 a root span
+     * @param service The name of the microservice recording this span
+     * @param name What this span times
+     */
+    public Span(TraceContext context,
+                String parentId,
+                String service,
+                String name) {
+        this.traceId = context.traceId();
+        this.spanId = context.spanId();
+        this.parentId = parentId;
+        this.service = service;
+        this.name = name;
+        this.startMicros = nowMicros();
+    }
+
+    /**
+     * @return The {@link TraceContext} that makes this span the
+     *         parent of other spans
+     */
+    public TraceContext context() {
+        return new TraceContext(traceId, spanId, TraceContext.SAMPLED);
+    }
+
+    /**
+     * @return The current time in microseconds since the epoch
+     */
+    public static long nowMicros() {
+        return sEpochMicros + (System.nanoTime() - sOriginNanos) / 1_000;
+    }
+}
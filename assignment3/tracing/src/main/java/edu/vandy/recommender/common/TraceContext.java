@@ -0,0 +1,163 @@
+package edu.vandy.recommender.common;
+
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * The identity of a span within a distributed trace, as carried
+ * between microservices by the W3C Trace Context {@code traceparent}
+ * header ({@code version-traceId-spanId-flags}).
+ *
+ * The context of the span a thread is working on is kept in a {@link
+ * ThreadLocal}, which fits the one virtual thread per request model
+ * used by the microservices.  Code that hands work to other threads,
+ * such as reactive pipelines, must capture {@link #current()} on the
+ * calling thread instead.
+ *
+ * @param traceId The 32 hex digit id shared by every span of a trace
+ * @param spanId The 16 hex digit id of this span
+ * @param flags The 2 hex digit trace flags, where {@code 01} means
+ *              the trace is sampled
+ */
+public record TraceContext(String traceId,
+                           String spanId,
+                           String flags) {
+    /**
+     * The header that propagates the caller's context to a callee.
+     */
+    public static final String TRACEPARENT = "traceparent";
+
+    /**
+     * The header that returns the context of the server span to the
+     * caller, so a client can look up the trace of its request.
+     */
+    public static final String TRACERESPONSE = "traceresponse";
+
+    /**
+     * The flags of a sampled trace.  Every trace is sampled, since
+     * the spans are kept in memory by the 'timer' microservice.
+     */
+    static final String SAMPLED = "01";
+
+    /**
+     * Matches a {@code traceparent} header.  Versions after {@code
+     * 00} may append fields, which are ignored.
+     */
+    private static final Pattern sTraceparent = Pattern
+        .compile("([0-9a-f]{2})-([0-9a-f]{32})-([0-9a-f]{16})-([0-9a-f]{2})(-.*)?");
+
+    /**
+     * The context of the span the current thread is working on.
+     */
+    private static final ThreadLocal<TraceContext> sCurrent =
+        new ThreadLocal<>();
+
+    /**
+     * Restores the previous context when closed.
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * @param traceparent The value of a {@code traceparent} header,
+     *                    which may be null
+     * @return The {@link TraceContext} of the header, or null if it's
+     *         missing or invalid, in which case the receiver starts a
+     *         new trace
+     */
+    public static TraceContext parse(String traceparent) {
+        if (traceparent == null)
+            return null;
+
+        var matcher = sTraceparent.matcher(traceparent.trim());
+
+        if (!matcher.matches()
+            // Version ff is forbidden.
+            || matcher.group(1).equals("ff")
+            // Version 00 has exactly four fields.
+            || (matcher.group(1).equals("00") && matcher.group(5) != null)
+            // All zero ids are invalid.
+            || isZero(matcher.group(2))
+            || isZero(matcher.group(3)))
+            return null;
+
+        return new TraceContext(matcher.group(2),
+                                matcher.group(3),
+                                matcher.group(4));
+    }
+
+    /**
+     * @return The {@link TraceContext} of the root span of a new
+     *         trace
+     */
+    public static TraceContext newTrace() {
+        return new TraceContext(randomId() + randomId(),
+                                randomId(),
+                                SAMPLED);
+    }
+
+    /**
+     * @return The {@link TraceContext} of a new span whose parent is
+     *         this span
+     */
+    public TraceContext newChild() {
+        return new TraceContext(traceId, randomId(), flags);
+    }
+
+    /**
+     * @return The value of the {@code traceparent} header that makes
+     *         this span the parent of the callee's span
+     */
+    public String traceparent() {
+        return "00-" + traceId + "-" + spanId + "-" + flags;
+    }
+
+    /**
+     * @return The {@link TraceContext} of the span the current thread
+     *         is working on, or null if it isn't part of a trace
+     */
+    public static TraceContext current() {
+        return sCurrent.get();
+    }
+
+    /**
+     * Make this the context of the current thread until the returned
+     * {@link Scope} is closed.
+     *
+     * @return A {@link Scope} that restores the previous context
+     */
+    public Scope makeCurrent() {
+        var previous = sCurrent.get();
+        sCurrent.set(this);
+
+        return () -> {
+            if (previous == null)
+                sCurrent.remove();
+            else
+                sCurrent.set(previous);
+        };
+    }
+
+    /**
+     * @return 16 random hex digits that aren't all zero
+     */
+    private static String randomId() {
+        long id;
+        do
+            id = ThreadLocalRandom.current().nextLong();
+        while (id == 0);
+
+        return HexFormat.of().toHexDigits(id);
+    }
+
+    /**
+     * @param id A string of hex digits
+     * @return True if all the digits are zero
+     */
+    private static boolean isZero(String id) {
+        return id.chars().allMatch(c -> c == '0');
+    }
+}
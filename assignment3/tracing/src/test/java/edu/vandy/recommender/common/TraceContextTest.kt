@@ -0,0 +1,48 @@
+package edu.vandy.recommender.common
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+
+/**
+ * Checks that [TraceContext] parses and formats W3C `traceparent`
+ * headers and tracks the current span of a thread.
+ */
+class TraceContextTest : AssignmentTests() {
+    private val header = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"
+
+    @Test
+    fun `valid headers round trip`() {
+        val context = TraceContext.parse(header)!!
+
+        assertThat(context.traceId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736")
+        assertThat(context.spanId()).isEqualTo("00f067aa0ba902b7")
+        assertThat(context.traceparent()).isEqualTo(header)
+        assertThat(TraceContext.parse(TraceContext.newTrace().traceparent())).isNotNull()
+    }
+
+    @Test
+    fun `invalid headers start a new trace`() {
+        assertThat(TraceContext.parse(null)).isNull()
+        assertThat(TraceContext.parse("00-00000000000000000000000000000000-00f067aa0ba902b7-01")).isNull()
+        assertThat(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01")).isNull()
+        assertThat(TraceContext.parse("ff-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01")).isNull()
+        assertThat(TraceContext.parse("$header-extra")).isNull()
+        assertThat(TraceContext.parse("01-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01-extra")).isNotNull()
+    }
+
+    @Test
+    fun `children share the trace and scopes restore the previous context`() {
+        val parent = TraceContext.parse(header)!!
+        val child = parent.newChild()
+
+        assertThat(child.traceId()).isEqualTo(parent.traceId())
+        assertThat(child.spanId()).isNotEqualTo(parent.spanId())
+
+        parent.makeCurrent().use {
+            child.makeCurrent().use { assertThat(TraceContext.current()).isEqualTo(child) }
+            assertThat(TraceContext.current()).isEqualTo(parent)
+        }
+        assertThat(TraceContext.current()).isNull()
+    }
+}